@@ -0,0 +1,93 @@
+/*
+ * File: ExpressionBenchmark.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.parser;
+
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.util.Random;
+
+/**
+ * Measures the time the Parser takes on expression-heavy code.  The source
+ * is generated: methods made of declarations whose initial values are long
+ * expressions mixing every binary and unary operator, literals, variables,
+ * dispatches and parentheses.
+ * Usage: java ExpressionBenchmark [statements] [runs]
+ */
+public class ExpressionBenchmark
+{
+    private static final String[] OPERATORS =
+            {"||", "&&", "==", "!=", "<", "<=", ">", ">=", "+", "-", "*", "/", "%"};
+    private static final String[] OPERANDS =
+            {"a", "b", "12", "true", "\"s\"", "o.f", "g(a, b)", "arr[i]", "-b", "!c", "i++"};
+
+    public static void main(String[] argv) {
+        int statements = argv.length > 0 ? Integer.parseInt(argv[0]) : 20000;
+        int runs = argv.length > 1 ? Integer.parseInt(argv[1]) : 20;
+        String source = generate(statements, new Random(42));
+        System.out.println("Source: " + statements + " statements, " + source.length() + " chars");
+
+        // warm up the JIT before timing
+        for(int i = 0; i < runs; i++){
+            parse(source);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for(int i = 0; i < runs; i++){
+            long start = System.nanoTime();
+            parse(source);
+            long time = System.nanoTime() - start;
+            best = Math.min(best, time);
+            total += time;
+        }
+        System.out.printf("Parse: best %.2f ms, mean %.2f ms over %d runs%n",
+                best / 1e6, total / 1e6 / runs, runs);
+    }
+
+    /**
+     * parses the source, failing if it has errors
+     */
+    private static void parse(String source) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        new Parser(errorHandler).parse(source, "Benchmark.btm");
+        if(errorHandler.errorsFound()){
+            throw new IllegalStateException(errorHandler.getErrorList().get(0).toString());
+        }
+    }
+
+    /**
+     * @return a class holding the given number of declarations, 50 per method
+     */
+    private static String generate(int statements, Random random) {
+        StringBuilder source = new StringBuilder("class Main {\n");
+        for(int i = 0; i < statements; i++){
+            if(i % 50 == 0){
+                source.append(i == 0 ? "" : "    }\n").append("    void m").append(i).append("() {\n");
+            }
+            source.append("        var v").append(i).append(" = ");
+            appendExpression(source, random, 0);
+            source.append(";\n");
+        }
+        return source.append("    }\n}\n").toString();
+    }
+
+    /**
+     * appends a random expression; comparisons are put in parentheses since
+     * they cannot be chained
+     */
+    private static void appendExpression(StringBuilder source, Random random, int depth) {
+        if(depth > 3 || random.nextInt(4) == 0){
+            source.append(OPERANDS[random.nextInt(OPERANDS.length)]);
+            return;
+        }
+        String operator = OPERATORS[random.nextInt(OPERATORS.length)];
+        boolean comparison = operator.charAt(0) == '=' || operator.charAt(0) == '!'
+                || operator.charAt(0) == '<' || operator.charAt(0) == '>';
+        source.append(comparison ? "(" : "");
+        appendExpression(source, random, depth + 1);
+        source.append(' ').append(operator).append(' ');
+        appendExpression(source, random, depth + 1);
+        source.append(comparison ? ")" : "");
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * File: HierarchyBenchmark.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.semant;
+
+import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.parser.Parser;
+import proj12DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj12DeGrawHangMarcello.bantam.util.DeepStack;
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.util.Random;
+
+/**
+ * Measures the time the SemanticAnalyzer takes on programs whose type
+ * checks are subtype checks and method calls between classes of a large
+ * hierarchy, and the memory the class hierarchy tree of such a program
+ * keeps.  The sources are generated: a deep hierarchy, a single chain of
+ * classes, and a wide one, classes all extending the same class.  Each
+ * class declares a method with a name of its own, and a Main class has
+ * fields initialized with objects of subclasses of their types and with
+ * calls of methods inherited by these objects.
+ * The time does not include parsing.
+ * Usage: java HierarchyBenchmark [classes] [fields] [runs]
+ */
+public class HierarchyBenchmark
+{
+    public static void main(String[] argv) {
+        int classes = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000;
+        int fields = argv.length > 1 ? Integer.parseInt(argv[1]) : 20000;
+        int runs = argv.length > 2 ? Integer.parseInt(argv[2]) : 10;
+
+        benchmark("Deep", generate(classes, fields, true, new Random(42)), runs);
+        benchmark("Wide", generate(classes, fields, false, new Random(42)), runs);
+        footprint("Deep", generate(classes, fields, true, new Random(42)));
+        footprint("Wide", generate(classes, fields, false, new Random(42)));
+    }
+
+    /**
+     * prints the memory kept by the class hierarchy tree of the source, as
+     * the difference of the heap used with and without the tree, after
+     * garbage collections
+     */
+    private static void footprint(String name, String source) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+        Program program = parser.parse(source, "Benchmark.btm");
+        long before = usedMemory();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        analyzer.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+        ClassTreeNode root = analyzer.analyze(program);
+        long after = usedMemory();
+        System.out.printf("%s: class hierarchy of %d classes keeps %.1f MB%n",
+                name, root.getClassMap().size(), (after - before) / 1e6);
+    }
+
+    /**
+     * @return the heap used once garbage is collected
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * analyzes the source repeatedly and prints the times taken
+     */
+    private static void benchmark(String name, String source, int runs) {
+        // warm up the JIT before timing
+        for(int i = 0; i < runs; i++){
+            analyze(source);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for(int i = 0; i < runs; i++){
+            long time = analyze(source);
+            best = Math.min(best, time);
+            total += time;
+        }
+        System.out.printf("%s: best %.2f ms, mean %.2f ms over %d runs%n",
+                name, best / 1e6, total / 1e6 / runs, runs);
+    }
+
+    /**
+     * @return the time taken to analyze the source, failing if it has errors
+     */
+    private static long analyze(String source) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+        Program program = parser.parse(source, "Benchmark.btm");
+
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        analyzer.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+        long start = System.nanoTime();
+        analyzer.analyze(program);
+        long time = System.nanoTime() - start;
+        if(errorHandler.errorsFound()){
+            throw new IllegalStateException(errorHandler.getErrorList().get(0).toString());
+        }
+        return time;
+    }
+
+    /**
+     * @return the classes C0 to C(classes - 1), each extending the previous
+     *         one if deep or else C0 and declaring a method mi, and a class
+     *         Main with the given number of fields, each of a class and
+     *         initialized with a subclass, followed by a field initialized
+     *         with a call of a method of a superclass of the subclass
+     */
+    private static String generate(int classes, int fields, boolean deep, Random random) {
+        StringBuilder source = new StringBuilder("class C0 { int m0() { return 0; } }\n");
+        for(int i = 1; i < classes; i++){
+            source.append("class C").append(i).append(" extends C").append(deep ? i - 1 : 0)
+                    .append(" { int m").append(i).append("() { return ").append(i).append("; } }\n");
+        }
+        source.append("class Main {\n");
+        for(int i = 0; i < fields; i++){
+            int subclass = random.nextInt(classes);
+            int type = deep ? random.nextInt(subclass + 1) : 0;
+            int method = deep ? random.nextInt(subclass + 1) : random.nextBoolean() ? 0 : subclass;
+            source.append("    C").append(type).append(" f").append(i)
+                    .append(" = new C").append(subclass).append("();\n");
+            source.append("    int g").append(i).append(" = (new C").append(subclass)
+                    .append("()).m").append(method).append("();\n");
+        }
+        return source.append("    void main() { }\n}\n").toString();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * File: ASTFootprint.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.util;
+
+import proj12DeGrawHangMarcello.bantam.ast.ASTNode;
+import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.parser.Parser;
+
+import java.io.PrintStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Estimates the memory taken by an AST, per type of node.
+ * The footprint of a node is its own size plus the size of the objects it
+ * owns that are not AST nodes or strings, such as the storage of a list
+ * node; an object shared by several nodes, such as the array of all the
+ * empty lists, is counted once.  Strings are left out since they are often
+ * shared.  Sizes are those of a 64-bit HotSpot JVM with compressed
+ * references: 12-byte object headers, 16-byte array headers, 4-byte
+ * references and objects aligned on 8 bytes.
+ * Usage: java ASTFootprint file...
+ */
+public class ASTFootprint
+{
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+
+    // the number of nodes and bytes of each type of node, by type name
+    private final Map<String, long[]> footprints = new TreeMap<>();
+    // the objects owned by nodes that were already counted
+    private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+    // the size of the instances of each class
+    private final Map<Class<?>, Long> shallowSizes = new TreeMap<>((a, b) -> a.getName().compareTo(b.getName()));
+
+    /**
+     * adds the nodes of an AST to the footprint.  The AST is walked with an
+     * explicit stack, so it can be of any depth.
+     * @param root the root of the AST
+     */
+    public void add(ASTNode root) {
+        Deque<ASTNode> nodes = new ArrayDeque<>();
+        nodes.push(root);
+        while (!nodes.isEmpty()) {
+            ASTNode node = nodes.pop();
+            long[] footprint = footprints.computeIfAbsent(node.getClass().getSimpleName(), k -> new long[2]);
+            footprint[0]++;
+            footprint[1] += shallowSize(node.getClass()) + ownedSize(node, nodes);
+        }
+    }
+
+    /**
+     * prints the footprint of each type of node and the total
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out) {
+        long count = 0;
+        long bytes = 0;
+        out.printf("%-24s %10s %12s %8s%n", "Node type", "Nodes", "Bytes", "Average");
+        for (Map.Entry<String, long[]> entry : footprints.entrySet()) {
+            long[] footprint = entry.getValue();
+            out.printf("%-24s %10d %12d %8.1f%n", entry.getKey(), footprint[0], footprint[1],
+                    (double) footprint[1] / footprint[0]);
+            count += footprint[0];
+            bytes += footprint[1];
+        }
+        out.printf("%-24s %10d %12d %8.1f%n", "Total", count, bytes, (double) bytes / Math.max(count, 1));
+    }
+
+    /**
+     * @return the size of the objects owned by the given node, whose
+     *         children are pushed on the stack of nodes
+     */
+    private long ownedSize(ASTNode node, Deque<ASTNode> nodes) {
+        long size = 0;
+        for (Class<?> c = node.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    size += objectSize(field.get(node), nodes);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the size of an object owned by a node: 0 for a node, which is
+     *         pushed on the stack, or a string
+     */
+    private long objectSize(Object value, Deque<ASTNode> nodes) {
+        if (value == null || value instanceof String) {
+            return 0;
+        }
+        if (value instanceof ASTNode) {
+            nodes.push((ASTNode) value);
+            return 0;
+        }
+        if (!counted.add(value)) {
+            return 0;
+        }
+        if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive()) {
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                objectSize(Array.get(value, i), nodes);
+            }
+            return align(ARRAY_HEADER + (long) REFERENCE * length);
+        }
+        return 0;
+    }
+
+    /**
+     * @return the size of an instance of the class, its fields being laid
+     *         out without gaps after the header
+     */
+    private long shallowSize(Class<?> type) {
+        Long size = shallowSizes.get(type);
+        if (size == null) {
+            long bytes = HEADER;
+            for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        bytes += fieldSize(field.getType());
+                    }
+                }
+            }
+            size = align(bytes);
+            shallowSizes.put(type, size);
+        }
+        return size;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        else if (type == int.class || type == float.class) {
+            return 4;
+        }
+        else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Please Provide Test Files");
+            return;
+        }
+        ASTFootprint footprint = new ASTFootprint();
+        for (String filename : args) {
+            Parser parser = new Parser(new ErrorHandler());
+            parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+            Program program = parser.parse(filename);
+            footprint.add(program);
+        }
+        footprint.print(System.out);
+    }
+}
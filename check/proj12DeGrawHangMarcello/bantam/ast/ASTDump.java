@@ -0,0 +1,78 @@
+/*
+ * File: ASTDump.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.ast;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints an AST as text, one node per line, indented by depth, with every
+ * field of the node that is not a child node: names, types, values, line
+ * numbers and, optionally, source offsets.  The checks compare the dumps of
+ * ASTs built in different ways to know if they are the same.
+ */
+public class ASTDump
+{
+    private ASTDump() {
+    }
+
+    /**
+     * @param node the root of the AST, which may be null
+     * @param withOffsets true to print the start and end offsets of the nodes
+     * @return the dump of the AST
+     */
+    public static String dump(ASTNode node, boolean withOffsets) {
+        StringBuilder dump = new StringBuilder();
+        dump(node, 0, withOffsets, dump);
+        return dump.toString();
+    }
+
+    private static void dump(ASTNode node, int depth, boolean withOffsets, StringBuilder dump) {
+        for(int i = 0; i < depth; i++){
+            dump.append(' ');
+        }
+        if(node == null){
+            // the parser can leave null sub-expressions in an AST
+            dump.append("null\n");
+            return;
+        }
+        dump.append(node.getClass().getSimpleName()).append(" @").append(node.getLineNum());
+        List<ASTNode> children = new ArrayList<>();
+        for(Class<?> c = node.getClass(); c != Object.class; c = c.getSuperclass()){
+            for(Field field: c.getDeclaredFields()){
+                String name = field.getName();
+                if(Modifier.isStatic(field.getModifiers()) || name.equals("lineNum")
+                        || name.equals("listElements") || (node instanceof ListNode && name.equals("size"))
+                        || (!withOffsets && name.endsWith("Offset"))){
+                    continue;
+                }
+                field.setAccessible(true);
+                Object value;
+                try {
+                    value = field.get(node);
+                } catch(IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+                if(value instanceof ASTNode){
+                    children.add((ASTNode) value);
+                }
+                else {
+                    dump.append(' ').append(name).append('=').append(value);
+                }
+            }
+        }
+        dump.append('\n');
+        if(node instanceof ListNode){
+            for(ASTNode element: (ListNode) node){
+                dump(element, depth + 1, withOffsets, dump);
+            }
+        }
+        for(ASTNode child: children){
+            dump(child, depth + 1, withOffsets, dump);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * File: IncrementalParserCheck.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.parser;
+
+import proj12DeGrawHangMarcello.bantam.ast.ASTDump;
+import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.util.CompilationException;
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A randomized check of the IncrementalParser against the Parser.  Random
+ * edits are made one after the other to a source: text inserted, removed
+ * or replaced, mostly after a ";" or a space, from spaces and newlines to
+ * comments, statements, members and stray braces.  After each edit the
+ * AST reparsed by the IncrementalParser, line numbers and offsets
+ * included, or the errors it found, must be those of a full parse of the
+ * edited source.  Once an edit gives syntax errors, the edits start again
+ * from the next source.  The sources are the given files, or else
+ * programs of the ProgramGenerator.
+ * Usage: java IncrementalParserCheck [edits] [seed] [file.btm ...]
+ */
+public class IncrementalParserCheck
+{
+    private static final String[] INSERTED = {"", " ", "\n", "\r\n", "x", "1", "+", ";", "}", "{",
+            "/*", "*/", "//", "\"", "int y = 3;", "x = x + 1;\n", "\n\n", "if(x) {}", "void q() { }\n",
+            " x = 2;\n", "\n  ", " /* c\n */ ", " // c\n", " int z;", " var w = 2;"};
+    private static final int EDITS_PER_SOURCE = 100;
+
+    public static void main(String[] argv) throws IOException {
+        int edits = argv.length > 0 ? Integer.parseInt(argv[0]) : 15000;
+        long seed = argv.length > 1 ? Long.parseLong(argv[1]) : 0;
+        List<String> files = new ArrayList<>();
+        for(int i = 2; i < argv.length; i++){
+            files.add(new String(Files.readAllBytes(Paths.get(argv[i])), Charset.defaultCharset()));
+        }
+        Random random = new Random(seed);
+
+        ErrorHandler errorHandler = new ErrorHandler();
+        IncrementalParser parser = new IncrementalParser(errorHandler);
+        int sources = 0;
+        String text = null;
+        int incremental = 0;
+        int mismatches = 0;
+        for(int k = 0; k < edits; k++){
+            if(text == null || parser.getProgram() == null || k % EDITS_PER_SOURCE == 0){
+                String source = files.isEmpty() ? new ProgramGenerator(seed + sources).generate()
+                                                : files.get(sources % files.size());
+                sources++;
+                dump(errorHandler, () -> parser.parse(source, "Check.btm"));
+                text = source;
+            }
+
+            // an edit, most often just after a ";" or a space
+            int start = random.nextInt(text.length() + 1);
+            if(random.nextInt(3) > 0){
+                int after = text.indexOf(random.nextBoolean() ? ';' : ' ', start);
+                if(after >= 0){
+                    start = after + 1;
+                }
+            }
+            int removed = random.nextInt(4) == 0 ? Math.min(random.nextInt(6), text.length() - start) : 0;
+            String inserted = INSERTED[random.nextInt(INSERTED.length)];
+            String edited = text.substring(0, start) + inserted + text.substring(start + removed);
+
+            Program before = parser.getProgram();
+            int editStart = start;
+            int removedLength = removed;
+            String reparsed = dump(errorHandler,
+                    () -> parser.reparse(edited, editStart, removedLength, inserted.length()));
+            if(before != null && parser.getProgram() == before){
+                incremental++;
+            }
+            ErrorHandler fullErrors = new ErrorHandler();
+            String parsed = dump(fullErrors, () -> new Parser(fullErrors).parse(edited, "Check.btm"));
+            if(!reparsed.equals(parsed)){
+                if(mismatches++ < 10){
+                    System.out.println("edit " + k + ": [" + inserted + "] at " + start
+                            + " replacing " + removed + " chars");
+                }
+            }
+            text = edited;
+        }
+        System.out.println(edits + " edits, " + incremental + " reparsed incrementally, "
+                + mismatches + " mismatches");
+        if(mismatches > 0){
+            System.exit(1);
+        }
+    }
+
+    private interface Parse
+    {
+        Program parse();
+    }
+
+    /**
+     * @return the dump of the AST of the parse, or of the errors if it failed
+     */
+    private static String dump(ErrorHandler errorHandler, Parse parse) {
+        try {
+            return ASTDump.dump(parse.parse(), true);
+        } catch(CompilationException e) {
+            return "errors " + errorHandler.getErrorList();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * File: ProgramGenerator.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random Bantam Java programs for the checks.  A program has 2 to
+ * 12 classes C0, C1, ..., some extending an earlier class, followed by a
+ * Main class.  The classes have fields, with or without initial values, and
+ * methods with formals, declarations, assignments, ifs, whiles and blocks,
+ * whose expressions mix constants, arithmetic, comparisons, logic, casts,
+ * instanceof and new.  The programs always parse, and many of them have
+ * semantic errors, such as mismatched types.
+ */
+public class ProgramGenerator
+{
+    private final Random random;
+    private List<String> names;
+    private List<String> types;
+
+    /**
+     * @param seed the seed of the program; the same seed gives the same program
+     */
+    public ProgramGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return the source of a new program
+     */
+    public String generate() {
+        int classes = 2 + random.nextInt(11);
+        names = new ArrayList<>();
+        for(int i = 0; i < classes; i++){
+            names.add("C" + i);
+        }
+        types = new ArrayList<>(List.of("int", "boolean", "String"));
+        types.addAll(names);
+
+        StringBuilder source = new StringBuilder();
+        for(int i = 0; i < classes; i++){
+            source.append("class ").append(names.get(i));
+            if(i > 0 && random.nextDouble() < 0.7){
+                source.append(" extends ").append(names.get(random.nextInt(i)));
+            }
+            source.append(" {\n");
+            for(int f = random.nextInt(5); f > 0; f--){
+                String type = pick(types);
+                source.append("    ").append(type).append(" f").append(f);
+                if(random.nextDouble() < 0.8){
+                    source.append(" = ").append(random.nextBoolean() ? expression(0) : constant(type));
+                }
+                source.append(";\n");
+            }
+            for(int m = random.nextInt(4); m > 0; m--){
+                List<String> formals = new ArrayList<>();
+                for(int k = random.nextInt(4); k > 0; k--){
+                    formals.add(pick(types) + " a" + k);
+                }
+                String returnType = random.nextInt(types.size() + 1) == 0 ? "void" : pick(types);
+                source.append("    ").append(returnType).append(" m").append(m)
+                        .append("(").append(String.join(", ", formals)).append(") {\n");
+                statements(source, formals, 0);
+                if(!returnType.equals("void")){
+                    source.append("        return ")
+                            .append(random.nextDouble() < 0.7 ? constant(returnType) : expression(0))
+                            .append(";\n");
+                }
+                source.append("    }\n");
+            }
+            source.append("}\n");
+        }
+        return source.append("class Main {\n    void main() { }\n}\n").toString();
+    }
+
+    private String pick(List<String> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private String constant(String type) {
+        switch(type){
+            case "int":
+                return String.valueOf(random.nextInt(100));
+            case "boolean":
+                return random.nextBoolean() ? "true" : "false";
+            case "String":
+                return "\"s" + random.nextInt(10) + "\"";
+            default:
+                return "new " + type + "()";
+        }
+    }
+
+    private String expression(int depth) {
+        int kind = random.nextInt(10);
+        if(depth > 2 || kind < 3){
+            return constant(pick(types));
+        }
+        switch(kind){
+            case 3:
+                return "(" + expression(depth + 1) + " + " + expression(depth + 1) + ")";
+            case 4:
+                return "(" + expression(depth + 1) + " < " + expression(depth + 1) + ")";
+            case 5:
+                return "(" + expression(depth + 1) + " && " + expression(depth + 1) + ")";
+            case 6:
+                return "cast(" + pick(names) + ", " + constant(pick(names)) + ")";
+            case 7:
+                return "(" + constant(pick(names)) + " instanceof " + pick(names) + ")";
+            case 8:
+                return "(!(" + expression(depth + 1) + "))";
+            default:
+                return "(-(" + expression(depth + 1) + "))";
+        }
+    }
+
+    private void statements(StringBuilder source, List<String> formals, int depth) {
+        String indent = "    ".repeat(depth + 2);
+        for(int s = random.nextInt(5); s > 0; s--){
+            int kind = random.nextInt(7);
+            if(kind == 0){
+                source.append(indent).append("var v").append(random.nextInt(100))
+                        .append(" = ").append(expression(0)).append(";\n");
+            }
+            else if(kind == 1 && !formals.isEmpty()){
+                String formal = pick(formals);
+                source.append(indent).append(formal.substring(formal.indexOf(' ') + 1))
+                        .append(" = ").append(expression(0)).append(";\n");
+            }
+            else if((kind == 2 || kind == 3) && depth < 2){
+                source.append(indent).append(kind == 2 ? "if (" : "while (")
+                        .append(expression(0)).append(") {\n");
+                statements(source, formals, depth + 1);
+                source.append(indent).append("}\n");
+            }
+            else if(kind == 4){
+                source.append(indent).append("new ").append(pick(names)).append("();\n");
+            }
+            else if(kind == 5 && depth < 2){
+                source.append(indent).append("{\n");
+                statements(source, formals, depth + 1);
+                source.append(indent).append("}\n");
+            }
+        }
+    }
+}
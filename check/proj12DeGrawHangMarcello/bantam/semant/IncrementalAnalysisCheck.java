@@ -0,0 +1,227 @@
+/*
+ * File: IncrementalAnalysisCheck.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.semant;
+
+import proj12DeGrawHangMarcello.bantam.ast.ASTDump;
+import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.parser.IncrementalParser;
+import proj12DeGrawHangMarcello.bantam.parser.Parser;
+import proj12DeGrawHangMarcello.bantam.parser.ProgramGenerator;
+import proj12DeGrawHangMarcello.bantam.util.Error;
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A randomized check of the incremental SemanticAnalyzer against a new
+ * analyzer.  A single incremental analyzer analyzes each program, then the
+ * program after an edit: the same source, blank lines before a class, a
+ * class replaced by the class of the same name of another program and back,
+ * a class removed and added back, a class using another type, and, through
+ * the IncrementalParser so that the edited Program keeps the unchanged
+ * nodes, a number replaced by a boolean and a blank line added.  After each
+ * edit the errors and the AST, with the types set by the analysis, must be
+ * those of a new analyzer on a new parse of the edited source.  The
+ * programs are the given files, or else programs of the ProgramGenerator.
+ * Usage: java IncrementalAnalysisCheck [programs] [seed] [file.btm ...]
+ */
+public class IncrementalAnalysisCheck
+{
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern TYPE = Pattern.compile("\\bC(\\d)\\b");
+    private static final Pattern IDENTITY = Pattern.compile("@[0-9a-f]+\\b");
+
+    private final SemanticAnalyzer analyzer = new SemanticAnalyzer(new ErrorHandler());
+    private int edits = 0;
+    private int mismatches = 0;
+
+    private IncrementalAnalysisCheck() {
+        analyzer.setIncremental(true);
+    }
+
+    public static void main(String[] argv) throws IOException {
+        int count = argv.length > 0 ? Integer.parseInt(argv[0]) : 700;
+        long seed = argv.length > 1 ? Long.parseLong(argv[1]) : 0;
+        List<String> programs = new ArrayList<>();
+        for(int i = 2; i < argv.length; i++){
+            programs.add(new String(Files.readAllBytes(Paths.get(argv[i])), Charset.defaultCharset()));
+        }
+        for(int i = 0; programs.size() < count && argv.length <= 2; i++){
+            programs.add(new ProgramGenerator(seed + i).generate());
+        }
+
+        // the analyzer reports its progress on System.out
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        IncrementalAnalysisCheck check = new IncrementalAnalysisCheck();
+        try {
+            check.run(programs, new Random(seed), out);
+        } finally {
+            System.setOut(out);
+        }
+        System.out.println(check.edits + " edits, " + check.mismatches + " mismatches");
+        if(check.mismatches > 0){
+            System.exit(1);
+        }
+    }
+
+    private void run(List<String> programs, Random random, PrintStream out) {
+        for(String program: programs){
+            List<String> classes = split(program);
+            try {
+                parse(program);
+            } catch(RuntimeException e) {
+                continue; // not a program to analyze
+            }
+            List<String> other = split(programs.get(random.nextInt(programs.size())));
+            int k = random.nextInt(classes.size());
+
+            check("same", program, program, out);
+            List<String> edited = new ArrayList<>(classes);
+            edited.set(k, "\n\n" + edited.get(k));
+            check("shift", program, String.join("", edited), out);
+            for(String otherClass: other){
+                if(name(otherClass).equals(name(classes.get(k)))){
+                    edited = new ArrayList<>(classes);
+                    edited.set(k, otherClass);
+                    check("replace", program, String.join("", edited), out);
+                    check("replace back", String.join("", edited), program, out);
+                }
+            }
+            edited = new ArrayList<>(classes);
+            edited.remove(k);
+            check("remove", program, String.join("", edited), out);
+            check("add", String.join("", edited), program, out);
+
+            Matcher number = NUMBER.matcher(program);
+            List<Integer> numbers = new ArrayList<>();
+            while(number.find()){
+                numbers.add(number.start());
+            }
+            if(!numbers.isEmpty()){
+                int start = numbers.get(random.nextInt(numbers.size()));
+                number.find(start);
+                checkEdit("number", program, start, number.end() - start, "true", out);
+            }
+            checkEdit("line", program, program.indexOf('\n', program.indexOf('{')) + 1, 0, "\n", out);
+
+            edited = new ArrayList<>(classes);
+            edited.set(k, TYPE.matcher(classes.get(k)).replaceFirst("C9"));
+            check("rename", program, String.join("", edited), out);
+        }
+    }
+
+    /**
+     * analyzes the first source then the second one with the incremental
+     * analyzer, and each with a new analyzer
+     */
+    private void check(String edit, String first, String second, PrintStream out) {
+        edits++;
+        String firstResult = analyze(analyzer, parse(first));
+        String secondResult = analyze(analyzer, parse(second));
+        compare(edit, firstResult, analyze(new SemanticAnalyzer(new ErrorHandler()), parse(first)), out);
+        compare(edit, secondResult, analyze(new SemanticAnalyzer(new ErrorHandler()), parse(second)), out);
+    }
+
+    /**
+     * analyzes the source, then the source after an edit reparsed by an
+     * IncrementalParser, with the incremental analyzer
+     */
+    private void checkEdit(String edit, String source, int start, int removed, String inserted,
+                           PrintStream out) {
+        edits++;
+        IncrementalParser parser = new IncrementalParser(new ErrorHandler());
+        String edited = source.substring(0, start) + inserted + source.substring(start + removed);
+        Program program;
+        try {
+            analyze(analyzer, parser.parse(source, "Check.btm"));
+            program = parser.reparse(edited, start, removed, inserted.length());
+        } catch(RuntimeException e) {
+            return; // not a program to analyze
+        }
+        String result = analyze(analyzer, program);
+        compare(edit, result, analyze(new SemanticAnalyzer(new ErrorHandler()), parse(edited)), out);
+    }
+
+    private void compare(String edit, String result, String expected, PrintStream out) {
+        if(!result.equals(expected)){
+            if(mismatches++ < 10){
+                String[] lines = result.split("\n");
+                String[] expectedLines = expected.split("\n");
+                for(int i = 0; i < Math.max(lines.length, expectedLines.length); i++){
+                    String line = i < lines.length ? lines[i] : "<end>";
+                    String expectedLine = i < expectedLines.length ? expectedLines[i] : "<end>";
+                    if(!line.equals(expectedLine)){
+                        out.println(edit + ": " + line + "\n    instead of " + expectedLine);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static Program parse(String source) {
+        return new Parser(new ErrorHandler()).parse(source, "Check.btm");
+    }
+
+    /**
+     * @return the errors of the analysis of the program, then the dump of
+     *         its AST with the types set by the analysis
+     */
+    private static String analyze(SemanticAnalyzer analyzer, Program program) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        analyzer.setErrorHandler(errorHandler);
+        StringBuilder result = new StringBuilder();
+        try {
+            analyzer.analyze(program);
+        } catch(RuntimeException e) {
+            result.append(e.getClass().getSimpleName()).append('\n');
+        }
+        for(Error error: errorHandler.getErrorList()){
+            result.append(error).append('\n');
+        }
+        result.append(ASTDump.dump(program, false));
+        // after some errors the checker names an expression node rather than
+        // its type, in the message and in the type it sets on the node
+        return IDENTITY.matcher(result).replaceAll("@");
+    }
+
+    /**
+     * @return the classes of the source, each from its "class" line to the next one
+     */
+    private static List<String> split(String source) {
+        List<String> classes = new ArrayList<>();
+        StringBuilder current = null;
+        for(String line: source.split("\n", -1)){
+            if(line.startsWith("class ")){
+                if(current != null){
+                    classes.add(current.toString());
+                }
+                current = new StringBuilder();
+            }
+            if(current != null){
+                current.append(line).append('\n');
+            }
+        }
+        if(current != null){
+            classes.add(current.toString());
+        }
+        return classes;
+    }
+
+    private static String name(String aClass) {
+        return aClass.split("[ {]")[1];
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * File: SymbolTableCheck.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.util;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * A randomized differential test of the SymbolTable against the original
+ * implementation, the ReferenceSymbolTable.  Each sequence builds a few
+ * tables, some of them the parents of others, and applies random
+ * operations to a table of the SymbolTable and the same table of the
+ * reference: entering and exiting scopes, adding, looking up, peeking and
+ * setting symbols, at the current or a given scope level, sizes, levels,
+ * clones and new parents.  Each operation must give the same result, or
+ * throw the same exception, in both.  Some symbols have the same hash code,
+ * and toString and m65 have the same first 5-bit hash fragment, m65 having
+ * 31 as its second one, the sign bit of a trie node's bitmap.
+ * Usage: java SymbolTableCheck [sequences] [first seed]
+ */
+public class SymbolTableCheck
+{
+    private static final int STEPS = 300;
+    private static final String[] COLLIDING =
+            {"a", "b", "c", "d", "e", "f", "Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", "toString", "m65"};
+
+    public static void main(String[] argv) {
+        int sequences = argv.length > 0 ? Integer.parseInt(argv[0]) : 20000;
+        long firstSeed = argv.length > 1 ? Long.parseLong(argv[1]) : 0;
+        String[] symbols = new String[40];
+        for(int i = 0; i < symbols.length; i++){
+            symbols[i] = i < COLLIDING.length ? COLLIDING[i] : "n" + i;
+        }
+
+        int mismatches = 0;
+        for(long seed = firstSeed; seed < firstSeed + sequences; seed++){
+            String mismatch = run(new Random(seed), symbols);
+            if(mismatch != null){
+                if(mismatches++ < 10){
+                    System.out.println("seed " + seed + ": " + mismatch);
+                }
+            }
+        }
+        System.out.println(sequences + " sequences, " + mismatches + " mismatches");
+        if(mismatches > 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * runs one sequence of operations
+     * @return a description of the first operation giving different
+     *         results, or null if there was none
+     */
+    private static String run(Random random, String[] symbols) {
+        int count = 1 + random.nextInt(5);
+        SymbolTable[] tables = new SymbolTable[count];
+        ReferenceSymbolTable[] references = new ReferenceSymbolTable[count];
+        for(int i = 0; i < count; i++){
+            tables[i] = new SymbolTable();
+            references[i] = new ReferenceSymbolTable();
+            if(i > 0 && random.nextInt(4) > 0){
+                int parent = random.nextInt(i);
+                tables[i].setParent(tables[parent]);
+                references[i].setParent(references[parent]);
+            }
+        }
+
+        for(int step = 0; step < STEPS; step++){
+            int t = random.nextInt(count);
+            SymbolTable table = tables[t];
+            ReferenceSymbolTable reference = references[t];
+            String s = symbols[random.nextInt(random.nextBoolean() ? COLLIDING.length : symbols.length)];
+            String value = "v" + random.nextInt(50);
+            int level = random.nextInt(8) - 1;
+            int operation = random.nextInt(15);
+            String result;
+            String expected;
+            switch(operation){
+                case 0:
+                case 1:
+                    result = call(() -> { table.enterScope(); return null; });
+                    expected = call(() -> { reference.enterScope(); return null; });
+                    break;
+                case 2:
+                    result = call(() -> { table.exitScope(); return null; });
+                    expected = call(() -> { reference.exitScope(); return null; });
+                    break;
+                case 3:
+                case 4:
+                case 5:
+                    result = call(() -> { table.add(s, value); return null; });
+                    expected = call(() -> { reference.add(s, value); return null; });
+                    break;
+                case 6:
+                    result = call(() -> table.lookup(s));
+                    expected = call(() -> reference.lookup(s));
+                    break;
+                case 7:
+                    result = call(() -> table.lookup(s, level));
+                    expected = call(() -> reference.lookup(s, level));
+                    break;
+                case 8:
+                    result = call(() -> table.peek(s)) + call(() -> table.peek(s, level));
+                    expected = call(() -> reference.peek(s)) + call(() -> reference.peek(s, level));
+                    break;
+                case 9:
+                    result = call(() -> { table.set(s, value); return null; });
+                    expected = call(() -> { reference.set(s, value); return null; });
+                    break;
+                case 10:
+                    result = call(() -> { table.set(s, value, level); return null; });
+                    expected = call(() -> { reference.set(s, value, level); return null; });
+                    break;
+                case 11:
+                    result = call(() -> table.getScopeLevel(s)) + call(table::getSize)
+                            + call(table::getCurrScopeSize) + call(table::getCurrScopeLevel);
+                    expected = call(() -> reference.getScopeLevel(s)) + call(reference::getSize)
+                            + call(reference::getCurrScopeSize) + call(reference::getCurrScopeLevel);
+                    break;
+                case 12:
+                    // a clone holds the same symbols, at the same levels
+                    SymbolTable tableClone = table.clone();
+                    ReferenceSymbolTable referenceClone = reference.clone();
+                    StringBuilder found = new StringBuilder();
+                    StringBuilder expectedFound = new StringBuilder();
+                    for(String symbol: symbols){
+                        found.append(call(() -> tableClone.lookup(symbol)))
+                                .append(call(() -> tableClone.getScopeLevel(symbol)));
+                        expectedFound.append(call(() -> referenceClone.lookup(symbol)))
+                                .append(call(() -> referenceClone.getScopeLevel(symbol)));
+                    }
+                    result = found.toString();
+                    expected = expectedFound.toString();
+                    break;
+                case 13:
+                    // the clone replaces the table, its copied ancestors included
+                    tables[t] = table.clone();
+                    references[t] = reference.clone();
+                    result = expected = "";
+                    break;
+                default:
+                    // a new parent, among the tables before this one so there is no cycle
+                    int parent = random.nextInt(count);
+                    if(parent < t){
+                        table.setParent(tables[parent]);
+                        reference.setParent(references[parent]);
+                    }
+                    result = expected = "";
+            }
+            if(!result.equals(expected)){
+                return "step " + step + ", operation " + operation + " on table " + t + " with "
+                        + s + " at level " + level + ": " + result + " instead of " + expected;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the result of the call, or its exception with its message
+     */
+    private static String call(Callable<Object> call) {
+        try {
+            return String.valueOf(call.call());
+        } catch(Exception e) {
+            return "exception " + e.getClass().getSimpleName() + " " + e.getMessage();
+        }
+    }
+}
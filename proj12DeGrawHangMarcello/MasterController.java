@@ -460,52 +460,18 @@ public class MasterController {
     }
 
     /**
-     * prompts user to save file before telling the toolbarController to handle the
-     * appropriate compilation steps indicate by the phasesToExecute string
+     * tells the toolbarController to handle the appropriate compilation steps
+     * indicate by the phasesToExecute string.  The contents of the editor are
+     * compiled directly, so the file does not have to be saved first.
      *
      * @param phasesToExecute a string indicating which compilation phases should be done
      *                        either: "scan", "scanParse" or "scanParseCheck"
      */
     private void handleCompilationPhases(String phasesToExecute) {
-        Tab curTab = this.codeTabPane.getSelectionModel().getSelectedItem();
-
-        if (this.codeTabPane.getSaveStatus(curTab)) {
-            toolbarController.handleCompilationPhases(phasesToExecute);
-        } else {
-            askToSave(curTab, phasesToExecute);
-        }
-    }
-
-
-    /**
-     *
-     * @param curTab the currently selected tab in the IDE
-     * @param phasesToExecute a string indicating which compilation phases should be done
-     *                        either: "scan", "scanParse" or "scanParseCheck"
-     */
-    private void askToSave(Tab curTab, String phasesToExecute) {
-        String saveResult = this.askSaveDialog(null,
-                "Do you want to save your changes?",null);
-        switch (saveResult) {
-            case("yesButton"):  // if they saved
-
-                // false only when the "current" file is null from closing file
-                boolean isNotCancelled = fileController.handleSave();
-
-                if(isNotCancelled){
-                    toolbarController.handleCompilationPhases(phasesToExecute);
-                }
-
-                break;
-            case("noButton"):
-                if (this.codeTabPane.getFileName() == null) {
-                    this.console.writeToConsole("File Not Found: " + curTab.getText() +"\n","Error");
-                    this.console.writeToConsole("File must be saved to scan \n","Error");
-                }
-                return;
-            case("cancelButton"):
-                return;
+        if (this.codeTabPane.getTabs().isEmpty()) {
+            return;
         }
+        toolbarController.handleCompilationPhases(phasesToExecute);
     }
 
 }
@@ -26,7 +26,9 @@
 package proj12DeGrawHangMarcello;
 
 import javafx.application.Platform;
+import proj12DeGrawHangMarcello.bantam.ast.FlatAST;
 import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.parser.IncrementalParser;
 import proj12DeGrawHangMarcello.bantam.parser.Parser;
 import proj12DeGrawHangMarcello.bantam.semant.MainMainVisitor;
 import proj12DeGrawHangMarcello.bantam.semant.NumLocalVarsVisitor;
@@ -36,6 +38,7 @@ import proj12DeGrawHangMarcello.bantam.treedrawer.Drawer;
 import proj12DeGrawHangMarcello.bantam.util.ClassTreeNode;
 import proj12DeGrawHangMarcello.bantam.util.CompilationException;
 import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+import proj12DeGrawHangMarcello.bantam.util.DeepStack;
 import proj12DeGrawHangMarcello.bantam.util.Error;
 import proj12DeGrawHangMarcello.bantam.lexer.Scanner;
 import proj12DeGrawHangMarcello.bantam.lexer.Token;
@@ -63,6 +66,11 @@ public class ToolbarController {
     private Console console;
     private CodeTabPane codeTabPane;
     private Program AST;
+    private String ASTName; // name of the file the AST was parsed from, used in error messages
+    private SemanticAnalyzer checker; // kept between checks, to analyze only what changed
+    private IncrementalParser incrementalParser; // kept between parses, to parse only what changed
+    private String parsedText; // the source of the incrementalParser's last parse
+    private String parsedName; // the name of that source
 
     /**
      * This is the constructor of ToolbarController.
@@ -78,11 +86,10 @@ public class ToolbarController {
 
     /**
      * Handles actions for scan, scanParse and scanParseCheck buttons in IDE
-     * will only be called after the current file contents have been saved
+     * compiles a snapshot of the current CodeArea, so the file need not be saved
      * @param method the string indicating which compilation phases to execute
      */
     public void handleCompilationPhases(String method){
-
         switch(method) {
             case "scan":
                 this.handleScan();
@@ -98,14 +105,29 @@ public class ToolbarController {
         }
     }
 
+    /**
+     * Copies the text of the current CodeArea and the name of its file, so the
+     * compilation tasks work on what is in the editor, saved or not, without
+     * reading the file.  Must be called on the JavaFX thread.
+     * @return the snapshot, to be handed to the tasks compiling it
+     */
+    private Snapshot takeSnapshot(){
+        String name = this.codeTabPane.getFileName();
+        if(name == null){
+            name = this.codeTabPane.getSelectionModel().getSelectedItem().getText();
+        }
+        return new Snapshot(this.codeTabPane.getCodeArea().getText(), name);
+    }
+
     /**
      * Handles scanning the current CodeArea, prints results to a new code Area.
      */
     public void handleScan(){
         this.scanIsDone = false;
+        Snapshot snapshot = this.takeSnapshot();
         //declare a new thread and assign it with the work of scanning the current tab
         new Thread(()-> {
-            ScanTask scanTask = new ScanTask();
+            ScanTask scanTask = new ScanTask(snapshot);
             FutureTask<String> curFutureTask = new FutureTask<>(scanTask);
             ExecutorService curExecutor = Executors.newFixedThreadPool(1);
             curExecutor.execute(curFutureTask);
@@ -118,13 +140,15 @@ public class ToolbarController {
      */
     public void handleScanAndParse(){
         this.parseIsDone = false;
+        Snapshot snapshot = this.takeSnapshot();
         Thread scanParseThread = new Thread (()->{
-            ParseTask parseTask = new ParseTask();
+            ParseTask parseTask = new ParseTask(snapshot);
             FutureTask<Program> curFutureTask = new FutureTask<Program>(parseTask);
             ExecutorService curExecutor = Executors.newFixedThreadPool(1);
             curExecutor.execute(curFutureTask);
             try{
                 AST = curFutureTask.get();
+                ASTName = snapshot.name;
                 //don't need to draw at the moment
 
                 /*
@@ -178,10 +202,12 @@ public class ToolbarController {
 
 
         // begin the semantic analysis phase in a new thread
+        Program program = this.AST;
+        String name = this.ASTName;
         new Thread (()->{
 
             // create and begin semantic analysis task
-            CheckTask checkTask = new CheckTask();
+            CheckTask checkTask = new CheckTask(program, name);
             FutureTask<ClassTreeNode> curFutureTask = new FutureTask<ClassTreeNode>(checkTask);
             ExecutorService curExecutor = Executors.newFixedThreadPool(1);
             curExecutor.execute(curFutureTask);
@@ -219,19 +245,37 @@ public class ToolbarController {
      */
     private class CheckTask implements Callable {
 
+        private final Program program;
+        private final String name;
+
+        /**
+         * @param program the AST to analyze, owned by this task
+         * @param name the name of the file it was parsed from
+         */
+        CheckTask(Program program, String name){
+            this.program = program;
+            this.name = name;
+        }
+
         @Override
         public ClassTreeNode call() {
             // create an error handler
             ErrorHandler errorHandler = new ErrorHandler();
 
-            // create a checker that uses the new error handler
-            SemanticAnalyzer checker = new SemanticAnalyzer(errorHandler);
-
             // initialize the root of the class hierarchy tree to be used for code generation
             ClassTreeNode root = null;
             try {
-                // attempt to analyze the abstract syntax tree
-                root = checker.analyze(AST);
+                // attempt to analyze the abstract syntax tree, with the checker
+                // of the last check made to use the new error handler
+                synchronized (ToolbarController.this) {
+                    if (checker == null) {
+                        checker = new SemanticAnalyzer(errorHandler);
+                        checker.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+                        checker.setIncremental(true);
+                    }
+                    checker.setErrorHandler(errorHandler);
+                    root = checker.analyze(this.program);
+                }
 
                 // if checking phase generated no errors, display a success message
                 Platform.runLater(()->ToolbarController.this.console.writeToConsole(
@@ -247,7 +291,7 @@ public class ToolbarController {
                     // display num errors in the console
                     ToolbarController.this.console.writeToConsole("There were: " +
                             errorHandler.getErrorList().size() + " errors in " +
-                            ToolbarController.this.codeTabPane.getFileName() + "\n", "Output");
+                            this.name + "\n", "Output");
 
                     // display each individual error in the console
                     if (errorHandler.errorsFound()) {
@@ -271,40 +315,120 @@ public class ToolbarController {
      */
     private class ParseTask implements Callable{
 
+        private final Snapshot snapshot;
+
+        /**
+         * @param snapshot the source to parse
+         */
+        ParseTask(Snapshot snapshot){
+            this.snapshot = snapshot;
+        }
+
         /**
-         * Create a Parser and use it to create an AST
+         * Parse the snapshot incrementally, as an edit of the last parse.
+         * If it has syntax errors, create a Parser and use it to create an
+         * AST.  The parser recovers from syntax errors, so all of them are
+         * reported at once, and the classes parsed without errors are still
+         * returned for checking.
          * @return AST tree created by a parser
          */
         @Override
         public Program call(){
+            // the incremental parser and the text of its last parse are shared by all parses
+            synchronized (ToolbarController.this) {
+                Program AST = this.parseIncrementally();
+                if (AST != null) {
+                    Platform.runLater(()->ToolbarController.this.console.writeToConsole(
+                            "Parsing Successful.\n", "Output"));
+                    return AST;
+                }
+            }
+
             ErrorHandler errorHandler = new ErrorHandler();
             Parser parser = new Parser(errorHandler);
-            String filename = ToolbarController.this.codeTabPane.getFileName();
+            parser.setErrorRecovery(true);
+            parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
             Program AST = null;
             try{
-                AST = parser.parse(filename);
-                Platform.runLater(()->ToolbarController.this.console.writeToConsole(
-                        "Parsing Successful.\n", "Output"));
+                AST = parser.parse(this.snapshot.text, this.snapshot.name);
+                if (errorHandler.errorsFound()) {
+                    AST = parser.getErrorFreeProgram();
+                    this.reportErrors(errorHandler);
+                }
+                else {
+                    Platform.runLater(()->ToolbarController.this.console.writeToConsole(
+                            "Parsing Successful.\n", "Output"));
+                }
             }
             catch (CompilationException e){
-                Platform.runLater(()-> {
-                    ToolbarController.this.console.writeToConsole("Parsing Failed\n","Error");
-                    ToolbarController.this.console.writeToConsole("There were: " +
-                            errorHandler.getErrorList().size() + " errors in " +
-                            ToolbarController.this.codeTabPane.getFileName() + "\n", "Output");
+                this.reportErrors(errorHandler);
+            }
+            return AST;
+        }
 
-                    if (errorHandler.errorsFound()) {
-                        List<Error> errorList = errorHandler.getErrorList();
-                        Iterator<Error> errorIterator = errorList.iterator();
-                        ToolbarController.this.console.writeToConsole("\n", "Error");
-                        while (errorIterator.hasNext()) {
-                            ToolbarController.this.console.writeToConsole(errorIterator.next().toString() +
-                                    "\n", "Error");
-                        }
+        /**
+         * Parses the snapshot with the IncrementalParser of the last parse.
+         * If the snapshot is of the same file, only the member or class
+         * enclosing the text changed since the last parse is parsed again,
+         * the change being the span between the common prefix and the
+         * common suffix of the two texts.  The parser keeps its AST to edit
+         * it in place on the next parse, so a copy of it is returned.
+         * @return a copy of the AST, or null if the source has syntax errors or is too
+         *         deep to parse here, and must be parsed with error recovery
+         */
+        private Program parseIncrementally(){
+            String text = this.snapshot.text;
+            String name = this.snapshot.name;
+            try {
+                if (incrementalParser == null || !name.equals(parsedName)) {
+                    incrementalParser = new IncrementalParser(new ErrorHandler());
+                    incrementalParser.parse(text, name);
+                }
+                else if (!text.equals(parsedText)) {
+                    int prefix = 0;
+                    int shorter = Math.min(text.length(), parsedText.length());
+                    while (prefix < shorter && text.charAt(prefix) == parsedText.charAt(prefix)) {
+                        prefix++;
                     }
-                });
+                    int suffix = 0;
+                    while (suffix < shorter - prefix && text.charAt(text.length() - suffix - 1)
+                            == parsedText.charAt(parsedText.length() - suffix - 1)) {
+                        suffix++;
+                    }
+                    incrementalParser.reparse(text, prefix, parsedText.length() - prefix - suffix,
+                            text.length() - prefix - suffix);
+                }
+                parsedText = text;
+                parsedName = name;
+                return (Program) FlatAST.encode(incrementalParser.getProgram()).decode();
             }
-            return AST;
+            catch (CompilationException | StackOverflowError e) {
+                incrementalParser = null;
+                return null;
+            }
+        }
+
+        /**
+         * Print the errors found while parsing to the console
+         * @param errorHandler the handler holding the errors
+         */
+        private void reportErrors(ErrorHandler errorHandler){
+            Platform.runLater(()-> {
+                ToolbarController.this.console.writeToConsole("Parsing Failed\n","Error");
+                ToolbarController.this.console.writeToConsole("There were: " +
+                        errorHandler.getErrorList().size() + " errors in " +
+                        this.snapshot.name + "\n", "Output");
+
+                if (errorHandler.errorsFound()) {
+                    List<Error> errorList = errorHandler.getErrorList();
+                    Iterator<Error> errorIterator = errorList.iterator();
+                    ToolbarController.this.console.writeToConsole("\n", "Error");
+                    while (errorIterator.hasNext()) {
+                        ToolbarController.this.console.writeToConsole(errorIterator.next().toString() +
+                                "\n", "Error");
+                    }
+                }
+            });
         }
     }
 
@@ -313,6 +437,16 @@ public class ToolbarController {
      * Print error messages to the console and write tokens in a new tab
      */
     private class ScanTask implements Callable {
+
+        private final Snapshot snapshot;
+
+        /**
+         * @param snapshot the source to scan
+         */
+        ScanTask(Snapshot snapshot){
+            this.snapshot = snapshot;
+        }
+
         /**
          * Start the process by creating a scanner and use it to scan the file
          * @return a result string containing information about all the tokens
@@ -320,7 +454,7 @@ public class ToolbarController {
         @Override
         public String call(){
             ErrorHandler errorHandler = new ErrorHandler();
-            Scanner scanner = new Scanner(ToolbarController.this.codeTabPane.getFileName(), errorHandler);
+            Scanner scanner = new Scanner(this.snapshot.text, this.snapshot.name, errorHandler);
             Token token = scanner.scan();
             StringBuilder tokenString = new StringBuilder();
 
@@ -332,7 +466,7 @@ public class ToolbarController {
             Platform.runLater(()-> {
                 ToolbarController.this.console.writeToConsole("There were: " +
                         errorHandler.getErrorList().size() + " errors in " +
-                        ToolbarController.this.codeTabPane.getFileName() + "\n","Output");
+                        this.snapshot.name + "\n","Output");
                 if(errorHandler.errorsFound()){
                     List<Error> errorList= errorHandler.getErrorList();
                     Iterator<Error> errorIterator = errorList.iterator();
@@ -352,10 +486,11 @@ public class ToolbarController {
 
     /**
      *  print the output of the hasMain method in the console pane in a readable format.
+     *  @param program the AST to visit
      */
-    private void handleCheckMain(){
+    private void handleCheckMain(Program program){
         MainMainVisitor mainMainVisitor = new MainMainVisitor();
-        boolean hasMain = mainMainVisitor.hasMain(AST);
+        boolean hasMain = mainMainVisitor.hasMain(program);
         String msg = "a Main class with a main method in it that has void return type and has no parameters.\n";
         if(hasMain) {
             Platform.runLater(() -> this.console.writeToConsole("\nThe program contains " + msg,
@@ -368,10 +503,11 @@ public class ToolbarController {
 
     /**
      *  print the output of the getStringConstants method in the console pane in a readable format.
+     *  @param program the AST to visit
      */
-    private void handleCheckString(){
+    private void handleCheckString(Program program){
         StringConstantsVisitor stringConstantsVisitor = new StringConstantsVisitor();
-        Map<String,String> stringMap = stringConstantsVisitor.getStringConstants(AST);
+        Map<String,String> stringMap = stringConstantsVisitor.getStringConstants(program);
         Platform.runLater(() -> this.console.writeToConsole("\nString Constants:\n",
                 "Output"));
         // loop through key, value pairs of map for current
@@ -384,10 +520,11 @@ public class ToolbarController {
 
     /**
      *  print the output of the getNumLocalVars method in the console pane in a readable format.
+     *  @param program the AST to visit
      */
-    private void handleCheckNumLocal(){
+    private void handleCheckNumLocal(Program program){
         NumLocalVarsVisitor numLocalVarsVisitor = new NumLocalVarsVisitor();
-        Map<String,Integer> numVarsMap = numLocalVarsVisitor.getNumLocalVars(AST);
+        Map<String,Integer> numVarsMap = numLocalVarsVisitor.getNumLocalVars(program);
         Platform.runLater(() -> this.console.writeToConsole("\nNumber of Local Variables:\n",
                 "Output"));
         // loop through key, value pairs of map for current
@@ -400,26 +537,28 @@ public class ToolbarController {
     }
 
     /**
-     * scan and parse the selected CodeArea, pass the AST generated by the parser to
+     * scan and parse a snapshot of the selected CodeArea, pass the AST generated by the parser to
      * one of the three public methods in the three new visitor classes
      * @param method indicating which method to call
      */
     public void handleChecks(String method){
+        Snapshot snapshot = this.takeSnapshot();
         this.parseIsDone = false;
-        new Thread (()->{
-            ParseTask parseTask = new ParseTask();
+        // the check visitors recurse as deep as the AST
+        new Thread (null, ()->{
+            ParseTask parseTask = new ParseTask(snapshot);
             FutureTask<Program> curFutureTask = new FutureTask<Program>(parseTask);
             ExecutorService curExecutor = Executors.newFixedThreadPool(1);
             curExecutor.execute(curFutureTask);
             try{
-                AST = curFutureTask.get();
-                if(AST != null){
+                Program program = curFutureTask.get();
+                if(program != null){
                     switch (method){
-                        case "checkMain": handleCheckMain();
+                        case "checkMain": handleCheckMain(program);
                             break;
-                        case "checkString": handleCheckString();
+                        case "checkString": handleCheckString(program);
                             break;
-                        case "checkNumLoc": handleCheckNumLocal();
+                        case "checkNumLoc": handleCheckNumLocal(program);
                             break;
                         default: break;
                     }
@@ -428,6 +567,21 @@ public class ToolbarController {
             }catch(InterruptedException| ExecutionException e){
                 Platform.runLater(()-> this.console.writeToConsole("Parsing failed \n", "Error"));
             }
-        }).start();
+        }, "Bantam checks", DeepStack.DEFAULT_STACK_SIZE).start();
+    }
+
+    /**
+     * The text of a CodeArea and the name of its file, as they were when a
+     * compilation was started.  Each task keeps its own, so a later
+     * compilation or a tab switch cannot change what it works on.
+     */
+    private static class Snapshot {
+        private final String text;
+        private final String name;
+
+        Snapshot(String text, String name){
+            this.text = text;
+            this.name = name;
+        }
     }
-}
\ No newline at end of file
+}
@@ -257,6 +257,14 @@ public abstract class ASTNode {
      */
     protected int lineNum;
 
+    /**
+     * The offset in the source of the first char of this node and of the char
+     * following its last char, or -1 if the parser did not record them.
+     * They are recorded for Class_ and Member nodes.
+     */
+    protected int startOffset = -1;
+    protected int endOffset = -1;
+
     /**
      * ASTNode constructor
      *
@@ -275,6 +283,50 @@ public abstract class ASTNode {
         return lineNum;
     }
 
+    /**
+     * Get the offset in the source of the first char of this node
+     *
+     * @return start offset, or -1 if not recorded
+     */
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * Get the offset in the source of the char following this node
+     *
+     * @return end offset, or -1 if not recorded
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Set the range of the source corresponding to this AST node
+     *
+     * @param startOffset offset of the first char of this node
+     * @param endOffset   offset of the char following the last char of this node
+     */
+    public void setSourceRange(int startOffset, int endOffset) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Move this AST node (but not its children) in the source, after an
+     * edit earlier in the source
+     *
+     * @param lineDelta   the number of lines added before this node
+     * @param offsetDelta the number of chars added before this node
+     */
+    public void shiftPosition(int lineDelta, int offsetDelta) {
+        lineNum += lineDelta;
+        if (startOffset >= 0) {
+            startOffset += offsetDelta;
+            endOffset += offsetDelta;
+        }
+    }
+
     /**
      * Visitor method
      *
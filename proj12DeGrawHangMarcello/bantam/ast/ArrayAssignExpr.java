@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -72,8 +73,8 @@ public class ArrayAssignExpr extends Expr {
      */
     public ArrayAssignExpr(int lineNum, String refName, String name, Expr index, Expr expr) {
         super(lineNum);
-        this.refName = refName;
-        this.name = name;
+        this.refName = Names.intern(refName);
+        this.name = Names.intern(name);
         this.index = index;
         this.expr = expr;
     }
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -66,7 +67,7 @@ public class ArrayExpr extends Expr {
     public ArrayExpr(int lineNum, Expr ref, String name, Expr index) {
         super(lineNum);
         this.ref = ref;
-        this.name = name;
+        this.name = Names.intern(name);
         this.index = index;
     }
 
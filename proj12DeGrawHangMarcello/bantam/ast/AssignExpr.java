@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -65,8 +66,8 @@ public class AssignExpr extends Expr {
      */
     public AssignExpr(int lineNum, String refName, String name, Expr expr) {
         super(lineNum);
-        this.refName = refName;
-        this.name = name;
+        this.refName = Names.intern(refName);
+        this.name = Names.intern(name);
         this.expr = expr;
     }
 
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 /**
@@ -62,7 +63,7 @@ public class CastExpr extends Expr {
      */
     public CastExpr(int lineNum, String type, Expr expr) {
         super(lineNum);
-        this.type = type;
+        this.type = Names.intern(type);
         this.expr = expr;
     }
 
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 /**
@@ -70,8 +71,8 @@ public class Class_ extends ASTNode {
     public Class_(int lineNum, String filename, String name, String parent, MemberList memberList) {
         super(lineNum);
         this.filename = filename;
-        this.name = name;
-        this.parent = parent;
+        this.name = Names.intern(name);
+        this.parent = Names.intern(parent);
         this.memberList = memberList;
     }
 
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -64,7 +65,7 @@ public class DeclStmt extends Stmt {
     public DeclStmt(int lineNum, String name, Expr init) {
         super(lineNum);
         this.type = null;
-        this.name = name;
+        this.name = Names.intern(name);
         this.init = init;
     }
 
@@ -77,7 +78,7 @@ public class DeclStmt extends Stmt {
 
 
     public void setType(String type) {
-        this.type = type;
+        this.type = Names.intern(type);
     }
 
     /**
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 /**
@@ -65,7 +66,7 @@ public class DispatchExpr extends Expr {
                         String methodName, ExprList actualList) {
         super(lineNum);
         this.refExpr = refExpr;
-        this.methodName = methodName;
+        this.methodName = Names.intern(methodName);
         this.actualList = actualList;
     }
 
@@ -0,0 +1,62 @@
+/* Bantam Java Compiler and Language Toolset.
+
+   Copyright (C) 2009 by Marc Corliss (corliss@hws.edu) and 
+                         David Furcy (furcyd@uwosh.edu) and
+                         E Christopher Lewis (lewis@vmware.com).
+   ALL RIGHTS RESERVED.
+
+   The Bantam Java toolset is distributed under the following 
+   conditions:
+
+     You may make copies of the toolset for your own use and 
+     modify those copies.
+
+     All copies of the toolset must retain the author names and 
+     copyright notice.
+
+     You may not sell the toolset or distribute it in 
+     conjunction with a commerical product or service without 
+     the expressed written consent of the authors.
+
+   THIS SOFTWARE IS PROVIDED ``AS IS'' AND WITHOUT ANY EXPRESS 
+   OR IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE 
+   IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A 
+   PARTICULAR PURPOSE. 
+*/
+
+package proj12DeGrawHangMarcello.bantam.ast;
+
+import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
+
+
+/**
+ * The <tt>ErrorStmt</tt> class represents a statement that could not
+ * be parsed.  The parser puts it in place of the statement when it
+ * recovers from a syntax error, so the rest of the block is kept.
+ * It has no additional subcomponents besides those inherited
+ * from <tt>Stmt</tt>.
+ *
+ * @see ASTNode
+ * @see Stmt
+ */
+public class ErrorStmt extends Stmt {
+    /**
+     * ErrorStmt constructor
+     *
+     * @param lineNum source line number corresponding to this AST node
+     */
+    public ErrorStmt(int lineNum) {
+        super(lineNum);
+    }
+
+    /**
+     * Visitor method
+     *
+     * @param v bantam.visitor object
+     * @return result of visiting this node
+     * @see proj12DeGrawHangMarcello.bantam.visitor.Visitor
+     */
+    public Object accept(Visitor v) {
+        return v.visit(this);
+    }
+}
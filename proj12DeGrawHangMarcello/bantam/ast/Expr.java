@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -78,10 +79,10 @@ public abstract class Expr extends ASTNode {
     /**
      * Set the type of the expression
      *
-     * @param exprType the type of the expression
+     * @param exprType the type of the expression, kept as its canonical name
      */
     public void setExprType(String exprType) {
-        this.exprType = exprType;
+        this.exprType = Names.intern(exprType);
     }
 
     /**
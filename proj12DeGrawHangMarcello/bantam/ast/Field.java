@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -62,8 +63,8 @@ public class Field extends Member {
      */
     public Field(int lineNum, String type, String name, Expr init) {
         super(lineNum);
-        this.type = type;
-        this.name = name;
+        this.type = Names.intern(type);
+        this.name = Names.intern(name);
         this.init = init;
     }
 
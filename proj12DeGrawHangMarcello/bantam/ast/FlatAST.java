@@ -0,0 +1,817 @@
+/*
+ * File: FlatAST.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.ast;
+
+import proj12DeGrawHangMarcello.bantam.parser.Parser;
+import proj12DeGrawHangMarcello.bantam.util.CompilationException;
+import proj12DeGrawHangMarcello.bantam.util.DeepStack;
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+import proj12DeGrawHangMarcello.bantam.util.Names;
+import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A compact encoding of an AST as a table of ints in a single ByteBuffer,
+ * for programs too large to be kept as one object per node.
+ * Each node is a record of a few ints addressed by its index in the table:
+ * a first word holding its kind, a flag and its line number, followed by
+ * the ids of its strings, the id of its type for an expression, its source
+ * range for a class or a member, and the indexes of its children (-1 for a
+ * null string or child).  The flag is the isPostfix of the increment and
+ * decrement expressions, the upCast of casts and the upCheck of instanceofs.
+ * A list node holds the number of its elements followed by their indexes.
+ * The records are in preorder, so the nodes of a subtree are contiguous
+ * and a node's children come after it.  Each distinct string (identifier,
+ * type or constant) is stored once, UTF-8 encoded, in a table following
+ * the nodes, and is only decoded when it is asked for.
+ * The nodes are read through the accessors below or a Cursor; accept()
+ * rebuilds the nodes of a subtree as ASTNode objects and passes them to a
+ * Visitor, one class at a time with acceptClasses().
+ * A FlatAST holds what the parser produces and the annotations set by the
+ * semantic analyzer, so a decoded AST is the same as the encoded one.
+ * A FlatAST can be written to a file and mapped back into memory, where it
+ * is used as is.
+ * Usage: java FlatAST file [encodedFile]
+ */
+public class FlatAST
+{
+    /**
+     * The kinds of nodes, each with the number of strings and children it
+     * holds, in the order they are stored.  The expressions come last.
+     */
+    public enum Kind {
+        PROGRAM(0, 1),              // classList
+        CLASS_LIST(0, -1),
+        CLASS(3, 1),                // filename, name, parent; memberList
+        MEMBER_LIST(0, -1),
+        FIELD(2, 1),                // type, name; init
+        METHOD(2, 2),               // returnType, name; formalList, stmtList
+        FORMAL_LIST(0, -1),
+        FORMAL(2, 0),               // type, name
+        STMT_LIST(0, -1),
+        DECL_STMT(1, 1),            // name; init
+        EXPR_STMT(0, 1),            // expr
+        IF_STMT(0, 3),              // predExpr, thenStmt, elseStmt
+        WHILE_STMT(0, 2),           // predExpr, bodyStmt
+        FOR_STMT(0, 4),             // initExpr, predExpr, updateExpr, bodyStmt
+        BREAK_STMT(0, 0),
+        BLOCK_STMT(0, 1),           // stmtList
+        RETURN_STMT(0, 1),          // expr
+        ERROR_STMT(0, 0),
+        EXPR_LIST(0, -1),
+        DISPATCH_EXPR(1, 2),        // methodName; refExpr, actualList
+        NEW_EXPR(1, 0),             // type
+        NEW_ARRAY_EXPR(1, 1),       // type; size
+        INSTANCEOF_EXPR(1, 1),      // type; expr
+        CAST_EXPR(1, 1),            // type; expr
+        ASSIGN_EXPR(2, 1),          // refName, name; expr
+        ARRAY_ASSIGN_EXPR(2, 2),    // refName, name; index, expr
+        BINARY_ARITH_PLUS_EXPR(0, 2),   // leftExpr, rightExpr for all the binary expressions
+        BINARY_ARITH_MINUS_EXPR(0, 2),
+        BINARY_ARITH_TIMES_EXPR(0, 2),
+        BINARY_ARITH_DIVIDE_EXPR(0, 2),
+        BINARY_ARITH_MODULUS_EXPR(0, 2),
+        BINARY_COMP_EQ_EXPR(0, 2),
+        BINARY_COMP_NE_EXPR(0, 2),
+        BINARY_COMP_LT_EXPR(0, 2),
+        BINARY_COMP_LEQ_EXPR(0, 2),
+        BINARY_COMP_GT_EXPR(0, 2),
+        BINARY_COMP_GEQ_EXPR(0, 2),
+        BINARY_LOGIC_AND_EXPR(0, 2),
+        BINARY_LOGIC_OR_EXPR(0, 2),
+        UNARY_NEG_EXPR(0, 1),       // expr for all the unary expressions
+        UNARY_NOT_EXPR(0, 1),
+        UNARY_INCR_EXPR(0, 1),
+        UNARY_DECR_EXPR(0, 1),
+        VAR_EXPR(1, 1),             // name; ref
+        ARRAY_EXPR(1, 2),           // name; ref, index
+        CONST_INT_EXPR(1, 0),       // constant
+        CONST_BOOLEAN_EXPR(1, 0),   // constant
+        CONST_STRING_EXPR(1, 0);    // constant
+
+        private final int strings;
+        private final int children; // -1 for a list node
+
+        Kind(int strings, int children) {
+            this.strings = strings;
+            this.children = children;
+        }
+
+        /**
+         * @return the number of strings held by a node of this kind
+         */
+        public int getStringCount() {
+            return strings;
+        }
+
+        /**
+         * @return true for the kinds of list nodes
+         */
+        public boolean isList() {
+            return children < 0;
+        }
+
+        /**
+         * @return true for the kinds of expressions
+         */
+        public boolean isExpr() {
+            return compareTo(DISPATCH_EXPR) >= 0;
+        }
+
+        /**
+         * @return true for the kinds of nodes having a source range
+         */
+        public boolean hasSourceRange() {
+            return this == CLASS || this == FIELD || this == METHOD;
+        }
+
+        /**
+         * @return the number of words between the first one and the children
+         */
+        private int attributes() {
+            return strings + (isExpr() ? 1 : 0) + (hasSourceRange() ? 2 : 0);
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    // the first word of a record: kind, then flag, then line
+    static final int KIND_BITS = 8;
+    static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    static final int FLAG = 1 << KIND_BITS;
+    static final int LINE_SHIFT = KIND_BITS + 1;
+    /** the largest line number that can be stored */
+    public static final int MAX_LINE = (1 << (32 - LINE_SHIFT)) - 1;
+
+    // the header of the buffer: magic number, version, root, node words, strings
+    private static final int MAGIC = 0x42415354; // "BAST"
+    /** the version of the encoding, changed whenever the layout of the buffer changes */
+    public static final int VERSION = 2;
+    private static final int HEADER_WORDS = 5;
+
+    private final ByteBuffer buffer;     // the header, the nodes and the strings
+    private final IntBuffer nodes;       // the node records
+    private final int root;
+    private final int stringCount;
+    private final IntBuffer stringStarts; // offset of each string in stringBytes, and the end
+    private final ByteBuffer stringBytes;
+    private final String[] strings;      // the strings decoded so far
+
+    /**
+     * Encodes an AST.  The nodes are laid out in a direct buffer, outside the
+     * Java heap, and the AST can be dropped once encoded.
+     * @param root the root of the AST, normally a Program
+     * @return the encoded AST
+     */
+    public static FlatAST encode(ASTNode root) {
+        return new FlatASTBuilder().build(root);
+    }
+
+    /**
+     * Wraps a buffer holding an encoded AST, such as the contents of a file
+     * written by write().  The buffer is used as is, not copied.
+     * @param buffer the buffer, positioned at the header
+     * @return the encoded AST
+     * @throws CompilationException if the buffer does not hold an encoded AST
+     */
+    public static FlatAST wrap(ByteBuffer buffer) {
+        return new FlatAST(buffer);
+    }
+
+    /**
+     * Wraps a buffer holding an encoded AST, as built by FlatASTBuilder or
+     * read from a file
+     * @param buffer the buffer, positioned at the header
+     * @throws CompilationException if the buffer does not hold an encoded AST
+     */
+    FlatAST(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+        if (this.buffer.remaining() < HEADER_WORDS * 4
+                || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+            throw new CompilationException("Not an encoded AST of this version");
+        }
+        this.root = this.buffer.getInt(8);
+        int nodeWords = this.buffer.getInt(12);
+        this.stringCount = this.buffer.getInt(16);
+        long stringsStart = (HEADER_WORDS + (long) nodeWords + stringCount + 1) * 4;
+        if (nodeWords < 0 || stringCount < 0 || stringsStart > this.buffer.capacity()) {
+            throw new CompilationException("Truncated encoded AST");
+        }
+        this.nodes = slice(HEADER_WORDS * 4, nodeWords * 4).asIntBuffer();
+        this.stringStarts = slice((HEADER_WORDS + nodeWords) * 4, (stringCount + 1) * 4).asIntBuffer();
+        int stringLength = stringCount == 0 ? 0 : this.stringStarts.get(stringCount);
+        if (stringLength < 0 || stringsStart + stringLength > this.buffer.capacity()) {
+            throw new CompilationException("Truncated encoded AST");
+        }
+        this.stringBytes = slice((int) stringsStart, stringLength);
+        this.strings = new String[stringCount];
+    }
+
+    /**
+     * lays out an encoded AST in a new direct buffer
+     */
+    static ByteBuffer layout(int root, int[] nodeWords, int nodeCount, byte[][] stringBytes) {
+        int stringLength = 0;
+        for (byte[] bytes : stringBytes) {
+            stringLength += bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(
+                (HEADER_WORDS + nodeCount + stringBytes.length + 1) * 4 + stringLength);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(root).putInt(nodeCount).putInt(stringBytes.length);
+        buffer.asIntBuffer().put(nodeWords, 0, nodeCount);
+        buffer.position(buffer.position() + nodeCount * 4);
+        int start = 0;
+        for (byte[] bytes : stringBytes) {
+            buffer.putInt(start);
+            start += bytes.length;
+        }
+        buffer.putInt(start);
+        for (byte[] bytes : stringBytes) {
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer slice(int start, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start).limit(start + length);
+        return slice.slice();
+    }
+
+    /**
+     * Writes the encoded AST to a file, which can be mapped back with map()
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer contents = buffer.duplicate();
+            contents.clear();
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        }
+    }
+
+    /**
+     * Maps a file written by write() into memory.  Nothing is read up front:
+     * the nodes and strings are read from the mapping when they are accessed.
+     * @param path the file to map
+     * @return the encoded AST
+     * @throws IOException if the file cannot be read
+     * @throws CompilationException if the file does not hold an encoded AST
+     */
+    public static FlatAST map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new FlatAST(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return a read-only view of the bytes of the encoded AST, as written by write()
+     */
+    public ByteBuffer asByteBuffer() {
+        ByteBuffer contents = buffer.asReadOnlyBuffer();
+        contents.clear();
+        return contents;
+    }
+
+    /**
+     * @return the number of bytes taken by the encoded AST
+     */
+    public int getByteSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return the index of the root node
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the kind of the node
+     */
+    public Kind getKind(int node) {
+        return KINDS[nodes.get(node) & KIND_MASK];
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the source line number of the node
+     */
+    public int getLineNum(int node) {
+        return nodes.get(node) >>> LINE_SHIFT;
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the isPostfix of an increment or decrement, the upCast of a
+     *         cast, the upCheck of an instanceof, false for other nodes
+     */
+    public boolean getFlag(int node) {
+        return (nodes.get(node) & FLAG) != 0;
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the type of an expression set by the semantic analyzer, or null
+     */
+    public String getExprType(int node) {
+        Kind kind = getKind(node);
+        return kind.isExpr() ? getString(nodes.get(node + 1 + kind.strings)) : null;
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the offset of the first char of a class or member, or -1
+     */
+    public int getStartOffset(int node) {
+        Kind kind = getKind(node);
+        return kind.hasSourceRange() ? nodes.get(node + 1 + kind.strings) : -1;
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the offset of the char following a class or member, or -1
+     */
+    public int getEndOffset(int node) {
+        Kind kind = getKind(node);
+        return kind.hasSourceRange() ? nodes.get(node + 2 + kind.strings) : -1;
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the number of children of the node, including null ones, or
+     *         the number of elements of a list node
+     */
+    public int getChildCount(int node) {
+        Kind kind = getKind(node);
+        return kind.isList() ? nodes.get(node + 1) : kind.children;
+    }
+
+    /**
+     * @param node  the index of a node
+     * @param index the position of the child, in the order of Kind
+     * @return the index of the child, or -1 if it is null
+     */
+    public int getChild(int node, int index) {
+        Kind kind = getKind(node);
+        if (index < 0 || index >= getChildCount(node)) {
+            throw new IndexOutOfBoundsException(index + " for a node of kind " + kind);
+        }
+        return kind.isList() ? nodes.get(node + 2 + index) : nodes.get(node + 1 + kind.attributes() + index);
+    }
+
+    /**
+     * @param node  the index of a node
+     * @param index the position of the string, in the order of Kind
+     * @return the string, or null
+     */
+    public String getString(int node, int index) {
+        Kind kind = getKind(node);
+        if (index < 0 || index >= kind.strings) {
+            throw new IndexOutOfBoundsException(index + " for a node of kind " + kind);
+        }
+        return getString(nodes.get(node + 1 + index));
+    }
+
+    /**
+     * @param id the id of a string of the string table, or -1
+     * @return the string, decoded the first time it is asked for, or null
+     */
+    private String getString(int id) {
+        if (id < 0) {
+            return null;
+        }
+        String string = strings[id];
+        if (string == null) {
+            int start = stringStarts.get(id);
+            byte[] bytes = new byte[stringStarts.get(id + 1) - start];
+            stringBytes.duplicate().position(start).get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    /**
+     * Compares this AST with another one, such as the encodings of a class
+     * before and after an edit, wherever they are in their sources
+     * @param other an encoded AST
+     * @return true if the ASTs have the same nodes, with the same strings and
+     *         flags, at the same distances in lines and chars from their
+     *         roots; the types set by the semantic analyzer are ignored
+     */
+    public boolean sameSource(FlatAST other) {
+        int lineDelta = other.getLineNum(other.root) - getLineNum(root);
+        int offsetDelta = other.getStartOffset(other.root) - getStartOffset(root);
+        int[] pending = new int[64]; // pairs of nodes still to compare
+        int count = 0;
+        pending[count++] = root;
+        pending[count++] = other.root;
+        while (count > 0) {
+            int otherNode = pending[--count];
+            int node = pending[--count];
+            if (node < 0 || otherNode < 0) {
+                if (node != otherNode) {
+                    return false;
+                }
+                continue;
+            }
+            Kind kind = getKind(node);
+            int children = getChildCount(node);
+            if (kind != other.getKind(otherNode) || getFlag(node) != other.getFlag(otherNode)
+                    || getLineNum(node) + lineDelta != other.getLineNum(otherNode)
+                    || kind.hasSourceRange() && (getStartOffset(node) + offsetDelta != other.getStartOffset(otherNode)
+                            || getEndOffset(node) + offsetDelta != other.getEndOffset(otherNode))
+                    || children != other.getChildCount(otherNode)) {
+                return false;
+            }
+            for (int i = 0; i < kind.strings; i++) {
+                String string = getString(node, i);
+                String otherString = other.getString(otherNode, i);
+                if (string == null ? otherString != null : !string.equals(otherString)) {
+                    return false;
+                }
+            }
+            if (count + 2 * children > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(2 * pending.length, count + 2 * children));
+            }
+            for (int i = 0; i < children; i++) {
+                pending[count++] = getChild(node, i);
+                pending[count++] = other.getChild(otherNode, i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a cursor positioned at the root
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A position in the tree which can move to the children and back up to
+     * the parents of the nodes it visits
+     */
+    public class Cursor
+    {
+        private int[] path = new int[16]; // the nodes from the root to the current one
+        private int depth = 0;            // the index of the current node in path
+
+        private Cursor() {
+            path[0] = root;
+        }
+
+        /**
+         * @return the index of the current node
+         */
+        public int getNode() {
+            return path[depth];
+        }
+
+        /**
+         * @return the number of moves from the root to the current node
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public Kind getKind() {
+            return FlatAST.this.getKind(path[depth]);
+        }
+
+        public int getLineNum() {
+            return FlatAST.this.getLineNum(path[depth]);
+        }
+
+        public int getChildCount() {
+            return FlatAST.this.getChildCount(path[depth]);
+        }
+
+        public String getString(int index) {
+            return FlatAST.this.getString(path[depth], index);
+        }
+
+        /**
+         * moves to a child of the current node
+         * @param index the position of the child
+         * @return false, without moving, if the child is null
+         */
+        public boolean toChild(int index) {
+            int child = getChild(path[depth], index);
+            if (child < 0) {
+                return false;
+            }
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth] = child;
+            return true;
+        }
+
+        /**
+         * moves to the parent of the current node
+         * @return false, without moving, at the root
+         */
+        public boolean toParent() {
+            if (depth == 0) {
+                return false;
+            }
+            depth--;
+            return true;
+        }
+    }
+
+    /**
+     * Rebuilds the whole AST as ASTNode objects
+     * @return the root of the AST
+     */
+    public ASTNode decode() {
+        return decode(root);
+    }
+
+    /**
+     * Rebuilds the subtree of a node as ASTNode objects
+     * @param node the index of the root of the subtree
+     * @return the root of the subtree
+     */
+    public ASTNode decode(int node) {
+        return new Decoder(node).decode();
+    }
+
+    /**
+     * Rebuilds the nodes of a subtree.  The records of the subtree are
+     * copied to an array, then the nodes are built from the last to the
+     * first, so children are built before their parent without recursion.
+     * Identifiers and types are given their canonical names from Names.
+     */
+    private class Decoder
+    {
+        private final int base;         // the index of the root of the subtree
+        private int[] records = new int[64]; // the index of each record of the subtree
+        private int count = 0;
+        private final int[] words;      // the records of the subtree, from base
+        private final ASTNode[] built;  // the node built for each record, by index - base
+
+        /**
+         * finds the records of the subtree: the subtree ends when all the
+         * children of the nodes met so far have been met
+         */
+        Decoder(int node) {
+            base = node;
+            int end = node;
+            for (int pending = 1; pending > 0; pending--) {
+                if (count == records.length) {
+                    records = Arrays.copyOf(records, count * 2);
+                }
+                records[count++] = end;
+                Kind kind = KINDS[nodes.get(end) & KIND_MASK];
+                int first = kind.isList() ? end + 2 : end + 1 + kind.attributes();
+                int children = kind.isList() ? nodes.get(end + 1) : kind.children;
+                for (int i = 0; i < children; i++) {
+                    if (nodes.get(first + i) >= 0) {
+                        pending++;
+                    }
+                }
+                end = first + children;
+            }
+            words = new int[end - node];
+            nodes.get(node, words);
+            built = new ASTNode[words.length];
+        }
+
+        ASTNode decode() {
+            for (int i = count - 1; i >= 0; i--) {
+                built[records[i] - base] = annotate(records[i], build(records[i]));
+            }
+            return built[0];
+        }
+
+        /**
+         * sets the source range and the annotations of a node built from a record
+         */
+        private ASTNode annotate(int node, ASTNode built) {
+            int start = node - base;
+            Kind kind = KINDS[words[start] & KIND_MASK];
+            if (kind.hasSourceRange()) {
+                built.setSourceRange(words[start + 1 + kind.strings], words[start + 2 + kind.strings]);
+            }
+            else if (kind.isExpr()) {
+                ((Expr) built).setExprType(getString(words[start + 1 + kind.strings]));
+                if (kind == Kind.CAST_EXPR) {
+                    ((CastExpr) built).setUpCast((words[start] & FLAG) != 0);
+                }
+                else if (kind == Kind.INSTANCEOF_EXPR) {
+                    ((InstanceofExpr) built).setUpCheck((words[start] & FLAG) != 0);
+                }
+            }
+            return built;
+        }
+
+        /**
+         * builds the object of one node whose children are already built
+         */
+        private ASTNode build(int node) {
+            int word = words[node - base];
+            int line = word >>> LINE_SHIFT;
+            Kind kind = KINDS[word & KIND_MASK];
+            if (kind.isList()) {
+                ListNode list;
+                switch (kind) {
+                    case CLASS_LIST:
+                        list = new ClassList(line);
+                        break;
+                    case MEMBER_LIST:
+                        list = new MemberList(line);
+                        break;
+                    case FORMAL_LIST:
+                        list = new FormalList(line);
+                        break;
+                    case STMT_LIST:
+                        list = new StmtList(line);
+                        break;
+                    default:
+                        list = new ExprList(line);
+                }
+                for (int i = 0; i < words[node - base + 1]; i++) {
+                    list.addElement(child(node, i));
+                }
+                list.trimToSize();
+                return list;
+            }
+            switch (kind) {
+                case PROGRAM:
+                    return new Program(line, (ClassList) child(node, 0));
+                case CLASS:
+                    return new Class_(line, string(node, 0), name(node, 1), name(node, 2),
+                            (MemberList) child(node, 0));
+                case FIELD:
+                    return new Field(line, name(node, 0), name(node, 1), expr(node, 0));
+                case METHOD:
+                    return new Method(line, name(node, 0), name(node, 1),
+                            (FormalList) child(node, 0), (StmtList) child(node, 1));
+                case FORMAL:
+                    return new Formal(line, name(node, 0), name(node, 1));
+                case DECL_STMT:
+                    return new DeclStmt(line, name(node, 0), expr(node, 0));
+                case EXPR_STMT:
+                    return new ExprStmt(line, expr(node, 0));
+                case IF_STMT:
+                    return new IfStmt(line, expr(node, 0), (Stmt) child(node, 1), (Stmt) child(node, 2));
+                case WHILE_STMT:
+                    return new WhileStmt(line, expr(node, 0), (Stmt) child(node, 1));
+                case FOR_STMT:
+                    return new ForStmt(line, expr(node, 0), expr(node, 1), expr(node, 2), (Stmt) child(node, 3));
+                case BREAK_STMT:
+                    return new BreakStmt(line);
+                case BLOCK_STMT:
+                    return new BlockStmt(line, (StmtList) child(node, 0));
+                case RETURN_STMT:
+                    return new ReturnStmt(line, expr(node, 0));
+                case ERROR_STMT:
+                    return new ErrorStmt(line);
+                case DISPATCH_EXPR:
+                    return new DispatchExpr(line, expr(node, 0), name(node, 0), (ExprList) child(node, 1));
+                case NEW_EXPR:
+                    return new NewExpr(line, name(node, 0));
+                case NEW_ARRAY_EXPR:
+                    return new NewArrayExpr(line, name(node, 0), expr(node, 0));
+                case INSTANCEOF_EXPR:
+                    return new InstanceofExpr(line, expr(node, 0), name(node, 0));
+                case CAST_EXPR:
+                    return new CastExpr(line, name(node, 0), expr(node, 0));
+                case ASSIGN_EXPR:
+                    return new AssignExpr(line, name(node, 0), name(node, 1), expr(node, 0));
+                case ARRAY_ASSIGN_EXPR:
+                    return new ArrayAssignExpr(line, name(node, 0), name(node, 1), expr(node, 0), expr(node, 1));
+                case UNARY_NEG_EXPR:
+                    return new UnaryNegExpr(line, expr(node, 0));
+                case UNARY_NOT_EXPR:
+                    return new UnaryNotExpr(line, expr(node, 0));
+                case UNARY_INCR_EXPR:
+                    return new UnaryIncrExpr(line, expr(node, 0), (word & FLAG) != 0);
+                case UNARY_DECR_EXPR:
+                    return new UnaryDecrExpr(line, expr(node, 0), (word & FLAG) != 0);
+                case VAR_EXPR:
+                    return new VarExpr(line, expr(node, 0), name(node, 0));
+                case ARRAY_EXPR:
+                    return new ArrayExpr(line, expr(node, 0), name(node, 0), expr(node, 1));
+                case CONST_INT_EXPR:
+                    return new ConstIntExpr(line, string(node, 0));
+                case CONST_BOOLEAN_EXPR:
+                    return new ConstBooleanExpr(line, name(node, 0));
+                case CONST_STRING_EXPR:
+                    return new ConstStringExpr(line, string(node, 0));
+                default:
+                    return buildBinary(kind, line, expr(node, 0), expr(node, 1));
+            }
+        }
+
+        private Expr buildBinary(Kind kind, int line, Expr left, Expr right) {
+            switch (kind) {
+                case BINARY_ARITH_PLUS_EXPR:
+                    return new BinaryArithPlusExpr(line, left, right);
+                case BINARY_ARITH_MINUS_EXPR:
+                    return new BinaryArithMinusExpr(line, left, right);
+                case BINARY_ARITH_TIMES_EXPR:
+                    return new BinaryArithTimesExpr(line, left, right);
+                case BINARY_ARITH_DIVIDE_EXPR:
+                    return new BinaryArithDivideExpr(line, left, right);
+                case BINARY_ARITH_MODULUS_EXPR:
+                    return new BinaryArithModulusExpr(line, left, right);
+                case BINARY_COMP_EQ_EXPR:
+                    return new BinaryCompEqExpr(line, left, right);
+                case BINARY_COMP_NE_EXPR:
+                    return new BinaryCompNeExpr(line, left, right);
+                case BINARY_COMP_LT_EXPR:
+                    return new BinaryCompLtExpr(line, left, right);
+                case BINARY_COMP_LEQ_EXPR:
+                    return new BinaryCompLeqExpr(line, left, right);
+                case BINARY_COMP_GT_EXPR:
+                    return new BinaryCompGtExpr(line, left, right);
+                case BINARY_COMP_GEQ_EXPR:
+                    return new BinaryCompGeqExpr(line, left, right);
+                case BINARY_LOGIC_AND_EXPR:
+                    return new BinaryLogicAndExpr(line, left, right);
+                default:
+                    return new BinaryLogicOrExpr(line, left, right);
+            }
+        }
+
+        private ASTNode child(int node, int index) {
+            int start = node - base;
+            Kind kind = KINDS[words[start] & KIND_MASK];
+            int child = words[start + (kind.isList() ? 2 : 1 + kind.attributes()) + index];
+            return child < 0 ? null : built[child - base];
+        }
+
+        private Expr expr(int node, int index) {
+            return (Expr) child(node, index);
+        }
+
+        private String string(int node, int index) {
+            return getString(words[node - base + 1 + index]);
+        }
+
+        private String name(int node, int index) {
+            return Names.intern(string(node, index));
+        }
+    }
+
+    /**
+     * Passes the subtree of a node to a visitor, as ASTNode objects
+     * @param node the index of the root of the subtree
+     * @param v the visitor
+     * @return the result of the visit
+     */
+    public Object accept(int node, Visitor v) {
+        return decode(node).accept(v);
+    }
+
+    /**
+     * Passes each class of the program to a visitor, as ASTNode objects
+     * built for that class alone, so the objects of a single class are in
+     * memory at a time
+     * @param v the visitor
+     */
+    public void acceptClasses(Visitor v) {
+        int classList = getKind(root) == Kind.PROGRAM ? getChild(root, 0) : root;
+        for (int i = 0; i < getChildCount(classList); i++) {
+            accept(getChild(classList, i), v);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Please Provide a Test File");
+            return;
+        }
+        Parser parser = new Parser(new ErrorHandler());
+        parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+        FlatAST ast = encode(parser.parse(args[0]));
+        System.out.println(args[0] + ": " + ast.getByteSize() + " bytes encoded");
+        if (args.length > 1) {
+            ast.write(Path.of(args[1]));
+            ast = map(Path.of(args[1]));
+            System.out.println(args[1] + ": " + ast.getByteSize() + " bytes mapped");
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * File: FlatASTBuilder.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.ast;
+
+import proj12DeGrawHangMarcello.bantam.ast.FlatAST.Kind;
+import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes an AST as a FlatAST.  Each node visited appends its record and
+ * pushes its children on an explicit stack, with the position of the word
+ * of the record to be set to the index of the child; the visit methods do
+ * not visit the children themselves, so an AST of any depth can be encoded.
+ */
+class FlatASTBuilder extends Visitor
+{
+    private int[] words = new int[1024];
+    private int wordCount = 0;
+    private int root = -1;
+
+    // the nodes still to be encoded and the words to be set to their index
+    private ASTNode[] pendingNodes = new ASTNode[64];
+    private int[] pendingSlots = new int[64];
+    private int pendingCount = 0;
+    private int slot; // the word to be set to the index of the node being visited
+
+    // the id of each string, and the strings encoded in the order of their ids
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<byte[]> stringBytes = new ArrayList<>();
+
+    /**
+     * @param root the root of the AST
+     * @return the encoded AST
+     */
+    FlatAST build(ASTNode root) {
+        push(root, -1);
+        while (pendingCount > 0) {
+            pendingCount--;
+            ASTNode node = pendingNodes[pendingCount];
+            pendingNodes[pendingCount] = null;
+            slot = pendingSlots[pendingCount];
+            node.accept(this);
+        }
+        return new FlatAST(FlatAST.layout(this.root, words, wordCount,
+                stringBytes.toArray(new byte[stringBytes.size()][])));
+    }
+
+    private void push(ASTNode node, int slot) {
+        if (pendingCount == pendingNodes.length) {
+            pendingNodes = Arrays.copyOf(pendingNodes, pendingCount * 2);
+            pendingSlots = Arrays.copyOf(pendingSlots, pendingCount * 2);
+        }
+        pendingNodes[pendingCount] = node;
+        pendingSlots[pendingCount] = slot;
+        pendingCount++;
+    }
+
+    private void append(int word) {
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, wordCount * 2);
+        }
+        words[wordCount++] = word;
+    }
+
+    /**
+     * appends the first word of the record of the node being visited and
+     * links the record to its parent
+     */
+    private void appendHeader(Kind kind, ASTNode node, int flags) {
+        int line = node.getLineNum();
+        if (line < 0 || line > FlatAST.MAX_LINE) {
+            throw new IllegalArgumentException("Line " + line + " cannot be encoded");
+        }
+        if (slot < 0) {
+            root = wordCount;
+        }
+        else {
+            words[slot] = wordCount;
+        }
+        append(kind.ordinal() | flags | line << FlatAST.LINE_SHIFT);
+    }
+
+    private int intern(String string) {
+        if (string == null) {
+            return -1;
+        }
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = stringBytes.size();
+            stringIds.put(string, id);
+            stringBytes.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * appends the record of a node other than a list: its strings, then
+     * the words for its children, which are pushed to be encoded next
+     */
+    private Object record(Kind kind, ASTNode node, int flags, String[] strings, ASTNode... children) {
+        appendHeader(kind, node, flags);
+        for (String string : strings) {
+            append(intern(string));
+        }
+        if (kind.isExpr()) {
+            append(intern(((Expr) node).getExprType()));
+        }
+        else if (kind.hasSourceRange()) {
+            append(node.getStartOffset());
+            append(node.getEndOffset());
+        }
+        int first = wordCount;
+        for (ASTNode child : children) {
+            append(-1);
+        }
+        // pushed last to first so the children are encoded in order
+        for (int i = children.length - 1; i >= 0; i--) {
+            if (children[i] != null) {
+                push(children[i], first + i);
+            }
+        }
+        return null;
+    }
+
+    private Object record(Kind kind, ASTNode node, ASTNode... children) {
+        return record(kind, node, 0, new String[0], children);
+    }
+
+    private Object record(Kind kind, ListNode node) {
+        appendHeader(kind, node, 0);
+        append(node.getSize());
+        int first = wordCount;
+        for (int i = 0; i < node.getSize(); i++) {
+            append(-1);
+        }
+        for (int i = node.getSize() - 1; i >= 0; i--) {
+            push(node.get(i), first + i);
+        }
+        return null;
+    }
+
+    private static String[] strings(String... strings) {
+        return strings;
+    }
+
+    public Object visit(Program node) {
+        return record(Kind.PROGRAM, node, node.getClassList());
+    }
+
+    public Object visit(ClassList node) {
+        return record(Kind.CLASS_LIST, node);
+    }
+
+    public Object visit(Class_ node) {
+        return record(Kind.CLASS, node, 0, strings(node.getFilename(), node.getName(), node.getParent()),
+                node.getMemberList());
+    }
+
+    public Object visit(MemberList node) {
+        return record(Kind.MEMBER_LIST, node);
+    }
+
+    public Object visit(Field node) {
+        return record(Kind.FIELD, node, 0, strings(node.getType(), node.getName()), node.getInit());
+    }
+
+    public Object visit(Method node) {
+        return record(Kind.METHOD, node, 0, strings(node.getReturnType(), node.getName()),
+                node.getFormalList(), node.getStmtList());
+    }
+
+    public Object visit(FormalList node) {
+        return record(Kind.FORMAL_LIST, node);
+    }
+
+    public Object visit(Formal node) {
+        return record(Kind.FORMAL, node, 0, strings(node.getType(), node.getName()));
+    }
+
+    public Object visit(StmtList node) {
+        return record(Kind.STMT_LIST, node);
+    }
+
+    public Object visit(DeclStmt node) {
+        return record(Kind.DECL_STMT, node, 0, strings(node.getName()), node.getInit());
+    }
+
+    public Object visit(ExprStmt node) {
+        return record(Kind.EXPR_STMT, node, node.getExpr());
+    }
+
+    public Object visit(IfStmt node) {
+        return record(Kind.IF_STMT, node, node.getPredExpr(), node.getThenStmt(), node.getElseStmt());
+    }
+
+    public Object visit(WhileStmt node) {
+        return record(Kind.WHILE_STMT, node, node.getPredExpr(), node.getBodyStmt());
+    }
+
+    public Object visit(ForStmt node) {
+        return record(Kind.FOR_STMT, node, node.getInitExpr(), node.getPredExpr(), node.getUpdateExpr(),
+                node.getBodyStmt());
+    }
+
+    public Object visit(BreakStmt node) {
+        return record(Kind.BREAK_STMT, node);
+    }
+
+    public Object visit(ErrorStmt node) {
+        return record(Kind.ERROR_STMT, node);
+    }
+
+    public Object visit(BlockStmt node) {
+        return record(Kind.BLOCK_STMT, node, node.getStmtList());
+    }
+
+    public Object visit(ReturnStmt node) {
+        return record(Kind.RETURN_STMT, node, node.getExpr());
+    }
+
+    public Object visit(ExprList node) {
+        return record(Kind.EXPR_LIST, node);
+    }
+
+    public Object visit(DispatchExpr node) {
+        return record(Kind.DISPATCH_EXPR, node, 0, strings(node.getMethodName()),
+                node.getRefExpr(), node.getActualList());
+    }
+
+    public Object visit(NewExpr node) {
+        return record(Kind.NEW_EXPR, node, 0, strings(node.getType()));
+    }
+
+    public Object visit(NewArrayExpr node) {
+        return record(Kind.NEW_ARRAY_EXPR, node, 0, strings(node.getType()), node.getSize());
+    }
+
+    public Object visit(InstanceofExpr node) {
+        return record(Kind.INSTANCEOF_EXPR, node, node.getUpCheck() ? FlatAST.FLAG : 0,
+                strings(node.getType()), node.getExpr());
+    }
+
+    public Object visit(CastExpr node) {
+        return record(Kind.CAST_EXPR, node, node.getUpCast() ? FlatAST.FLAG : 0,
+                strings(node.getType()), node.getExpr());
+    }
+
+    public Object visit(AssignExpr node) {
+        return record(Kind.ASSIGN_EXPR, node, 0, strings(node.getRefName(), node.getName()), node.getExpr());
+    }
+
+    public Object visit(ArrayAssignExpr node) {
+        return record(Kind.ARRAY_ASSIGN_EXPR, node, 0, strings(node.getRefName(), node.getName()),
+                node.getIndex(), node.getExpr());
+    }
+
+    public Object visit(BinaryCompEqExpr node) {
+        return record(Kind.BINARY_COMP_EQ_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryCompNeExpr node) {
+        return record(Kind.BINARY_COMP_NE_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryCompLtExpr node) {
+        return record(Kind.BINARY_COMP_LT_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryCompLeqExpr node) {
+        return record(Kind.BINARY_COMP_LEQ_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryCompGtExpr node) {
+        return record(Kind.BINARY_COMP_GT_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryCompGeqExpr node) {
+        return record(Kind.BINARY_COMP_GEQ_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryArithPlusExpr node) {
+        return record(Kind.BINARY_ARITH_PLUS_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryArithMinusExpr node) {
+        return record(Kind.BINARY_ARITH_MINUS_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryArithTimesExpr node) {
+        return record(Kind.BINARY_ARITH_TIMES_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryArithDivideExpr node) {
+        return record(Kind.BINARY_ARITH_DIVIDE_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryArithModulusExpr node) {
+        return record(Kind.BINARY_ARITH_MODULUS_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryLogicAndExpr node) {
+        return record(Kind.BINARY_LOGIC_AND_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(BinaryLogicOrExpr node) {
+        return record(Kind.BINARY_LOGIC_OR_EXPR, node, node.getLeftExpr(), node.getRightExpr());
+    }
+
+    public Object visit(UnaryNegExpr node) {
+        return record(Kind.UNARY_NEG_EXPR, node, node.getExpr());
+    }
+
+    public Object visit(UnaryNotExpr node) {
+        return record(Kind.UNARY_NOT_EXPR, node, node.getExpr());
+    }
+
+    public Object visit(UnaryIncrExpr node) {
+        return record(Kind.UNARY_INCR_EXPR, node, node.isPostfix() ? FlatAST.FLAG : 0,
+                new String[0], node.getExpr());
+    }
+
+    public Object visit(UnaryDecrExpr node) {
+        return record(Kind.UNARY_DECR_EXPR, node, node.isPostfix() ? FlatAST.FLAG : 0,
+                new String[0], node.getExpr());
+    }
+
+    public Object visit(VarExpr node) {
+        return record(Kind.VAR_EXPR, node, 0, strings(node.getName()), node.getRef());
+    }
+
+    public Object visit(ArrayExpr node) {
+        return record(Kind.ARRAY_EXPR, node, 0, strings(node.getName()), node.getRef(), node.getIndex());
+    }
+
+    public Object visit(ConstIntExpr node) {
+        return record(Kind.CONST_INT_EXPR, node, 0, strings(node.getConstant()));
+    }
+
+    public Object visit(ConstBooleanExpr node) {
+        return record(Kind.CONST_BOOLEAN_EXPR, node, 0, strings(node.getConstant()));
+    }
+
+    public Object visit(ConstStringExpr node) {
+        return record(Kind.CONST_STRING_EXPR, node, 0, strings(node.getConstant()));
+    }
+}
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -55,8 +56,8 @@ public class Formal extends ASTNode {
      */
     public Formal(int lineNum, String type, String name) {
         super(lineNum);
-        this.type = type;
-        this.name = name;
+        this.type = Names.intern(type);
+        this.name = Names.intern(name);
     }
 
     /**
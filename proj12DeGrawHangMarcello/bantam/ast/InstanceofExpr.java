@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 /**
@@ -64,7 +65,7 @@ public class InstanceofExpr extends Expr {
     public InstanceofExpr(int lineNum, Expr expr, String type) {
         super(lineNum);
         this.expr = expr;
-        this.type = type;
+        this.type = Names.intern(type);
     }
 
     /**
@@ -34,22 +34,37 @@ package proj12DeGrawHangMarcello.bantam.ast;
 
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.NoSuchElementException;
 
 /**
  * The abstract <tt>ListNode</tt> class represents a generic list of AST
  * nodes.  It contains a line number (<tt>lineNum</tt>) and a list
  * (<tt>listElements</tt>).
+ * The elements are kept in a plain array, with no synchronization; the
+ * array grows while the list is built and can then be trimmed to the exact
+ * number of elements with <tt>trimToSize()</tt>, which the parser does for
+ * every list it completes.  Empty lists share a single empty array.
  *
  * @see ASTNode
  */
 public abstract class ListNode extends ASTNode
     implements Iterable<ASTNode> {
     /**
-     * List of ASTNode elements
+     * the array shared by all the empty lists
      */
-    private Vector<ASTNode> listElements;
+    private static final ASTNode[] EMPTY = new ASTNode[0];
+
+    /**
+     * List of ASTNode elements; only the first <tt>size</tt> are used
+     */
+    private ASTNode[] listElements;
+
+    /**
+     * the number of elements in the list
+     */
+    private int size;
 
     /**
      * ListNode constructor
@@ -58,7 +73,7 @@ public abstract class ListNode extends ASTNode
      */
     protected ListNode(int lineNum) {
         super(lineNum);
-        listElements = new Vector<ASTNode>();
+        listElements = EMPTY;
     }
 
     /**
@@ -68,17 +83,54 @@ public abstract class ListNode extends ASTNode
      * @return the updated list
      */
     public ListNode addElement(ASTNode node) {
-        listElements.add(node);
+        if (size == listElements.length) {
+            listElements = Arrays.copyOf(listElements, Math.max(4, size * 2));
+        }
+        listElements[size++] = node;
         return this;
     }
 
+    /**
+     * Shrinks the storage of this list node to its number of elements.
+     * Elements can still be added afterwards.
+     */
+    public void trimToSize() {
+        if (size < listElements.length) {
+            listElements = size == 0 ? EMPTY : Arrays.copyOf(listElements, size);
+        }
+    }
+
+    /**
+     * Replace the index-th element of this list node
+     *
+     * @param index index of the element to replace
+     * @param node  the new element
+     */
+    public void set(int index, ASTNode node) {
+        checkIndex(index);
+        listElements[index] = node;
+    }
+
     /**
      * Returns an iterator for this list
      *
      * @return iterator for this list
      */
     public Iterator<ASTNode> iterator() {
-        return listElements.iterator();
+        return new Iterator<ASTNode>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public ASTNode next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return listElements[next++];
+            }
+        };
     }
 
     /**
@@ -87,7 +139,7 @@ public abstract class ListNode extends ASTNode
      * @return list size
      */
     public int getSize() {
-        return listElements.size();
+        return size;
     }
 
     /**
@@ -98,7 +150,18 @@ public abstract class ListNode extends ASTNode
      *         too large or too small
      */
     public ASTNode get(int index) {
-        return listElements.get(index);
+        checkIndex(index);
+        return listElements[index];
+    }
+
+    /**
+     * @throws java.lang.ArrayIndexOutOfBoundsException if the index is
+     *         not the index of an element
+     */
+    private void checkIndex(int index) {
+        if (index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + size);
+        }
     }
 
     /**
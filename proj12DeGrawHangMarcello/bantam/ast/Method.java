@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 /**
@@ -70,8 +71,8 @@ public class Method extends Member {
     public Method(int lineNum, String returnType, String name,
                   FormalList formalList, StmtList stmtList) {
         super(lineNum);
-        this.returnType = returnType;
-        this.name = name;
+        this.returnType = Names.intern(returnType);
+        this.name = Names.intern(name);
         this.formalList = formalList;
         this.stmtList = stmtList;
     }
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -57,7 +58,7 @@ public class NewArrayExpr extends Expr {
      */
     public NewArrayExpr(int lineNum, String type, Expr size) {
         super(lineNum);
-        this.type = type;
+        this.type = Names.intern(type);
         this.size = size;
     }
 
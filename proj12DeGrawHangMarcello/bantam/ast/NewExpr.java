@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -51,7 +52,7 @@ public class NewExpr extends Expr {
      */
     public NewExpr(int lineNum, String type) {
         super(lineNum);
-        this.type = type;
+        this.type = Names.intern(type);
     }
 
     /**
@@ -26,6 +26,7 @@
 
 package proj12DeGrawHangMarcello.bantam.ast;
 
+import proj12DeGrawHangMarcello.bantam.util.Names;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 
@@ -63,7 +64,7 @@ public class VarExpr extends Expr {
     public VarExpr(int lineNum, Expr ref, String name) {
         super(lineNum);
         this.ref = ref;
-        this.name = name;
+        this.name = Names.intern(name);
     }
 
     /**
@@ -7,22 +7,114 @@
 package proj12DeGrawHangMarcello.bantam.lexer;
 
 import java.io.Reader;
-import java.util.List;
-import java.util.Arrays;
-import java.util.Map;
 import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
 import proj12DeGrawHangMarcello.bantam.util.Error;
 import proj12DeGrawHangMarcello.bantam.util.CompilationException;
 
 
+/**
+ * Breaks a Bantam Java source into tokens.
+ * The scanner works directly on the character array of its SourceFile: each
+ * character is mapped to a character class through a precomputed table, the
+ * class selects the kind of token to read, and operators are recognized by a
+ * transition table indexed by their first and second characters.
+ */
 public class Scanner
 {
+    // character classes
+    private static final byte ILLEGAL = 0;
+    private static final byte SPACE = 1;
+    private static final byte NEWLINE = 2;
+    private static final byte LETTER = 3;
+    private static final byte DIGIT = 4;
+    private static final byte UNDERSCORE = 5;
+    private static final byte QUOTE = 6;
+    private static final byte OPERATOR = 7;
+    private static final byte END = 8;
+
+    // the characters that can begin an operator or punctuation token
+    private static final String OPERATOR_CHARS = "+-/*=%<>!&|[]{}().;:,";
+
+    // character class of every ASCII character
+    private static final byte[] charClass = new byte[128];
+
+    // index into OPERATOR_CHARS of every ASCII character, -1 if it is not an operator char
+    private static final byte[] operatorIndex = new byte[128];
+
+    // kind of the token made of one operator char (null if it is not a token by itself)
+    private static final Token.Kind[] singleOperatorKinds = new Token.Kind[OPERATOR_CHARS.length()];
+
+    // kind of the token made of two operator chars, indexed by the first and second char
+    private static final Token.Kind[][] doubleOperatorKinds =
+            new Token.Kind[OPERATOR_CHARS.length()][OPERATOR_CHARS.length()];
+
+    static {
+        java.util.Arrays.fill(operatorIndex, (byte) -1);
+        for (char c = 0; c < 128; c++) {
+            if (c == ' ' || c == '\t') charClass[c] = SPACE;
+            else if (c == '\n' || c == '\r') charClass[c] = NEWLINE;
+            else if (c == '_') charClass[c] = UNDERSCORE;
+            else if (c == '"') charClass[c] = QUOTE;
+            else if (c == SourceFile.eof) charClass[c] = END;
+            else if (Character.isLetter(c)) charClass[c] = LETTER;
+            else if (Character.isDigit(c)) charClass[c] = DIGIT;
+            else if (OPERATOR_CHARS.indexOf(c) >= 0) {
+                charClass[c] = OPERATOR;
+                operatorIndex[c] = (byte) OPERATOR_CHARS.indexOf(c);
+            }
+        }
+
+        single('+', Token.Kind.PLUSMINUS);
+        single('-', Token.Kind.PLUSMINUS);
+        single('/', Token.Kind.MULDIV);
+        single('*', Token.Kind.MULDIV);
+        single('%', Token.Kind.MULDIV);
+        single('=', Token.Kind.ASSIGN);
+        single('<', Token.Kind.COMPARE);
+        single('>', Token.Kind.COMPARE);
+        single('!', Token.Kind.UNARYNOT);
+        single('[', Token.Kind.LBRACKET);
+        single(']', Token.Kind.RBRACKET);
+        single('{', Token.Kind.LCURLY);
+        single('}', Token.Kind.RCURLY);
+        single('(', Token.Kind.LPAREN);
+        single(')', Token.Kind.RPAREN);
+        single('.', Token.Kind.DOT);
+        single(';', Token.Kind.SEMICOLON);
+        single(':', Token.Kind.COLON);
+        single(',', Token.Kind.COMMA);
+
+        pair("==", Token.Kind.COMPARE);
+        pair("!=", Token.Kind.COMPARE);
+        pair("<=", Token.Kind.COMPARE);
+        pair(">=", Token.Kind.COMPARE);
+        pair("++", Token.Kind.UNARYINCR);
+        pair("--", Token.Kind.UNARYDECR);
+        pair("&&", Token.Kind.BINARYLOGIC);
+        pair("||", Token.Kind.BINARYLOGIC);
+    }
+
+    private static void single(char c, Token.Kind kind) {
+        singleOperatorKinds[operatorIndex[c]] = kind;
+    }
+
+    private static void pair(String chars, Token.Kind kind) {
+        doubleOperatorKinds[operatorIndex[chars.charAt(0)]][operatorIndex[chars.charAt(1)]] = kind;
+    }
+
     private SourceFile sourceFile;
     private ErrorHandler errorHandler;
-    private char currentChar;
-    private char prevChar;
-    private Map<Character,Token.Kind> singleOperatorMap;
-    private Map<String,Token.Kind> doubleOperatorMap;
+    private char[] buffer;  // the characters of the source file
+    private int limit;      // the number of characters in buffer
+    private int pos;        // index of the next character to be scanned
+    private int lineEnds;   // the number of line ends in buffer before pos
+    private boolean skipComments; // if true, comments are passed over instead of returned
+
+    // the token most recently found by scanToken()
+    private Token.Kind tokenKind;
+    private int tokenStart;
+    private int tokenLength;
+    private int tokenLine;
 
     /**
      * constructor for the scanner when fed into an errorhandler
@@ -30,10 +122,7 @@ public class Scanner
      */
     public Scanner(ErrorHandler handler) {
         errorHandler = handler;
-        currentChar = ' ';
-        prevChar = ' ';
         sourceFile = null;
-        this.createOperatorMaps();
     }
 
     /**
@@ -43,10 +132,19 @@ public class Scanner
      */
     public Scanner(String filename, ErrorHandler handler) {
         errorHandler = handler;
-        currentChar = ' ';
-        prevChar = ' ';
-        sourceFile = new SourceFile(filename);
-        this.createOperatorMaps();
+        this.setSourceFile(new SourceFile(filename));
+    }
+
+    /**
+     * constructor for the scanner when fed the text to scan, such as the
+     * contents of an editor buffer, instead of a file
+     * @param contents the text to be scanned
+     * @param filename the name of the source, used in error messages
+     * @param handler the error handler to be fed in
+     */
+    public Scanner(CharSequence contents, String filename, ErrorHandler handler) {
+        errorHandler = handler;
+        this.setSourceFile(new SourceFile(contents, filename));
     }
 
     /**
@@ -56,11 +154,7 @@ public class Scanner
      */
     public Scanner(Reader reader, ErrorHandler handler) {
         errorHandler = handler;
-        sourceFile = new SourceFile(reader);
-        currentChar = ' ';
-        prevChar = ' ';
-        this.createOperatorMaps();
-
+        this.setSourceFile(new SourceFile(reader));
     }
 
     /**
@@ -68,6 +162,19 @@ public class Scanner
      */
     private void setSourceFile(SourceFile sourceFile){
         this.sourceFile = sourceFile;
+        this.buffer = sourceFile.getBuffer();
+        this.limit = sourceFile.getLength();
+        this.pos = 0;
+        this.lineEnds = 0;
+    }
+
+    /**
+     * Sets whether scan() passes over comments rather than returning COMMENT tokens.
+     * Skipped comments are never turned into Tokens or Strings.
+     * @param skipComments true if comments should be skipped
+     */
+    public void setSkipComments(boolean skipComments) {
+        this.skipComments = skipComments;
     }
 
     /**
@@ -75,117 +182,222 @@ public class Scanner
      * @return the first complete token object
      */
     public Token scan() {
-        updateChars();
-        //read through whitespace until reach valid token character
-        while(Character.isSpaceChar(prevChar)||prevChar == '\n'||prevChar == '\r'|| prevChar == '\t'){
-            updateChars();
-        }
-        int lineNumber = sourceFile.getCurrentLineNumber();
-        String lastTwoChars = Character.toString(prevChar)+Character.toString(currentChar);
-        //fixes bug where line number gets incremented too early on WindowsOS
-        if(currentChar == '\r' || currentChar == '\n'){
-            lineNumber--;
+        while(!scanToken()){
+            //skipped a comment
         }
+        return new Token(tokenKind,buffer,tokenStart,tokenLength,tokenLine);
+    }
 
-        if(prevChar=='/'&&(currentChar=='/'||currentChar=='*')){
-            return readComment();
-        }
-        else if(doubleOperatorMap.containsKey(lastTwoChars)){
-            updateChars();
-            return new Token(doubleOperatorMap.get(lastTwoChars), lastTwoChars, lineNumber);
-        }
-        else if(singleOperatorMap.containsKey(prevChar)){
-            return new Token(singleOperatorMap.get(prevChar),Character.toString(prevChar),lineNumber);
-        }
-        else if(Character.isDigit(prevChar)){
-            return readIntConst();
-        }
-        else if(prevChar == '"'){
-            return readString();
+    /**
+     * scan the whole file into a TokenStream, without creating a Token object
+     * for each token.  The stream ends with the EOF token.
+     * @return the tokens of the file
+     */
+    public TokenStream tokenize() {
+        TokenStream tokens = new TokenStream(buffer, (limit - pos) / 4);
+        do {
+            while(!scanToken()){
+                //skipped a comment
+            }
+            tokens.add(tokenKind,tokenStart,tokenLength,tokenLine);
+        } while(tokenKind != Token.Kind.EOF);
+        return tokens;
+    }
+
+    /**
+     * scan part of the file into a TokenStream: the tokens starting before
+     * end, then the token following them and, if that is not the EOF token,
+     * an EOF token.  Line numbers are counted from the start of the file.
+     * @param start offset of the first char to scan, which must not be inside
+     *              a token or comment and not before the chars already scanned
+     * @param end offset up to which tokens are wanted
+     * @return the tokens of that part of the file
+     */
+    public TokenStream tokenize(int start, int end) {
+        advanceTo(start);
+        TokenStream tokens = new TokenStream(buffer, (end - start) / 4);
+        do {
+            while(!scanToken()){
+                //skipped a comment
+            }
+            tokens.add(tokenKind,tokenStart,tokenLength,tokenLine);
+        } while(tokenKind != Token.Kind.EOF && tokenStart < end);
+        if(tokenKind != Token.Kind.EOF) {
+            tokens.add(Token.Kind.EOF,tokenStart + tokenLength,0,tokenLine);
         }
-        else if(Character.isLetter(prevChar)||prevChar == '_'){
-            return readIdentifier();
+        return tokens;
+    }
+
+    /**
+     * scan the whole file on a new thread, passing the tokens to the caller
+     * through a ring buffer that holds at most capacity tokens.
+     * If the ring is closed, the rest of the file is still scanned, without
+     * publishing tokens, so that the same lexical errors are registered as
+     * with tokenize().  The error handler of this scanner is used by the
+     * scanning thread, so it must not be shared with the caller until the
+     * ring has been joined.
+     * @param capacity the number of tokens the ring buffer can hold
+     * @return the ring buffer the tokens are put into
+     */
+    public TokenRingBuffer tokenizeInBackground(int capacity) {
+        TokenRingBuffer ring = new TokenRingBuffer(buffer, capacity);
+        ring.start(() -> {
+            boolean publishing = true;
+            do {
+                while(!scanToken()){
+                    //skipped a comment
+                }
+                publishing = publishing && ring.put(tokenKind,tokenStart,tokenLength,tokenLine);
+            } while(tokenKind != Token.Kind.EOF);
+        });
+        return ring;
+    }
+
+    /**
+     * scan the next token, leaving its kind, offset, length and line in the
+     * token fields
+     * @return true if a token was found, false if a comment was skipped
+     */
+    private boolean scanToken() {
+        //read through whitespace until reach valid token character
+        int start = pos;
+        byte cls;
+        while(true){
+            //jump over runs of blanks and tabs, such as indentation, without classifying them
+            while(start < limit && (buffer[start] == ' ' || buffer[start] == '\t')){
+                start++;
+            }
+            char c = charAt(start);
+            cls = classOf(c);
+            if(cls == SPACE){
+                start++;
+            }
+            else if(cls == NEWLINE){
+                if(isLineEnd(start)){
+                    lineEnds++;
+                }
+                start++;
+            }
+            else{
+                break;
+            }
         }
-        else if(prevChar == SourceFile.eof){
-            return new Token(Token.Kind.EOF,"",lineNumber);
+        pos = start;
+        int lineNumber = lineEnds + 1;
+
+        switch(cls){
+            case LETTER:
+            case UNDERSCORE:
+                return readIdentifier(start);
+            case DIGIT:
+                return readIntConst(start);
+            case QUOTE:
+                return readString(start);
+            case END:
+                pos = start + 1;
+                return found(Token.Kind.EOF,Math.min(start, limit),0,lineNumber);
+            case OPERATOR:
+                int first = operatorIndex[buffer[start]];
+                char next = charAt(start + 1);
+                if(buffer[start] == '/' && (next == '/' || next == '*')){
+                    return readComment(start);
+                }
+                if(next < 128 && operatorIndex[next] >= 0
+                        && doubleOperatorKinds[first][operatorIndex[next]] != null){
+                    pos = start + 2;
+                    return found(doubleOperatorKinds[first][operatorIndex[next]],start,2,lineNumber);
+                }
+                if(singleOperatorKinds[first] != null){
+                    pos = start + 1;
+                    return found(singleOperatorKinds[first],start,1,lineNumber);
+                }
+                break;
         }
         //If not one of the above characters, is not a legal character in Bantam Java, throw error
+        pos = start + 1;
         errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                 lineNumber,"Illegal Character.");
-        return new Token(Token.Kind.ERROR, Character.toString(prevChar),lineNumber);
+        return found(Token.Kind.ERROR,start,1,lineNumber);
     }
 
     /**
      * Reached a character that could be in an identifier, reads until character that could not be in an identifier
-     * @return Identifier Token
+     * @param start index of the first character of the identifier
+     * @return true, having found an Identifier Token
      */
-    private Token readIdentifier(){
-        StringBuilder result = new StringBuilder().append(prevChar);
-        int lineNumber = sourceFile.getCurrentLineNumber();
+    private boolean readIdentifier(int start){
+        int lineNumber = lookaheadLine(start);
 
         //read while character is valid identifier character
-        while(Character.isLetter(currentChar)||currentChar == '_'||Character.isDigit(currentChar)){
-            result.append(currentChar);
-            updateChars();
+        int end = start + 1;
+        byte cls = classOf(charAt(end));
+        while(cls == LETTER || cls == UNDERSCORE || cls == DIGIT){
+            cls = classOf(charAt(++end));
         }
+        pos = end;
 
-        String resultString = result.toString();
-        if(resultString.startsWith("_")){
+        if(buffer[start] == '_'){
             //Identifiers cannot just be the "_" character in Bantam
             errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                     lineNumber,"Invalid Identifier Name.");
-            return new Token(Token.Kind.ERROR,resultString,lineNumber);
+            return found(Token.Kind.ERROR,start,end - start,lineNumber);
         }
-        return new Token(Token.Kind.IDENTIFIER,resultString,lineNumber);
+        return found(Token.keywordKind(buffer, start, end - start),start,end - start,lineNumber);
     }
 
     /**
      * Reached an integer, reads until reaches character that is not an int and then returns
-     * @return Integer Token
+     * @param start index of the first digit
+     * @return true, having found an Integer Token
      */
-    private Token readIntConst(){
-        StringBuilder result = new StringBuilder().append(prevChar);
-        int lineNumber = sourceFile.getCurrentLineNumber();
-
-        //read while character is a digit
-        while(Character.isDigit(currentChar)){
-            result.append(currentChar);
-            updateChars();
-        }
-        String resultString = result.toString();
+    private boolean readIntConst(int start){
+        int lineNumber = lookaheadLine(start);
+
+        //read while character is a digit, accumulating the value of the first 11 digits
+        long value = 0;
+        int end = start;
+        char c = buffer[start];
+        do {
+            if(end - start < 11){
+                value = value * 10 + Character.digit(c, 10);
+            }
+            c = charAt(++end);
+        } while(classOf(c) == DIGIT);
+        pos = end;
 
         //case where integer is too large
-        if(resultString.length()>11||Long.parseLong(resultString) > Integer.MAX_VALUE){
+        if(end - start > 11 || value > Integer.MAX_VALUE){
             errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                     lineNumber,"Integer Value Too Large");
-            return new Token(Token.Kind.ERROR,resultString,lineNumber);
+            return found(Token.Kind.ERROR,start,end - start,lineNumber);
         }
-        return new Token(Token.Kind.INTCONST,resultString,lineNumber);
+        return found(Token.Kind.INTCONST,start,end - start,lineNumber);
     }
 
     /**
      * Entered a string, now continues scanning until scan reaches closing string character.
-     * @return Token with string inside
+     * @param start index of the opening quote
+     * @return true, having found a Token with string inside
      */
-    private Token readString(){
-        List<Character> legalEscapeChars = Arrays.asList('t','n','"','f');
-        StringBuilder result = new StringBuilder().append('"');
-        int lineNumber = sourceFile.getCurrentLineNumber();
+    private boolean readString(int start){
+        int lineNumber = lookaheadLine(start);
         boolean hasError = false;
         boolean inBackslash = false;
         boolean reachedEOF = true;
+        char prevChar = '"';
+        int i = start + 1;
+        char currentChar;
 
         //read string until reach end of file
-        while(currentChar!= SourceFile.eof){
+        while((currentChar = charAt(i)) != SourceFile.eof){
             if(inBackslash){
                 prevChar = ' ';
                 inBackslash = false;
             }
-            result.append(currentChar);
 
             //string too long
-            if(result.length()>5000){
-                updateChars();
+            if(i - start + 1 > 5000){
+                i++;
                 errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                         lineNumber,"String Literal Too Long");
                 hasError = true;
@@ -197,7 +409,8 @@ public class Scanner
             }
             //handle escape characters
             else if(prevChar == '\\'){
-                if(!legalEscapeChars.contains(currentChar)) {
+                if(currentChar != 't' && currentChar != 'n' && currentChar != '"'
+                        && currentChar != 'f') {
                     errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                             lineNumber, "Illegal escape character in string literal");
                     hasError = true;
@@ -206,20 +419,22 @@ public class Scanner
             }
             //exit string
             else if(currentChar == '"'){
-                updateChars();
+                i++;
                 reachedEOF = false;
                 break;
             }
             //invalid string, new line character appears before end of the string
             else if(currentChar == '\n'){
-                updateChars();
+                i++;
                 errorHandler.register(Error.Kind.LEX_ERROR, sourceFile.getFilename(),
                         lineNumber,"Illegal line end in string literal");
                 hasError = true;
                 break;
             }
-            updateChars();
+            prevChar = currentChar;
+            i++;
         }
+        advanceTo(i);
         //end of file reached before end of string
         if(reachedEOF) {
             errorHandler.register(Error.Kind.LEX_ERROR, sourceFile.getFilename(),
@@ -228,104 +443,159 @@ public class Scanner
         }
         //we read all the way through so that we can report all errors in the string to the errorHandler
         if(hasError) {
-            return new Token(Token.Kind.ERROR, result.toString(), lineNumber);
+            return found(Token.Kind.ERROR,start,i - start,lineNumber);
         }
         else{
-            return new Token(Token.Kind.STRCONST,result.toString(),lineNumber);
+            return found(Token.Kind.STRCONST,start,i - start,lineNumber);
         }
     }
 
     /**
      * Entered comment, now reads all characters into the token until reaches the closing comment characters
-     * @return Full comment token, either block comment or line comment.
+     * @param start index of the opening '/'
+     * @return true, having found a full comment token, either block comment or
+     *         line comment, or false if comments are being skipped.
      */
-    private Token readComment(){
-        boolean inLineComment = false;
-        StringBuilder result = new StringBuilder().append('/');
-        int lineNumber = sourceFile.getCurrentLineNumber();
+    private boolean readComment(int start){
+        int lineNumber = lineEnds + 1;
+        int i = start + 2;
         //first character always '/', now check second character to know what closing characters should be
-        if (currentChar   == '/'){
-            inLineComment = true;
-        }
-
-        result.append(currentChar);
-        updateChars();
-        while(currentChar!=SourceFile.eof){
-            result.append(currentChar);
-
-            if(inLineComment){
-                //closing chracter \n
+        if(buffer[start + 1] == '/'){
+            //inside a line comment only line ends and eof matter, and they are all <= '\r'
+            while(true){
+                while(i < limit && buffer[i] > '\r'){
+                    i++;
+                }
+                if(i >= limit || buffer[i] == SourceFile.eof){
+                    //handles line comment on last line of file, no new line char afterward.
+                    pos = i;
+                    return commentToken(start, i - start, lineNumber);
+                }
+                char currentChar = buffer[i];
                 if(currentChar == '\n'){
-                    updateChars();
-                    String resultString = result.toString().substring(0,result.length()-1);
-                    return new Token(Token.Kind.COMMENT,resultString,lineNumber);
+                    //closing chracter \n
+                    if(buffer[i - 1] != '\r'){
+                        lineEnds++;
+                    }
+                    pos = i + 1;
+                    return commentToken(start, i - start, lineNumber);
                 }
-            }
-            else{
-                //closing character */
-                if(currentChar == '/'&&prevChar=='*'){
-                    updateChars();
-                    return new Token(Token.Kind.COMMENT, result.toString(),lineNumber);
+                if(currentChar == '\r'){
+                    lineEnds++;
                 }
+                i++;
             }
-            updateChars();
         }
-        //handles line comment on last line of file, no new line char afterward.
-        if(inLineComment){
-            return new Token(Token.Kind.COMMENT,result.toString(),lineNumber);
+
+        //inside a block comment only '*', line ends and eof matter, and they are all <= '*'.
+        //the search starts at the opening '*', so "/*/" is a complete comment as always
+        i = start + 1;
+        while(true){
+            while(i < limit && buffer[i] > '*'){
+                i++;
+            }
+            if(i >= limit || buffer[i] == SourceFile.eof){
+                break;
+            }
+            char currentChar = buffer[i];
+            if(currentChar == '*'){
+                //closing characters */
+                if(i + 1 < limit && buffer[i + 1] == '/'){
+                    pos = i + 2;
+                    return commentToken(start, i + 2 - start, lineNumber);
+                }
+            }
+            else if(currentChar == '\r' || (currentChar == '\n' && buffer[i - 1] != '\r')){
+                lineEnds++;
+            }
+            i++;
         }
+        pos = i;
 
         //unclosed comment error
-        errorHandler.register(Error.Kind.LEX_ERROR,result.toString(),
-                sourceFile.getCurrentLineNumber(),"Unclosed Comment");
-        return new Token(Token.Kind.ERROR, result.toString(),lineNumber);
+        errorHandler.register(Error.Kind.LEX_ERROR,new String(buffer, start, i - start),
+                lineEnds + 1,"Unclosed Comment");
+        return found(Token.Kind.ERROR,start,i - start,lineNumber);
     }
 
     /**
-     * Increments prevChar and currentChar
+     * Records the token for a complete comment, unless comments are being skipped
+     * @return true if the comment token was recorded, false if comments are being skipped
      */
-    private void updateChars(){
-        prevChar = currentChar;
-        currentChar = sourceFile.getNextChar();
+    private boolean commentToken(int start, int length, int lineNumber){
+        if(skipComments){
+            return false;
+        }
+        return found(Token.Kind.COMMENT,start,length,lineNumber);
+    }
+
+    /**
+     * Records the token just scanned
+     * @return true
+     */
+    private boolean found(Token.Kind kind, int start, int length, int lineNumber){
+        tokenKind = kind;
+        tokenStart = start;
+        tokenLength = length;
+        tokenLine = lineNumber;
+        return true;
+    }
+
+    /**
+     * Returns the character at the given index, or the eof character past the end
+     */
+    private char charAt(int index){
+        return index < limit ? buffer[index] : SourceFile.eof;
     }
 
     /**
-     * Creates single and double character operator maps to check when scanning
+     * Returns the character class of the given character
      */
-    private void createOperatorMaps(){
-        this.singleOperatorMap = Map.ofEntries(
-                Map.entry('+',Token.Kind.PLUSMINUS),
-                Map.entry('-',Token.Kind.PLUSMINUS),
-                Map.entry('/',Token.Kind.MULDIV),
-                Map.entry('*',Token.Kind.MULDIV),
-                Map.entry('=',Token.Kind.ASSIGN),
-                Map.entry('%',Token.Kind.MULDIV),
-                Map.entry('<',Token.Kind.COMPARE),
-                Map.entry('>',Token.Kind.COMPARE),
-                Map.entry('!',Token.Kind.UNARYNOT),
-                Map.entry('[',Token.Kind.LBRACKET),
-                Map.entry(']',Token.Kind.RBRACKET),
-                Map.entry('{',Token.Kind.LCURLY),
-                Map.entry('}',Token.Kind.RCURLY),
-                Map.entry('(',Token.Kind.LPAREN),
-                Map.entry(')',Token.Kind.RPAREN),
-                Map.entry('.',Token.Kind.DOT),
-                Map.entry(';',Token.Kind.SEMICOLON),
-                Map.entry(':',Token.Kind.COLON),
-                Map.entry(',',Token.Kind.COMMA)
-        );
-
-        this.doubleOperatorMap = Map.ofEntries(
-                Map.entry("==",Token.Kind.COMPARE),
-                Map.entry("!=",Token.Kind.COMPARE),
-                Map.entry("<=",Token.Kind.COMPARE),
-                Map.entry(">=",Token.Kind.COMPARE),
-                Map.entry("++",Token.Kind.UNARYINCR),
-                Map.entry("--",Token.Kind.UNARYDECR),
-                Map.entry("&&",Token.Kind.BINARYLOGIC),
-                Map.entry("||",Token.Kind.BINARYLOGIC)
-        );
+    private static byte classOf(char c){
+        if(c < 128){
+            return charClass[c];
+        }
+        if(Character.isSpaceChar(c)){
+            return SPACE;
+        }
+        if(Character.isLetter(c)){
+            return LETTER;
+        }
+        return Character.isDigit(c) ? DIGIT : ILLEGAL;
     }
+
+    /**
+     * Checks whether the character at the given index ends a line:
+     * a carriage return, or a newline not preceded by a carriage return
+     */
+    private boolean isLineEnd(int index){
+        char c = buffer[index];
+        return c == '\r' || (c == '\n' && (index == 0 || buffer[index - 1] != '\r'));
+    }
+
+    /**
+     * The line number reported for identifiers, integers and strings, which
+     * (as always) counts the character following the first one of the token
+     * @param start index of the first character of the token
+     */
+    private int lookaheadLine(int start){
+        int next = start + 1;
+        return next < limit && isLineEnd(next) ? lineEnds + 2 : lineEnds + 1;
+    }
+
+    /**
+     * Moves the scanner to the given index, counting the line ends passed over
+     */
+    private void advanceTo(int index){
+        int end = Math.min(index, limit);
+        for(int i = pos; i < end; i++){
+            if(isLineEnd(i)){
+                lineEnds++;
+            }
+        }
+        pos = index;
+    }
+
     public static void main(String[] argv){
         if(argv.length == 0){
             System.out.println("Please Provide Test Files");
@@ -19,10 +19,24 @@ package proj12DeGrawHangMarcello.bantam.lexer;
 import proj12DeGrawHangMarcello.bantam.util.CompilationException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * A class for extracting the characters, one at a time, from a text file or an
  * InputStream.
+ * The whole source is loaded into a char array up front (files of at least
+ * MAP_THRESHOLD bytes are memory-mapped and decoded straight from the mapping),
+ * so that getNextChar() is a plain array access and the Scanner can index
+ * the buffer directly.
  */
 class SourceFile
 {
@@ -30,9 +44,14 @@ class SourceFile
     private static final char cr = '\r';  // carriage return character
     static final char eof = '\u0000';     // end of file character
 
-    private Reader sourceReader;   // the reader of the file
+    // files of at least this many bytes are read through a memory mapping
+    private static final long MAP_THRESHOLD = 1 << 20;
+
+    private char[] buffer;         // the characters of the source
+    private int length;            // the number of valid characters in buffer
+    private int position;          // index of the next character to be read
     private int currentLineNumber; // for bantam.error messages
-    private int prevChar;          // the previous character read
+    private int[] lineStarts;      // offsets at which each line begins, built on demand
     private String filename;       // the file currently being scanned.
 
     /**
@@ -43,21 +62,75 @@ class SourceFile
      * @param filename the name of the file to be read.
      */
     SourceFile(String filename) {
+        this.filename = filename;
+        CharBuffer chars;
         try {
-            sourceReader = new FileReader(filename);
-        } catch (FileNotFoundException e) {
+            Path path = Paths.get(filename);
+            if (Files.size(path) >= MAP_THRESHOLD) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    chars = Charset.defaultCharset().decode(
+                            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            }
+            else {
+                chars = Charset.defaultCharset().decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+            }
+        } catch (NoSuchFileException | FileNotFoundException e) {
             throw new CompilationException("File " + filename + " not found.");
+        } catch (IOException | RuntimeException e) {
+            throw new CompilationException("File " + filename + " could not be read.");
         }
-        currentLineNumber = 1;
-        prevChar = -1;
+        setContents(chars);
+    }
+
+
+    /**
+     * creates a new SourceFile object holding a copy of the given text, such
+     * as the contents of an editor buffer, so no file is read
+     *
+     * @param contents the text to be read
+     * @param filename the name used for the source in error messages
+     */
+    SourceFile(CharSequence contents, String filename) {
         this.filename = filename;
+        setContents(CharBuffer.wrap(contents.toString().toCharArray()));
     }
 
 
     SourceFile(Reader in) {
-        sourceReader = in;
+        char[] chars = new char[8192];
+        int count = 0;
+        try {
+            int n;
+            while ((n = in.read(chars, count, chars.length - count)) != -1) {
+                count += n;
+                if (count == chars.length) {
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                }
+            }
+        } catch (IOException e) {
+            throw new CompilationException("File " + filename + " could not be read.");
+        }
+        setContents(CharBuffer.wrap(chars, 0, count));
+    }
+
+    /**
+     * stores the decoded characters as the source buffer and resets the cursor
+     *
+     * @param chars the characters of the source
+     */
+    private void setContents(CharBuffer chars) {
+        if (chars.hasArray() && chars.arrayOffset() == 0 && chars.position() == 0) {
+            buffer = chars.array();
+            length = chars.limit();
+        }
+        else {
+            buffer = new char[chars.remaining()];
+            length = buffer.length;
+            chars.get(buffer);
+        }
+        position = 0;
         currentLineNumber = 1;
-        prevChar = -1;
     }
 
 
@@ -67,31 +140,71 @@ class SourceFile
 
     String getFilename() { return filename; }
 
+    /**
+     * @return the array holding the source; only the first getLength() chars are valid
+     */
+    char[] getBuffer() { return buffer; }
+
+    /**
+     * @return the number of characters in the source
+     */
+    int getLength() { return length; }
+
+    /**
+     * @return the index of the next character getNextChar() will return
+     */
+    int getPosition() { return position; }
+
     /**
      * Finds and returns the next character in the source file.
-     * If the end of the file has been reached or an exception occurs,
-     * then an exception is thrown.
+     * If the end of the file has been reached, then the eof character is returned.
      * If the character is the cr character or the eol char not preceded by the cr
      * character, the current line number is also incremented.
      *
      * @return the next character in the source file
      */
     char getNextChar(){
-        try {
-            int c = sourceReader.read();
+        if (position >= length) {
+            return eof;
+        }
+        char c = buffer[position++];
+        if (c == cr || (c == eol && (position < 2 || buffer[position - 2] != cr))) {
+            currentLineNumber++;
+        }
+        return c;
+    }
 
-            if (c == -1) {
-                c = eof;
-            }
-            else if (c == cr || (c == eol && prevChar != cr)) {
-                currentLineNumber++;
+    /**
+     * Returns the line number of the character at the given offset, counting
+     * line ends the same way getNextChar() does.
+     *
+     * @param offset index of a character in the source
+     * @return the line (starting at 1) containing that character
+     */
+    int getLineNumber(int offset) {
+        if (lineStarts == null) {
+            buildLineStarts();
+        }
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Builds the index of line start offsets used by getLineNumber()
+     */
+    private void buildLineStarts() {
+        int[] starts = new int[64];
+        int count = 1; // line 1 starts at offset 0
+        for (int i = 0; i < length; i++) {
+            char c = buffer[i];
+            if (c == cr || (c == eol && (i == 0 || buffer[i - 1] != cr))) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
             }
-            prevChar = c;
-            return (char) c;
-        } catch (IOException e) {
-            throw new CompilationException("File " + filename + " could not be read.");
         }
+        lineStarts = Arrays.copyOf(starts, count);
     }
 
 }
-
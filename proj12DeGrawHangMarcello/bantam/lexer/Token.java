@@ -15,39 +15,70 @@
 
  package proj12DeGrawHangMarcello.bantam.lexer;
 
- import java.util.Set;
+ import proj12DeGrawHangMarcello.bantam.util.Names;
 
  public class Token
  {
      //instance variables
      public Kind kind;
-     public String spelling; // the actual sequence of chars in the token
      public int position; // the line number where the token was found
-
+     private String spelling; // the actual sequence of chars in the token, made on demand
+     private char[] source; // the source buffer holding the chars of the token
+     private int offset; // index in source of the first char of the token
+     private int length; // the number of chars in the token
+
+     /**
+      * Returns the actual sequence of chars in the token.  Tokens read from
+      * the source only refer to their chars, so the String is created the
+      * first time it is asked for; the spelling of an identifier is its
+      * canonical name from Names.
+      *
+      * @return the spelling of the token
+      */
      public String getSpelling() {
+         if (spelling == null) {
+             spelling = kind == Kind.IDENTIFIER ? Names.intern(source, offset, length)
+                     : new String(source, offset, length);
+         }
          return spelling;
      }
 
+     /**
+      * @return index in the source of the first char of the token
+      */
+     public int getOffset() {
+         return offset;
+     }
+
+     /**
+      * @return the number of chars in the token
+      */
+     public int getLength() {
+         return length;
+     }
+
 
      //constructor
+     //the kind must already be resolved: identifiers that spell a reserved
+     //word or a boolean constant are given their kind by keywordKind()
      Token(Kind kind, String spelling, int position) {
+         this.kind = kind;
          this.spelling = spelling;
          this.position = position;
+         this.length = spelling.length();
+     }
 
-         //patch the kind in the case of boolean constants and keywords
-         if (kind == Kind.IDENTIFIER && (spelling.equals("true") || spelling.equals("false"))) {
-             this.kind = Kind.BOOLEAN;
-         }
-         else if (kind == Kind.IDENTIFIER && reservedWords.contains(spelling)) {
-             this.kind = Enum.valueOf(Kind.class, spelling.toUpperCase());
-         }
-         else {
-             this.kind = kind;
-         }
+     //constructor for a token whose chars are still in the source buffer
+     Token(Kind kind, char[] source, int offset, int length, int position) {
+         this.kind = kind;
+         this.source = source;
+         this.offset = offset;
+         this.length = length;
+         this.position = position;
      }
 
      public String toString() {
-         return "Token: Kind=" + kind.name() + ", spelling=" + spelling + ", " +
+         return "Token: Kind=" + kind.name() + ", spelling=" + getSpelling() + ", " +
                  "position=" + position;
      }
 
@@ -75,8 +106,53 @@
          RETURN, WHILE
      }
 
-     private static Set<String> reservedWords = Set.of("break", "cast", "class", "var",
-             "else", "extends", "for", "if", "instanceof", "new", "return", "while");
+     // the reserved words and boolean constants, stored in a table indexed
+     // by a perfect hash of their length, first and last characters
+     private static final String[] keywordSpellings = new String[32];
+     private static final Kind[] keywordKinds = new Kind[32];
+
+     static {
+         String[] words = {"break", "cast", "class", "var", "else", "extends", "for",
+                 "if", "instanceof", "new", "return", "while", "true", "false"};
+         for (String word : words) {
+             int slot = keywordHash(word.length(), word.charAt(0),
+                     word.charAt(word.length() - 1));
+             keywordSpellings[slot] = word;
+             keywordKinds[slot] = word.equals("true") || word.equals("false")
+                     ? Kind.BOOLEAN : Kind.valueOf(word.toUpperCase());
+         }
+     }
+
+     private static int keywordHash(int length, char first, char last) {
+         return (length + first + 7 * last) & 31;
+     }
+
+     /**
+      * Returns the kind of the identifier spelled by the given characters:
+      * BOOLEAN for true and false, the matching reserved word kind for reserved
+      * words, and IDENTIFIER otherwise.
+      *
+      * @param chars  the array holding the identifier
+      * @param offset index of the first character of the identifier
+      * @param length number of characters in the identifier
+      * @return the kind of the identifier
+      */
+     static Kind keywordKind(char[] chars, int offset, int length) {
+         if (length < 2 || length > 10) {
+             return Kind.IDENTIFIER;
+         }
+         int slot = keywordHash(length, chars[offset], chars[offset + length - 1]);
+         String word = keywordSpellings[slot];
+         if (word == null || word.length() != length) {
+             return Kind.IDENTIFIER;
+         }
+         for (int i = 0; i < length; i++) {
+             if (word.charAt(i) != chars[offset + i]) {
+                 return Kind.IDENTIFIER;
+             }
+         }
+         return keywordKinds[slot];
+     }
 
  }
 
@@ -0,0 +1,196 @@
+/*
+ * File: TokenRingBuffer.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.lexer;
+
+import proj12DeGrawHangMarcello.bantam.util.CompilationException;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded single-producer/single-consumer queue of tokens, used to run the
+ * Scanner and the Parser on separate threads.  Like a TokenStream, each token
+ * is stored as primitive values in parallel arrays; the arrays are used as a
+ * ring whose slots are handed from the scanner thread to the parser thread
+ * through two volatile counters, so no locks are taken.
+ * The scanner waits while the ring is full and the parser waits while it is
+ * empty.  Either side can stop the other: the parser by calling close(), the
+ * scanner by finishing, with or without an exception.
+ * A TokenRingBuffer is produced by Scanner.tokenizeInBackground().
+ */
+public class TokenRingBuffer
+{
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+    // busy waits before parking the thread; spinning is useless on a single core
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+
+    private final char[] source; // the source buffer the offsets refer to
+    private final int mask;      // capacity - 1, the capacity being a power of 2
+    private final int[] kinds;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] lines;
+
+    private volatile long tail;  // the number of tokens put by the scanner
+    private volatile long head;  // the number of slots released by the parser
+    private long taken;          // the number of tokens taken, only used by the parser
+
+    private volatile boolean closed;   // set when the parser no longer wants tokens
+    private volatile boolean finished; // set when the scanner has stopped
+    private volatile RuntimeException failure; // what stopped the scanner, if anything
+    private Thread producer;
+
+    /**
+     * creates an empty ring for tokens of the given source
+     *
+     * @param source   the source buffer holding the chars of the tokens
+     * @param capacity the number of tokens the ring can hold, rounded up to a power of 2
+     */
+    TokenRingBuffer(char[] source, int capacity) {
+        this.source = source;
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        mask = size - 1;
+        kinds = new int[size];
+        offsets = new int[size];
+        lengths = new int[size];
+        lines = new int[size];
+    }
+
+    /**
+     * starts the thread filling the ring
+     */
+    void start(Runnable scanning) {
+        producer = new Thread(() -> {
+            try {
+                scanning.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                finished = true;
+            }
+        }, "Bantam scanner");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * appends a token, waiting while the ring is full.  Called by the scanner thread.
+     *
+     * @return false if the ring was closed, in which case the token is dropped
+     */
+    boolean put(Token.Kind kind, int offset, int length, int line) {
+        long t = tail;
+        int spins = 0;
+        while (t - head > mask) {
+            if (closed) {
+                return false;
+            }
+            spins = pause(spins);
+        }
+        int slot = (int) t & mask;
+        kinds[slot] = kind.ordinal();
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        lines[slot] = line;
+        tail = t + 1;
+        return !closed;
+    }
+
+    /**
+     * Waits for the next token and returns the slot holding it.  The slot stays
+     * valid until the following call to take().  Called by the parser thread.
+     *
+     * @return the index of the slot to pass to the getters
+     * @throws CompilationException if the scanner stopped before the next token
+     */
+    public int take() {
+        head = taken; // release the slot of the previous token
+        int spins = 0;
+        while (tail <= taken) {
+            if (finished && tail <= taken) {
+                RuntimeException e = failure;
+                throw e != null ? e : new CompilationException("Scanner stopped before EOF");
+            }
+            spins = pause(spins);
+        }
+        return (int) taken++ & mask;
+    }
+
+    /**
+     * Tells the scanner that no more tokens will be taken.  The scanner stops
+     * publishing tokens but is not interrupted.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * waits for the scanner thread to stop
+     */
+    public void join() {
+        boolean interrupted = false;
+        while (producer.isAlive()) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * busy waits for a while, then parks the thread for short periods
+     */
+    private static int pause(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        }
+        else {
+            LockSupport.parkNanos(20_000);
+        }
+        return spins + 1;
+    }
+
+    /**
+     * @return the source buffer the token offsets refer to
+     */
+    public char[] getSource() {
+        return source;
+    }
+
+    /**
+     * @param slot a slot returned by take()
+     * @return the kind of the token
+     */
+    public Token.Kind getKind(int slot) {
+        return KINDS[kinds[slot]];
+    }
+
+    /**
+     * @param slot a slot returned by take()
+     * @return index in the source of the first char of the token
+     */
+    public int getOffset(int slot) {
+        return offsets[slot];
+    }
+
+    /**
+     * @param slot a slot returned by take()
+     * @return the number of chars in the token
+     */
+    public int getLength(int slot) {
+        return lengths[slot];
+    }
+
+    /**
+     * @param slot a slot returned by take()
+     * @return the line number where the token was found
+     */
+    public int getLine(int slot) {
+        return lines[slot];
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * File: TokenStream.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.lexer;
+
+import proj12DeGrawHangMarcello.bantam.util.Names;
+
+import java.util.Arrays;
+
+/**
+ * All the tokens of a source file, stored as parallel arrays of primitive
+ * values (kind ordinal, offset, length and line number) rather than as Token
+ * objects.  Tokens are addressed by their index in the stream; the last
+ * token is always the EOF token.
+ * A TokenStream is produced by Scanner.tokenize().
+ */
+public class TokenStream
+{
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private final char[] source; // the source buffer the offsets refer to
+    private int[] kinds;         // ordinal of the kind of each token
+    private int[] offsets;       // index in source of the first char of each token
+    private int[] lengths;       // the number of chars in each token
+    private int[] lines;         // the line number where each token was found
+    private int size;            // the number of tokens
+
+    /**
+     * creates an empty stream of tokens from the given source
+     *
+     * @param source   the source buffer holding the chars of the tokens
+     * @param capacity the number of tokens expected
+     */
+    TokenStream(char[] source, int capacity) {
+        this.source = source;
+        capacity = Math.max(capacity, 16);
+        kinds = new int[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    /**
+     * appends a token to the stream
+     */
+    void add(Token.Kind kind, int offset, int length, int line) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[size] = kind.ordinal();
+        offsets[size] = offset;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * @return the number of tokens in the stream, including the final EOF token
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the source buffer the token offsets refer to
+     */
+    public char[] getSource() {
+        return source;
+    }
+
+    /**
+     * @param index index of a token in the stream
+     * @return the kind of the token
+     */
+    public Token.Kind getKind(int index) {
+        return KINDS[kinds[index]];
+    }
+
+    /**
+     * @param index index of a token in the stream
+     * @return index in the source of the first char of the token
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index index of a token in the stream
+     * @return the number of chars in the token
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @param index index of a token in the stream
+     * @return the line number where the token was found
+     */
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @param index index of a token in the stream
+     * @return the actual sequence of chars in the token, the canonical name
+     *         from Names for an identifier
+     */
+    public String getSpelling(int index) {
+        if (getKind(index) == Token.Kind.IDENTIFIER) {
+            return Names.intern(source, offsets[index], lengths[index]);
+        }
+        return new String(source, offsets[index], lengths[index]);
+    }
+
+    /**
+     * Compares the chars of a token with a string without creating its spelling
+     *
+     * @param index    index of a token in the stream
+     * @param spelling the string to compare with
+     * @return true if the token is spelled the same as the string
+     */
+    public boolean spellingEquals(int index, String spelling) {
+        int length = lengths[index];
+        if (length != spelling.length()) {
+            return false;
+        }
+        int offset = offsets[index];
+        for (int i = 0; i < length; i++) {
+            if (source[offset + i] != spelling.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param index index of a token in the stream
+     * @return a Token object for the token
+     */
+    public Token getToken(int index) {
+        return new Token(getKind(index), source, offsets[index], lengths[index], lines[index]);
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * File: ASTCache.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.parser;
+
+import proj12DeGrawHangMarcello.bantam.ast.FlatAST;
+import proj12DeGrawHangMarcello.bantam.ast.Program;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A cache of the ASTs of source files in a directory, so that the ASTs of
+ * unchanged sources are loaded instead of scanning and parsing them again.
+ * An AST is stored as a FlatAST, with its line numbers and the source
+ * ranges of its classes and members, as the Parser built it: it is stored
+ * before the semantic analyzer sets types on it, so that analyzing a loaded
+ * AST gives the same errors as analyzing the parsed one.
+ * Its key is a SHA-256 hash of the source, its filename, Parser.VERSION and
+ * the version of the encoding, so an AST is never loaded for a changed
+ * source or by a parser that would build a different AST; the entry of a
+ * file is replaced when it is stored again for a new source.
+ * Each entry holds its key and a CRC32 of the encoded AST: an entry that
+ * is truncated, damaged or not an entry is deleted and treated as missing.
+ * Failing to read or write the cache never fails a compilation.
+ */
+public class ASTCache
+{
+    /** the cache directory used by the compiler tools */
+    public static final String DEFAULT_DIRECTORY = ".bantam-cache";
+
+    // the header of an entry: magic number, key, CRC32 and length of the encoded AST
+    private static final int MAGIC = 0x42434845; // "BCHE"
+    private static final int DIGEST_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + DIGEST_LENGTH + 4 + 4;
+    private static final String SUFFIX = ".bast";
+
+    private final Path directory;
+
+    /**
+     * The key of the AST of a source
+     */
+    public static class Key
+    {
+        private CharSequence contents; // null until asked for when read from a file
+        private byte[] bytes;          // the contents of the file, until decoded
+        private final String prefix;   // the part of the entry's name identifying the file
+        private final byte[] digest;   // the hash of the source and versions
+
+        private Key(CharSequence contents, byte[] bytes, String prefix, byte[] digest) {
+            this.contents = contents;
+            this.bytes = contents == null ? bytes : null;
+            this.prefix = prefix;
+            this.digest = digest;
+        }
+
+        /**
+         * @return the source the key was computed for, to be parsed on a miss
+         */
+        public CharSequence getContents() {
+            if (contents == null) {
+                contents = Charset.defaultCharset().decode(ByteBuffer.wrap(bytes));
+                bytes = null;
+            }
+            return contents;
+        }
+    }
+
+    /**
+     * @param directory the directory of the cache, created when needed
+     */
+    public ASTCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads a file and computes the key of its AST.  On a miss, parse the
+     * contents of the key, decoded as by the Scanner, rather than the file
+     * so that the AST stored is the one of the source hashed.
+     * @param filename the name of the source file
+     * @return the key, or null if the file cannot be read
+     */
+    public Key keyOf(String filename) {
+        try {
+            byte[] bytes = Files.readAllBytes(Path.of(filename));
+            return keyOf(null, bytes, filename);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the key of the AST of a source
+     * @param contents the Bantam Java source
+     * @param filename the name of the source, stored in its Class_ nodes
+     * @return the key
+     */
+    public Key keyOf(CharSequence contents, String filename) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(contents));
+        return keyOf(contents, Arrays.copyOf(bytes.array(), bytes.limit()), filename);
+    }
+
+    /**
+     * computes the key from the bytes of the source, as read from its file
+     * or encoded in UTF-8; the contents are null for a file, decoded when needed
+     */
+    private static Key keyOf(CharSequence contents, byte[] bytes, String filename) {
+        MessageDigest digest = sha256();
+        digest.update(ByteBuffer.allocate(8).putInt(Parser.VERSION).putInt(FlatAST.VERSION).array());
+        digest.update(filename.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(bytes);
+        return new Key(contents, bytes, prefixOf(filename), digest.digest());
+    }
+
+    /**
+     * Loads the AST of a source
+     * @param key the key of the source
+     * @return the AST, or null if it is not in the cache or its entry is damaged
+     */
+    public Program load(Key key) {
+        Path entry = entryOf(key);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            ByteBuffer contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] digest = new byte[DIGEST_LENGTH];
+            if (contents.remaining() >= HEADER_LENGTH && contents.getInt() == MAGIC
+                    && Arrays.equals(digestOf(contents, digest), key.digest)) {
+                int crc = contents.getInt();
+                int length = contents.getInt();
+                if (length == contents.remaining() && crc == crcOf(contents)) {
+                    return (Program) FlatAST.wrap(contents).decode();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // unreadable or damaged, handled as an entry not matching its key
+        }
+        delete(entry);
+        return null;
+    }
+
+    /**
+     * Stores the AST of a source, replacing any other entry of the same file.
+     * The entry is written to a temporary file first, so a reader never sees
+     * it partly written.
+     * @param key the key of the source
+     * @param program the AST of the source
+     */
+    public void store(Key key, Program program) {
+        Path entry = entryOf(key);
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            ByteBuffer encoded = FlatAST.encode(program).asByteBuffer();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).put(key.digest).putInt(crcOf(encoded)).putInt(encoded.remaining()).flip();
+            temporary = Files.createTempFile(directory, key.prefix, ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || encoded.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, encoded});
+                }
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temporary = null;
+            removeEntries(key.prefix, entry);
+        } catch (IOException | RuntimeException e) {
+            // the AST is simply not cached
+        } finally {
+            if (temporary != null) {
+                delete(temporary);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry of a file, if any
+     * @param filename the name of the source file
+     */
+    public void invalidate(String filename) {
+        removeEntries(prefixOf(filename), null);
+    }
+
+    /**
+     * Removes all the entries of the cache
+     */
+    public void clear() {
+        removeEntries("", null);
+    }
+
+    /**
+     * deletes the entries whose name starts with the prefix, except one
+     */
+    private void removeEntries(String prefix, Path kept) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*" + SUFFIX)) {
+            for (Path entry : entries) {
+                if (!entry.equals(kept)) {
+                    delete(entry);
+                }
+            }
+        } catch (IOException e) {
+            // the entries are left; they are never loaded for another source
+        }
+    }
+
+    private Path entryOf(Key key) {
+        return directory.resolve(key.prefix + toHex(key.digest) + SUFFIX);
+    }
+
+    /**
+     * @return the start of the names of the entries of a file
+     */
+    private static String prefixOf(String filename) {
+        String path = Path.of(filename).toAbsolutePath().normalize().toString();
+        return toHex(Arrays.copyOf(sha256().digest(path.getBytes(StandardCharsets.UTF_8)), 8)) + "-";
+    }
+
+    private static byte[] digestOf(ByteBuffer contents, byte[] digest) {
+        contents.get(digest);
+        return digest;
+    }
+
+    private static int crcOf(ByteBuffer contents) {
+        CRC32 crc = new CRC32();
+        crc.update(contents.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // left for the next store or clear
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform has SHA-256
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
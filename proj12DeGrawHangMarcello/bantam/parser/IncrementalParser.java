@@ -0,0 +1,205 @@
+/*
+ * File: IncrementalParser.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.parser;
+
+import proj12DeGrawHangMarcello.bantam.ast.*;
+import proj12DeGrawHangMarcello.bantam.lexer.Scanner;
+import proj12DeGrawHangMarcello.bantam.lexer.TokenStream;
+import proj12DeGrawHangMarcello.bantam.util.CompilationException;
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+/**
+ * A parser for a source that is being edited, such as the contents of an
+ * editor, which keeps the AST of the last parse and, after an edit, parses
+ * again only the member or class enclosing the edit.
+ * The new Member or Class_ node replaces the old one in its MemberList or
+ * ClassList, and the nodes following it are shifted to their new lines and
+ * offsets; every other node of the old AST is kept.
+ * Whenever the edited part cannot be parsed on its own without errors, or
+ * the last parse found errors, the whole source is parsed again, so the
+ * errors registered are always those of a full parse.
+ */
+public class IncrementalParser
+{
+    private ErrorHandler errorHandler;
+    private String filename;
+    private String text;     // the source of the last parse
+    private Program program; // the AST of the last parse, null if it found errors
+
+    /**
+     * @param errorHandler the handler receiving the errors of each parse;
+     *                     it is cleared at the start of each parse
+     */
+    public IncrementalParser(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * parses the whole source and remembers its AST for later edits
+     * @param contents The Bantam Java source to be parsed
+     * @param filename The name of the source, used in error messages and Class_ nodes
+     * @return The Program node forming the root of the AST
+     * @throws CompilationException if the source could not be parsed
+     */
+    public Program parse(CharSequence contents, String filename) {
+        this.errorHandler.clear();
+        this.filename = filename;
+        this.text = contents.toString();
+        this.program = null;
+        Program result = new Parser(this.errorHandler).parse(this.text, filename);
+        if(!this.errorHandler.errorsFound()){
+            this.program = result;
+        }
+        return result;
+    }
+
+    /**
+     * parses the source again after an edit that replaced removedLength chars
+     * at editStart by insertedLength chars
+     * @param contents the whole source after the edit
+     * @param editStart offset of the first char replaced or inserted
+     * @param removedLength the number of chars of the old source replaced
+     * @param insertedLength the number of chars that replaced them
+     * @return The Program node forming the root of the AST of the edited source
+     * @throws CompilationException if the source could not be parsed
+     */
+    public Program reparse(CharSequence contents, int editStart, int removedLength, int insertedLength) {
+        String newText = contents.toString();
+        if(this.program != null
+                && this.reparseEnclosing(newText, editStart, editStart + removedLength,
+                                         insertedLength - removedLength)){
+            this.text = newText;
+            return this.program;
+        }
+        return this.parse(newText, this.filename);
+    }
+
+    /**
+     * @return the AST of the last parse, or null if it found errors
+     */
+    public Program getProgram() {
+        return this.program;
+    }
+
+    /**
+     * parses again the member, or else the class, enclosing the edit
+     * @return true if the AST was updated, false if the whole source must be parsed
+     */
+    private boolean reparseEnclosing(String newText, int editStart, int editEnd, int delta) {
+        ClassList classList = this.program.getClassList();
+        int classIndex = this.findEnclosing(classList, editStart, editEnd);
+        if(classIndex < 0){
+            return false;
+        }
+        Class_ aClass = (Class_) classList.get(classIndex);
+        MemberList memberList = aClass.getMemberList();
+        int memberIndex = this.findEnclosing(memberList, editStart, editEnd);
+
+        if(memberIndex >= 0){
+            Member old = (Member) memberList.get(memberIndex);
+            ASTNode member = this.parseUnit(newText, old.getStartOffset(), old.getEndOffset() + delta, false);
+            if(member != null){
+                int lineDelta = this.lineDelta(newText, old, member);
+                memberList.set(memberIndex, member);
+                aClass.setSourceRange(aClass.getStartOffset(), aClass.getEndOffset() + delta);
+                PositionShifter shifter = new PositionShifter(lineDelta, delta);
+                for(int i = memberIndex + 1; i < memberList.getSize(); i++){
+                    shifter.shift(memberList.get(i));
+                }
+                this.shiftClasses(classList, classIndex + 1, shifter);
+                return true;
+            }
+        }
+
+        ASTNode newClass = this.parseUnit(newText, aClass.getStartOffset(), aClass.getEndOffset() + delta, true);
+        if(newClass == null){
+            return false;
+        }
+        int lineDelta = this.lineDelta(newText, aClass, newClass);
+        classList.set(classIndex, newClass);
+        this.shiftClasses(classList, classIndex + 1, new PositionShifter(lineDelta, delta));
+        return true;
+    }
+
+    /**
+     * @return the index of the element of the list whose source range holds
+     *         the whole edit, or -1 if there is none
+     */
+    private int findEnclosing(ListNode list, int editStart, int editEnd) {
+        int low = 0;
+        int high = list.getSize() - 1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            ASTNode node = list.get(mid);
+            if(node.getEndOffset() < editStart){
+                low = mid + 1;
+            }
+            else if(node.getStartOffset() > editStart){
+                high = mid - 1;
+            }
+            else{
+                return editEnd <= node.getEndOffset() ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * parses the class or member that must span exactly [start, end) of the new source
+     * @return the new node, or null if it does not span that range or has errors
+     */
+    private ASTNode parseUnit(String newText, int start, int end, boolean isClass) {
+        ErrorHandler unitErrors = new ErrorHandler();
+        Scanner scanner = new Scanner(newText, this.filename, unitErrors);
+        scanner.setSkipComments(true);
+        TokenStream tokens = scanner.tokenize(start, end);
+        if(unitErrors.errorsFound()){
+            return null;
+        }
+        ASTNode node;
+        try{
+            node = new Parser(unitErrors).parseUnit(tokens, this.filename, isClass);
+        }
+        catch(CompilationException e){
+            return null;
+        }
+        if(unitErrors.errorsFound() || node.getStartOffset() != start || node.getEndOffset() != end){
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * @return the number of lines added by replacing the old node by the new one
+     */
+    private int lineDelta(String newText, ASTNode oldNode, ASTNode newNode) {
+        return countLineEnds(newText, newNode.getStartOffset(), newNode.getEndOffset())
+                - countLineEnds(this.text, oldNode.getStartOffset(), oldNode.getEndOffset());
+    }
+
+    /**
+     * shifts the classes of the list from the given index on
+     */
+    private void shiftClasses(ClassList classList, int from, PositionShifter shifter) {
+        for(int i = from; i < classList.getSize(); i++){
+            shifter.shift(classList.get(i));
+        }
+    }
+
+    /**
+     * counts the line ends in [start, end) of a text the way the Scanner does:
+     * a '\r', or a '\n' that does not follow a '\r'
+     */
+    private static int countLineEnds(String text, int start, int end) {
+        int count = 0;
+        for(int i = start; i < end; i++){
+            char c = text.charAt(i);
+            if(c == '\r' || (c == '\n' && (i == 0 || text.charAt(i - 1) != '\r'))){
+                count++;
+            }
+        }
+        return count;
+    }
+}
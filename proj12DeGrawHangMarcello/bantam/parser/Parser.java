@@ -15,13 +15,25 @@ import static proj12DeGrawHangMarcello.bantam.lexer.Token.Kind.*;
 
 import proj12DeGrawHangMarcello.bantam.lexer.Scanner;
 import proj12DeGrawHangMarcello.bantam.lexer.Token;
+import proj12DeGrawHangMarcello.bantam.lexer.TokenRingBuffer;
+import proj12DeGrawHangMarcello.bantam.lexer.TokenStream;
 import proj12DeGrawHangMarcello.bantam.treedrawer.Drawer;
 import proj12DeGrawHangMarcello.bantam.util.Error;
 import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
 import proj12DeGrawHangMarcello.bantam.ast.*;
 import proj12DeGrawHangMarcello.bantam.util.CompilationException;
+import proj12DeGrawHangMarcello.bantam.util.DeepStack;
+import proj12DeGrawHangMarcello.bantam.util.Names;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class constructs an AST from a legal Bantam Java program.  If the
@@ -30,16 +42,92 @@ import java.util.List;
 public class Parser
 {
     // instance variables
-    private Scanner scanner;
-    private Token currentToken; // the lookahead token
+    private TokenStream tokens;     // all the tokens of the file being parsed
+    private int current;            // index in tokens of the lookahead token
+    private TokenRingBuffer ring;   // tokens coming from the scanner thread, when pipelined
+    private ErrorHandler lexErrors; // errors of the scanner thread, when pipelined
+
+    // the lookahead token
+    private char[] source;
+    private Token.Kind kind;
+    private int offset;
+    private int length;
+    private int line;
+    private int previousEnd; // offset following the last char of the token before it
+
     private ErrorHandler errorHandler;
     private String filename;
 
+    // error recovery
+    private boolean errorRecovery;  // true to keep parsing after a syntax error
+    private int syntaxErrors;       // the number of syntax errors registered so far
+    private Program program;        // the AST of the last parse
+    private Set<Class_> invalidClasses = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private long stackSize; // the stack size of the parsing thread, 0 to parse on the caller's thread
+
+    // the number of tokens the scanner thread can be ahead of the parser
+    private static final int RING_CAPACITY = 4096;
+
+    /**
+     * the version of the ASTs built by this parser, part of the key of the
+     * ASTs kept by an ASTCache: it must be incremented whenever a change to
+     * the parser changes the AST it builds for some source
+     */
+    public static final int VERSION = 1;
+
     // constructor
     public Parser(ErrorHandler errorHandler) {
         this.errorHandler = errorHandler;
     }
 
+    /**
+     * Turns panic-mode error recovery on or off; it is off by default.
+     * Without recovery the parse stops at the first syntax error by throwing
+     * a CompilationException.  With recovery the error is registered and the
+     * tokens are skipped up to a synchronizing token, where parsing resumes:
+     * a statement in error is skipped up to its ";" or to the "}" of its block
+     * and replaced by an ErrorStmt, a member in error is skipped up to a ";"
+     * or "}" and dropped, and a class whose header is in error is skipped up
+     * to the next CLASS token and dropped.  All the syntax errors of the file
+     * are then registered by a single parse, which returns the Program; use
+     * the error handler to know if errors were found and
+     * getErrorFreeProgram() to get the classes parsed without errors.
+     * Pipelined parsing is not used while recovering.
+     * @param errorRecovery true to recover from syntax errors
+     */
+    public void setErrorRecovery(boolean errorRecovery) {
+        this.errorRecovery = errorRecovery;
+    }
+
+    /**
+     * Makes each parse run on a thread with the given stack size, such as
+     * DeepStack.DEFAULT_STACK_SIZE, so that deeply nested sources can be
+     * parsed without a StackOverflowError.  By default the parse runs on the
+     * caller's thread.
+     * @param stackSize the stack size in bytes, or 0 to parse on the caller's thread
+     */
+    public void setStackSize(long stackSize) {
+        this.stackSize = stackSize;
+    }
+
+    /**
+     * @return a Program holding only the classes of the last parse in which
+     *         no syntax error was found, such as can be given to the
+     *         SemanticAnalyzer after a parse with error recovery
+     */
+    public Program getErrorFreeProgram() {
+        ClassList classList = this.program.getClassList();
+        ClassList valid = new ClassList(classList.getLineNum());
+        for(ASTNode aClass: classList){
+            if(!this.invalidClasses.contains(aClass)){
+                valid.addElement(aClass);
+            }
+        }
+        valid.trimToSize();
+        return new Program(this.program.getLineNum(), valid);
+    }
+
 
     /**
      * parse the given file and return the root node of the AST
@@ -47,9 +135,268 @@ public class Parser
      * @return The Program node forming the root of the AST generated by the parser
      */
     public Program parse(String filename) {
-        this.scanner=new Scanner(filename, this.errorHandler);
+        return this.parse(filename, false);
+    }
+
+    /**
+     * parse the given file and return the root node of the AST, optionally
+     * scanning the file on a separate thread while it is being parsed.
+     * In pipelined mode the scanner thread hands its tokens to the parser
+     * through a bounded ring buffer, and its lexical errors are copied into
+     * this parser's error handler once it has stopped, so the errors
+     * reported are the same as with parse(filename).
+     * @param filename The name of the Bantam Java file to be parsed
+     * @param pipelined true to scan and parse on separate threads
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parse(String filename, boolean pipelined) {
+        pipelined = pipelined && !this.errorRecovery;
+        ErrorHandler scanErrors = pipelined ? new ErrorHandler() : this.errorHandler;
+        return this.parse(new Scanner(filename, scanErrors), scanErrors, filename, pipelined);
+    }
+
+    /**
+     * parse the given text, such as the contents of an editor buffer, and
+     * return the root node of the AST.  No file is read.
+     * @param contents The Bantam Java source to be parsed
+     * @param filename The name of the source, used in error messages and Class_ nodes
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parse(CharSequence contents, String filename) {
+        return this.parse(contents, filename, false);
+    }
+
+    /**
+     * parse the given text and return the root node of the AST, optionally
+     * scanning it on a separate thread while it is being parsed
+     * @param contents The Bantam Java source to be parsed
+     * @param filename The name of the source, used in error messages and Class_ nodes
+     * @param pipelined true to scan and parse on separate threads
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parse(CharSequence contents, String filename, boolean pipelined) {
+        pipelined = pipelined && !this.errorRecovery;
+        ErrorHandler scanErrors = pipelined ? new ErrorHandler() : this.errorHandler;
+        return this.parse(new Scanner(contents, filename, scanErrors), scanErrors, filename, pipelined);
+    }
+
+    /**
+     * parse the tokens of the given scanner
+     * @param scanner the scanner of the source
+     * @param scanErrors the error handler of the scanner, a private one when pipelined
+     * @param filename The name of the source
+     * @param pipelined true to scan and parse on separate threads
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    private Program parse(Scanner scanner, ErrorHandler scanErrors, String filename, boolean pipelined) {
+        return DeepStack.call(this.stackSize, () -> this.parseTokens(scanner, scanErrors, filename, pipelined));
+    }
+
+    /**
+     * parse the tokens of the given scanner on the current thread
+     */
+    private Program parseTokens(Scanner scanner, ErrorHandler scanErrors, String filename, boolean pipelined) {
+        scanner.setSkipComments(true);
+        if(!pipelined){
+            this.startAt(scanner.tokenize(), 0, filename);
+            return this.parseProgram();
+        }
         this.filename=filename;
-        return this.parseProgram();
+        this.kind=null;
+        this.lexErrors=scanErrors;
+        this.tokens=null;
+        this.ring=scanner.tokenizeInBackground(RING_CAPACITY);
+        this.source=this.ring.getSource();
+        try {
+            return this.parseProgram();
+        }finally{
+            this.finishScanning();
+        }
+    }
+
+    /**
+     * parses a single class or member, used by the IncrementalParser to parse
+     * again the part of a source that was edited
+     * @param tokens the tokens of the class or member, followed by at least one more token
+     * @param filename The name of the source
+     * @param isClass true to parse a class, false to parse a member
+     * @return the Class_ or Member node, whose source range is recorded
+     */
+    ASTNode parseUnit(TokenStream tokens, String filename, boolean isClass) {
+        this.startAt(tokens, 0, filename);
+        this.advance();
+        return isClass ? this.parseClass() : this.parseMember();
+    }
+
+    /**
+     * parse the given file and return the root node of the AST, parsing its
+     * classes in parallel.
+     * The file is scanned first; the extent of each class is then found in
+     * the tokens by matching its braces, and each class is parsed by a
+     * separate fork-join task.  The classes are put in the ClassList in
+     * source order, and the syntax error reported, if any, is the one the
+     * sequential parser would report, so the result is the same as with
+     * parse(filename).
+     * @param filename The name of the Bantam Java file to be parsed
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parseInParallel(String filename) {
+        return this.parseInParallel(new Scanner(filename, this.errorHandler), filename);
+    }
+
+    /**
+     * parse the given text and return the root node of the AST, parsing its
+     * classes in parallel
+     * @param contents The Bantam Java source to be parsed
+     * @param filename The name of the source, used in error messages and Class_ nodes
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parseInParallel(CharSequence contents, String filename) {
+        return this.parseInParallel(new Scanner(contents, filename, this.errorHandler), filename);
+    }
+
+    /**
+     * parses the classes of the scanner's tokens in parallel, then merges
+     * the results in source order.  If a class did not end where the next
+     * one was expected to begin, the rest of the file is parsed sequentially.
+     */
+    private Program parseInParallel(Scanner scanner, String filename) {
+        return DeepStack.call(this.stackSize, () -> this.parseTokensInParallel(scanner, filename));
+    }
+
+    /**
+     * parses the classes of the scanner's tokens in parallel, the rest of the
+     * file being parsed on the current thread
+     */
+    private Program parseTokensInParallel(Scanner scanner, String filename) {
+        scanner.setSkipComments(true);
+        TokenStream tokens = scanner.tokenize();
+        this.syntaxErrors = 0;
+        this.invalidClasses.clear();
+        // with a single worker the tasks would only add overhead
+        int[] starts = ForkJoinPool.getCommonPoolParallelism() > 1 ? findClassStarts(tokens) : new int[0];
+
+        List<ClassTask> tasks = new ArrayList<>(starts.length);
+        for(int start: starts){
+            tasks.add(new ClassTask(tokens, start, filename));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        this.startAt(tokens, 0, filename);
+        this.advance();
+        int position = currentPosition();
+        ClassList classList = new ClassList(position);
+        int next = 0; // index of the token where the next class begins
+        for(int i = 0; i < starts.length && starts[i] == next; i++){
+            ClassTask task = tasks.get(i);
+            if(task.overflow){
+                break; // the class is too deep for a worker's stack
+            }
+            if(task.failure != null){
+                if(this.errorRecovery && task.failure instanceof SyntaxError){
+                    break; // the rest of the file is parsed sequentially, recovering
+                }
+                for(Error error: task.errors.getErrorList()){
+                    this.errorHandler.register(error.getKind(), error.getFilename(),
+                            error.getLineNum(), error.getMessage());
+                }
+                throw task.failure;
+            }
+            classList.addElement(task.result);
+            next = task.end + 1;
+        }
+
+        this.startAt(tokens, next, filename);
+        this.advance();
+        this.parseClasses(classList);
+        this.program = new Program(position, classList);
+        return this.program;
+    }
+
+    /**
+     * Finds where each class of the file begins, by matching the braces
+     * following each CLASS token.  The search stops at the first token that
+     * cannot begin a class or at a class whose braces do not match.
+     * @param tokens the tokens of the file
+     * @return the index of the CLASS token of each class found
+     */
+    private static int[] findClassStarts(TokenStream tokens) {
+        int[] starts = new int[16];
+        int count = 0;
+        int i = 0;
+        while(tokens.getKind(i) == CLASS){
+            int start = i;
+            while(tokens.getKind(i) != LCURLY && tokens.getKind(i) != EOF){
+                i++;
+            }
+            int depth = 0;
+            for(; tokens.getKind(i) != EOF; i++){
+                if(tokens.getKind(i) == LCURLY){
+                    depth++;
+                }
+                else if(tokens.getKind(i) == RCURLY && --depth == 0){
+                    break;
+                }
+            }
+            if(tokens.getKind(i) == EOF){
+                break;
+            }
+            if(count == starts.length){
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = start;
+            i++;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * A fork-join task parsing one class with its own Parser and ErrorHandler
+     */
+    private static class ClassTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TokenStream tokens;
+        private final int start;
+        private final String filename;
+        private final ErrorHandler errors = new ErrorHandler();
+        private Class_ result;
+        private int end;                    // index of the last token of the class
+        private RuntimeException failure;   // what stopped the parse, if anything
+        private boolean overflow;           // true if the parse overflowed the stack
+
+        ClassTask(TokenStream tokens, int start, String filename) {
+            this.tokens = tokens;
+            this.start = start;
+            this.filename = filename;
+        }
+
+        @Override
+        protected void compute() {
+            Parser parser = new Parser(errors);
+            parser.startAt(tokens, start, filename);
+            parser.advance();
+            try {
+                result = parser.parseClass();
+                end = parser.current;
+            } catch(RuntimeException e) {
+                failure = e;
+            } catch(StackOverflowError e) {
+                overflow = true;
+            }
+        }
+    }
+
+    /**
+     * The exception thrown when a syntax error is registered, which is caught
+     * where the parser can recover from it
+     */
+    private static class SyntaxError extends CompilationException {
+        private static final long serialVersionUID = 1L;
+
+        SyntaxError(String message) {
+            super(message);
+        }
     }
 
     public static void main(String[] argv){
@@ -58,15 +405,23 @@ public class Parser
             return;
         }
 
-        for(String filename: argv) {
+        // "-pipelined" as the first argument scans and parses on separate threads,
+        // "-parallel" parses the classes in parallel
+        boolean pipelined = argv[0].equals("-pipelined");
+        boolean parallel = argv[0].equals("-parallel");
+        for(int i = pipelined || parallel ? 1 : 0; i < argv.length; i++) {
+            String filename = argv[i];
             ErrorHandler errorHandler = new ErrorHandler();
             Parser parser = new Parser(errorHandler);
+            parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
 
             try {
-                Program program = parser.parse(filename);
+                Program program = parallel ? parser.parseInParallel(filename)
+                                           : parser.parse(filename, pipelined);
 
                 // draw parse tree
                 Drawer drawer = new Drawer();
+                drawer.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
                 drawer.draw(filename, program);
 
             }catch(CompilationException e){
@@ -88,16 +443,44 @@ public class Parser
      * <Program> ::= <Class> | <Class> <Program>
      */
     private Program parseProgram(){
-        updateCurrentToken();
-        int position = currentToken.position;
+        this.syntaxErrors = 0;
+        this.invalidClasses.clear();
+        advance();
+        int position = currentPosition();
         ClassList classList = new ClassList(position);
+        parseClasses(classList);
+        this.program = new Program(position, classList);
+        return this.program;
+    }
 
-        while (currentToken.kind != EOF) {
-            Class_ aClass = parseClass();
-            classList.addElement(aClass);
-            updateCurrentToken();
+    /*
+     * parses the classes from the current token to the end of the file.
+     * When recovering, a class in which errors were found is kept but
+     * recorded as invalid, and a class that could not be parsed is skipped
+     * up to the next CLASS token.
+     */
+    private void parseClasses(ClassList classList){
+        while (currentKind() != EOF) {
+            int errorsBefore = this.syntaxErrors;
+            try {
+                Class_ aClass = parseClass();
+                classList.addElement(aClass);
+                if (this.syntaxErrors > errorsBefore) {
+                    this.invalidClasses.add(aClass);
+                }
+            } catch (SyntaxError e) {
+                if (!this.errorRecovery) {
+                    throw e;
+                }
+                this.skipTo(CLASS, CLASS);
+                continue;
+            }
+            // a class recovered from an error may end without its "}"
+            if (currentKind() == RCURLY) {
+                advance();
+            }
         }
-        return new Program(position, classList);
+        classList.trimToSize();
     }
 
 
@@ -107,27 +490,49 @@ public class Parser
      * <MemberList> ::= EMPTY | <Member> <MemberList>
      */
     private Class_ parseClass() {
-        int position = currentToken.position;
+        int position = currentPosition();
+        int start = this.offset;
         String parent="";
         MemberList memberList= new MemberList(position);
         this.checkToken(CLASS,"When parsing class, class expected." );
         String name = parseIdentifier();
 
-        if (currentToken.kind==EXTENDS){
-            updateCurrentToken();
+        if (currentKind()==EXTENDS){
+            advance();
             parent =parseIdentifier();
         }
 
         this.checkToken(LCURLY,"When parsing class, \"{\" expected.");
 
-        while (currentToken.kind!= RCURLY){
-            if (currentToken.kind == EOF){
+        int errorsBefore = this.syntaxErrors;
+        while (currentKind()!= RCURLY){
+            if (this.syntaxErrors > errorsBefore
+                    && (currentKind() == CLASS || currentKind() == EOF)){
+                // the "}" of the class was skipped while recovering
+                break;
+            }
+            if (currentKind() == EOF){
                 this.registerError("When parsing class, \"}\" expected.",
                         "Unexpected Token");
             }
-            memberList.addElement(parseMember());
+            if (!this.errorRecovery){
+                memberList.addElement(parseMember());
+                continue;
+            }
+            try {
+                memberList.addElement(parseMember());
+            } catch (SyntaxError e) {
+                this.skipTo(SEMICOLON, RCURLY);
+                if (currentKind() == SEMICOLON || currentKind() == RCURLY){
+                    advance();
+                }
+            }
         }
-        return new Class_(position,filename,name, parent, memberList);
+        memberList.trimToSize();
+        Class_ aClass = new Class_(position,filename,name, parent, memberList);
+        int end = currentKind() == RCURLY ? this.offset + this.length : this.previousEnd;
+        aClass.setSourceRange(start, end);
+        return aClass;
     }
 
 
@@ -138,7 +543,8 @@ public class Parser
      * <InitialValue> ::= EMPTY | = <Expression>
      */
      private Member parseMember() {
-         int position= currentToken.position;
+         int position= currentPosition();
+         int start = this.offset;
          FormalList formalList;
          StmtList stmtList;
          Expr expr;
@@ -149,29 +555,29 @@ public class Parser
          //name
          String identifier =parseIdentifier();
 
-         if(currentToken.kind == LPAREN){
+         if(currentKind() == LPAREN){
              //Method case
-            updateCurrentToken();
+            advance();
             formalList=parseParameters();
-            updateCurrentToken();
+            advance();
             BlockStmt block = (BlockStmt)this.parseBlock();
             stmtList = block.getStmtList();
-            return new Method(position,type, identifier, formalList, stmtList );
+            return this.withRange(new Method(position,type, identifier, formalList, stmtList ), start);
         }
 
-         else if (currentToken.kind== ASSIGN){
+         else if (currentKind()== ASSIGN){
              //non-empty field case
-             updateCurrentToken();
+             advance();
              expr=parseExpression();
              this.checkToken(SEMICOLON, "When parsing field, \";\" expected.");
-             return new Field(position, type, identifier, expr);
+             return this.withRange(new Field(position, type, identifier, expr), start);
 
          }
 
-         else if (currentToken.kind==SEMICOLON){
+         else if (currentKind()==SEMICOLON){
              //empty field case
-             updateCurrentToken();
-             return new Field(position,type, identifier, null);
+             advance();
+             return this.withRange(new Field(position,type, identifier, null), start);
          }
          else {
              this.registerError("When parsing field, \"(\", \"=\", or \";\" expected.",
@@ -180,6 +586,18 @@ public class Parser
          return null;
      }
 
+    /**
+     * Records the range of the source covered by a member, from its first
+     * token to the last token read
+     * @param member the member just parsed
+     * @param start offset of the first char of the member
+     * @return the member
+     */
+    private Member withRange(Member member, int start){
+        member.setSourceRange(start, this.previousEnd);
+        return member;
+    }
+
 
     //-----------------------------------
 
@@ -190,7 +608,7 @@ public class Parser
      private Stmt parseStatement() {
             Stmt stmt;
 
-            switch (currentToken.kind) {
+            switch (currentKind()) {
                 case IF:
                     stmt = parseIf();
                     break;
@@ -224,8 +642,8 @@ public class Parser
      * <WhileStmt> ::= WHILE ( <Expression> ) <Stmt>
      */
     private Stmt parseWhile() {
-        int position = this.currentToken.position;
-        updateCurrentToken();
+        int position = currentPosition();
+        advance();
         this.checkToken(LPAREN,"When parsing while, \"(\" expected.");
         Expr predExpr = this.parseExpression();
 
@@ -238,10 +656,10 @@ public class Parser
      * <ReturnStmt> ::= RETURN <Expression> ; | RETURN ;
      */
 	private Stmt parseReturn() {
-	    updateCurrentToken();
-	    int position = this.currentToken.position;
-	    if(this.currentToken.kind == SEMICOLON){
-	        updateCurrentToken();
+	    advance();
+	    int position = currentPosition();
+	    if(currentKind() == SEMICOLON){
+	        advance();
 	        return new ReturnStmt(position, null);
         }else{
 	        Expr expr = this.parseExpression();
@@ -255,10 +673,10 @@ public class Parser
 	 * BreakStmt> ::= BREAK ;
      */
 	private Stmt parseBreak() {
-	    updateCurrentToken();
-	    int position = this.currentToken.position;
+	    advance();
+	    int position = currentPosition();
 	    this.checkToken(SEMICOLON,"When parsing Break, \";\" expected");
-        return new BreakStmt(this.currentToken.position);
+        return new BreakStmt(currentPosition());
     }
 
 
@@ -267,7 +685,7 @@ public class Parser
      */
 	private ExprStmt parseExpressionStmt() {
 	    Expr expr = this.parseExpression();
-	    int position = this.currentToken.position;
+	    int position = currentPosition();
 	    this.checkToken(SEMICOLON, "When parsing ExpressionStmt\";\" expected");
 	    return new ExprStmt(position,expr);
     }
@@ -278,8 +696,8 @@ public class Parser
      * every local variable must be initialized
      */
 	private Stmt parseDeclStmt() {
-	    updateCurrentToken();
-	    int position = this.currentToken.position;
+	    advance();
+	    int position = currentPosition();
 	    String name = this.parseIdentifier();
 
 	    this.checkToken(ASSIGN, "When parsing DeclStmt, \"=\" expected");
@@ -298,8 +716,8 @@ public class Parser
      * <Increment> ::= EMPTY | <Expression>
      */
 	private Stmt parseFor() {
-        int position = this.currentToken.position;
-        updateCurrentToken();
+        int position = currentPosition();
+        advance();
 
         this.checkToken(LPAREN, "When parsing For, \"(\" expected");
         Expr startExpr = this.parseExpression();
@@ -320,29 +738,56 @@ public class Parser
      * <Body> ::= EMPTY | <Stmt> <Body>
      */
 	private Stmt parseBlock() {
-        int position = this.currentToken.position;
+        int position = currentPosition();
         StmtList stmtList = new StmtList(position);
         this.checkToken(LCURLY,"When parsing Block\"{\" expected" );
 
-        while(this.currentToken.kind != RCURLY){
-            if (currentToken.kind == EOF){
+        while(currentKind() != RCURLY){
+            if (currentKind() == EOF){
                 this.registerError("When parsing Block\"}\" expected","Unexpected Token");
             }
-            stmtList.addElement(this.parseStatement());
+            stmtList.addElement(this.parseBlockStatement());
 
         }
-        updateCurrentToken();
+        advance();
+        stmtList.trimToSize();
 	    return new BlockStmt(position, stmtList);
     }
 
 
+    /*
+     * parses a statement of a block.  When recovering from an error in the
+     * statement, the tokens are skipped up to its ";" or to the "}" of the
+     * block, and an ErrorStmt takes its place.
+     */
+    private Stmt parseBlockStatement() {
+        if(!this.errorRecovery){
+            return this.parseStatement();
+        }
+        int position = currentPosition();
+        try{
+            return this.parseStatement();
+        }
+        catch(SyntaxError e){
+            this.skipTo(SEMICOLON, RCURLY);
+            if(currentKind() == CLASS || currentKind() == EOF){
+                throw e; // the block cannot be recovered
+            }
+            if(currentKind() == SEMICOLON){
+                advance();
+            }
+            return new ErrorStmt(position);
+        }
+    }
+
+
     /*
 	 * <IfStmt> ::= IF ( <Expr> ) <Stmt> | IF ( <Expr> ) <Stmt> ELSE <Stmt>
      */
 	private Stmt parseIf() {
-	    int position = this.currentToken.position;
+	    int position = currentPosition();
         Stmt elseStmt;
-        updateCurrentToken();
+        advance();
 
         this.checkToken(LPAREN, "When parsing If, \"(\" expected");
         Expr predExpr = this.parseExpression();
@@ -350,8 +795,8 @@ public class Parser
         this.checkToken(RPAREN,"When parsing If, \")\" expected");
         Stmt thenStmt = this.parseStatement();
 
-        if(this.currentToken.kind == ELSE){
-            updateCurrentToken();
+        if(currentKind() == ELSE){
+            advance();
             elseStmt = this.parseStatement();
         }
         else{
@@ -370,17 +815,17 @@ public class Parser
      * <OptionalAssignment> ::= EMPTY | = <Expression>
      */
 	private Expr parseExpression(){
-        int position = this.currentToken.position;
-        Expr left = this.parseOrExpr();
+        int position = currentPosition();
+        Expr left = this.parseBinary(Operator.OR.precedence);
 
-        if (this.currentToken.kind == ASSIGN){
+        if (currentKind() == ASSIGN){
             if (left instanceof VarExpr){
                 String refName = null;
                 if(((VarExpr) left).getRef() != null) {
                     refName = ((VarExpr) ((VarExpr) left).getRef()).getName();
                 }
                 String name = ((VarExpr) left).getName();
-                updateCurrentToken();
+                advance();
 
                 return new AssignExpr(position,refName,name,this.parseExpression());
             }
@@ -391,7 +836,7 @@ public class Parser
                 }
                 String name = ((ArrayExpr) left).getName();
                 Expr index = ((ArrayExpr) left).getIndex();
-                updateCurrentToken();
+                advance();
                 return new ArrayAssignExpr(position,refName,name,index, this.parseExpression());
             }
             else{
@@ -408,152 +853,135 @@ public class Parser
 
 
     /*
-	 * <LogicalOR> ::= <logicalAND> <LogicalORRest>
-     * <LogicalORRest> ::= EMPTY |  || <LogicalAND> <LogicalORRest>
+     * The binary operators, from the lowest to the highest precedence:
+     * <LogicalOR>      ::= <LogicalAND> <LogicalORRest>
+     * <LogicalORRest>  ::= EMPTY |  || <LogicalAND> <LogicalORRest>
+     * <LogicalAND>     ::= <ComparisonExpr> <LogicalANDRest>
+     * <LogicalANDRest> ::= EMPTY |  && <ComparisonExpr> <LogicalANDRest>
+     * <ComparisonExpr> ::= <RelationalExpr> <equalOrNotEqual> <RelationalExpr> |
+     *                      <RelationalExpr>
+     * <equalOrNotEqual> ::=  == | !=
+     * <RelationalExpr> ::= <AddExpr> | <AddExpr> <ComparisonOp> <AddExpr>
+     * <ComparisonOp>   ::=  < | > | <= | >= | INSTANCEOF
+     * <AddExpr>        ::= <MultExpr> <MoreMultExpr>
+     * <MoreMultExpr>   ::= EMPTY | + <MultExpr> <MoreMultExpr> | - <MultExpr> <MoreMultExpr>
+     * <MultExpr>       ::= <NewCastOrUnary> <MoreNCU>
+     * <MoreNCU>        ::= * <NewCastOrUnary> <MoreNCU> |
+     *                      / <NewCastOrUnary> <MoreNCU> |
+     *                      % <NewCastOrUnary> <MoreNCU> |
+     *                      EMPTY
+     * The comparisons cannot be chained, the other operators are left associative.
      */
-	private Expr parseOrExpr() {
-        int position = currentToken.position;
-
-        Expr left = parseAndExpr();
-        while (this.currentToken.spelling.equals("||")) {
-            updateCurrentToken();
-            Expr right = parseAndExpr();
-            left = new BinaryLogicOrExpr(position, left, right);
+    private enum Operator {
+        OR(1, true), AND(2, true),
+        EQ(3, false), NE(3, false),
+        LT(4, false), LEQ(4, false), GT(4, false), GEQ(4, false), INSTANCEOF(4, false),
+        PLUS(5, true), MINUS(5, true),
+        TIMES(6, true), DIVIDE(6, true), MODULUS(6, true);
+
+        private final int precedence;
+        private final boolean chainable; // true if a chain of these is grouped from the left
+
+        Operator(int precedence, boolean chainable) {
+            this.precedence = precedence;
+            this.chainable = chainable;
         }
+    }
 
-        return left;
-	}
-
-    //-------------------------------------------------------
-    /*
-	 * <LogicalAND> ::= <ComparisonExpr> <LogicalANDRest>
-     * <LogicalANDRest> ::= EMPTY |  && <ComparisonExpr> <LogicalANDRest>
+    /**
+     * Parses the binary operators of an expression by precedence climbing:
+     * operators of the same precedence are parsed by the loop, and a call
+     * is only made for the right operand, which holds the operators of
+     * higher precedence.  The nodes built are those of one parsing method
+     * per precedence level, positioned at the line of their left operand.
+     * @param minPrecedence the lowest precedence of the operators to parse
+     * @return the expression
      */
-	private Expr parseAndExpr() {
-	    int position =currentToken.position;
-	    Expr left= parseEqualityExpr();
-	    while (this.currentToken.spelling.equals("&&")){
-	        updateCurrentToken();
-	        Expr right=parseEqualityExpr();
-	        left= new BinaryLogicAndExpr(position,left, right);
-
+    private Expr parseBinary(int minPrecedence) {
+        int position = currentPosition();
+        Expr left = this.parseNewCastOrUnary();
+        int maxPrecedence = Integer.MAX_VALUE;
+        Operator operator = this.currentOperator();
+        while (operator != null && operator.precedence >= minPrecedence
+                && operator.precedence <= maxPrecedence) {
+            advance();
+            if (operator == Operator.INSTANCEOF) {
+                left = new InstanceofExpr(position, left, this.parseType());
+            }
+            else {
+                Expr right = this.parseBinary(operator.precedence + 1);
+                left = this.newBinaryExpr(operator, position, left, right);
+            }
+            // after a comparison only an operator of lower precedence may follow
+            maxPrecedence = operator.chainable ? operator.precedence : operator.precedence - 1;
+            operator = this.currentOperator();
         }
         return left;
     }
 
-
-    /*
-	 * <ComparisonExpr> ::= <RelationalExpr> <equalOrNotEqual> <RelationalExpr> |
-     *                     <RelationalExpr>
-     * <equalOrNotEqual> ::=  == | !=
+    /**
+     * @return the binary operator of the current token, or null if it is not one
      */
-	private Expr parseEqualityExpr() {
-	    int position= currentToken.position;
-	    Expr left = parseRelationalExpr();
-	    String operator = this.parseOperator();
-	    if(operator.equals("==")){
-	        updateCurrentToken();
-	        Expr right= parseRelationalExpr();
-	        left=new BinaryCompEqExpr(position,left,right);
+    private Operator currentOperator() {
+        Token.Kind operatorKind = currentKind();
+        if (operatorKind != BINARYLOGIC && operatorKind != COMPARE
+                && operatorKind != PLUSMINUS && operatorKind != MULDIV) {
+            return operatorKind == INSTANCEOF ? Operator.INSTANCEOF : null;
         }
-        else if(operator.equals("!=")){
-            updateCurrentToken();
-            Expr right= parseRelationalExpr();
-            left=new BinaryCompNeExpr(position,left,right);
+        char first = this.source[this.offset];
+        switch (operatorKind) {
+            case BINARYLOGIC:
+                return first == '|' ? Operator.OR : Operator.AND;
+            case COMPARE:
+                if (first == '=') {
+                    return Operator.EQ;
+                }
+                else if (first == '!') {
+                    return Operator.NE;
+                }
+                else if (first == '<') {
+                    return this.length == 1 ? Operator.LT : Operator.LEQ;
+                }
+                return this.length == 1 ? Operator.GT : Operator.GEQ;
+            case PLUSMINUS:
+                return first == '+' ? Operator.PLUS : Operator.MINUS;
+            default:
+                return first == '*' ? Operator.TIMES : first == '/' ? Operator.DIVIDE : Operator.MODULUS;
         }
-	    return left;
     }
 
-    //------------------------------------------------------------
-    /*
-	 * <RelationalExpr> ::=<AddExpr> | <AddExpr> <ComparisonOp> <AddExpr>
-     * <ComparisonOp> ::=  < | > | <= | >= | INSTANCEOF
+    /**
+     * @return the node of a binary operator other than INSTANCEOF
      */
-	private Expr parseRelationalExpr() {
-	    int position = this.currentToken.position;
-	    Expr left = this.parseAddExpr();
-	    String operator = this.parseOperator();
+    private Expr newBinaryExpr(Operator operator, int position, Expr left, Expr right) {
         switch (operator) {
-            case "<":
-                updateCurrentToken();
-                return new BinaryCompLtExpr(position, left, this.parseAddExpr());
-            case "<=":
-                updateCurrentToken();
-                return new BinaryCompLeqExpr(position, left, this.parseAddExpr());
-            case ">":
-                updateCurrentToken();
-                return new BinaryCompGtExpr(position, left, this.parseAddExpr());
-            case ">=":
-                updateCurrentToken();
-                return new BinaryCompGeqExpr(position, left, this.parseAddExpr());
-            case "instanceof":
-                updateCurrentToken();
-                return new InstanceofExpr(position, left, this.parseType());
+            case OR:
+                return new BinaryLogicOrExpr(position, left, right);
+            case AND:
+                return new BinaryLogicAndExpr(position, left, right);
+            case EQ:
+                return new BinaryCompEqExpr(position, left, right);
+            case NE:
+                return new BinaryCompNeExpr(position, left, right);
+            case LT:
+                return new BinaryCompLtExpr(position, left, right);
+            case LEQ:
+                return new BinaryCompLeqExpr(position, left, right);
+            case GT:
+                return new BinaryCompGtExpr(position, left, right);
+            case GEQ:
+                return new BinaryCompGeqExpr(position, left, right);
+            case PLUS:
+                return new BinaryArithPlusExpr(position, left, right);
+            case MINUS:
+                return new BinaryArithMinusExpr(position, left, right);
+            case TIMES:
+                return new BinaryArithTimesExpr(position, left, right);
+            case DIVIDE:
+                return new BinaryArithDivideExpr(position, left, right);
             default:
-                return left;
-        }
-    }
-
-    //-----------------------------------------------------------------
-    /*
-	 * <AddExpr>::＝ <MultExpr> <MoreMultExpr>
-     * <MoreMultExpr> ::= EMPTY | + <MultExpr> <MoreMultExpr> | - <MultExpr> <MoreMultExpr>
-     */
-	private Expr parseAddExpr() {
-        int position = this.currentToken.position;
-
-        Expr left = parseMultExpr();
-        while (this.currentToken.spelling.equals("+") || this.currentToken.spelling.equals("-")) {
-            if(this.currentToken.spelling.equals("+")){
-                updateCurrentToken();
-                Expr right = parseMultExpr();
-                left = new BinaryArithPlusExpr(position, left, right);
-            }
-            else if(this.currentToken.spelling.equals("-")){
-                updateCurrentToken();
-                Expr right= parseMultExpr();
-                left = new BinaryArithMinusExpr(position, left, right);
-            }
-
-        }
-        return left;
-    }
-
-
-    /*
-	 * <MultiExpr> ::= <NewCastOrUnary> <MoreNCU>
-     * <MoreNCU> ::= * <NewCastOrUnary> <MoreNCU> |
-     *               / <NewCastOrUnary> <MoreNCU> |
-     *               % <NewCastOrUnary> <MoreNCU> |
-     *               EMPTY
-     */
-	private Expr parseMultExpr() {
-        int position = this.currentToken.position;
-
-        Expr left = parseNewCastOrUnary();
-        Expr right;
-        while (this.currentToken.spelling.equals("*") || this.currentToken.spelling.equals("/")
-                || this.currentToken.spelling.equals("%")) {
-            switch(this.currentToken.spelling) {
-                case "*":
-                    updateCurrentToken();
-                    right = parseNewCastOrUnary();
-                    left = new BinaryArithTimesExpr(position, left, right);
-                    break;
-                case "/":
-                    updateCurrentToken();
-                    right = parseNewCastOrUnary();
-                    left = new BinaryArithDivideExpr(position, left, right);
-                    break;
-                case "%":
-                    updateCurrentToken();
-                    right = parseNewCastOrUnary();
-                    left = new BinaryArithModulusExpr(position, left, right);
-                    break;
-            }
+                return new BinaryArithModulusExpr(position, left, right);
         }
-
-        return left;
     }
 
     //-----------------------------------
@@ -562,10 +990,10 @@ public class Parser
      */
 	private Expr parseNewCastOrUnary() {
         Expr castOrUnary;
-        if(this.currentToken.kind == NEW){
+        if(currentKind() == NEW){
             castOrUnary=parseNew();
         }
-        else if(this.currentToken.kind == CAST){
+        else if(currentKind() == CAST){
             castOrUnary=parseCast();
         }
         else{
@@ -579,17 +1007,17 @@ public class Parser
 	 * <NewExpression> ::= NEW <Identifier> ( ) | NEW <Identifier> [ <Expression> ]
      */
 	private Expr parseNew() {
-	    updateCurrentToken();
+	    advance();
 	    String id = this.parseIdentifier();
-	    if(this.currentToken.kind == LPAREN){
-            updateCurrentToken();
+	    if(currentKind() == LPAREN){
+            advance();
             this.checkToken(RPAREN,"When parsing New, \")\" expected");
-            return new NewExpr(this.currentToken.position,id);
-        }else if(this.currentToken.kind == LBRACKET){
-            updateCurrentToken();
+            return new NewExpr(currentPosition(),id);
+        }else if(currentKind() == LBRACKET){
+            advance();
             Expr expr = this.parseExpression();
             this.checkToken(RBRACKET,"When parsing New, \"]\" expected");
-            return new NewArrayExpr(this.currentToken.position,id,expr);
+            return new NewArrayExpr(currentPosition(),id,expr);
         }else{
             this.registerError("When parsing New, \"(\" or \"[\" expected",
                     "Unexpected Token");
@@ -602,53 +1030,48 @@ public class Parser
 	 * <CastExpression> ::= CAST ( <Type> , <Expression> )
      */
 	private Expr parseCast() {
-	    updateCurrentToken();
+	    advance();
 	    this.checkToken(LPAREN,"When parsing Cast, \"(\" expected");
         String type = this.parseType();
         this.checkToken(COMMA,"When parsing Cast, \",\" expected");
         Expr expr = this.parseExpression();
         this.checkToken(RPAREN, "When parsing Cast, \")\" expected");
-        return new CastExpr( this.currentToken.position, type, expr);
+        return new CastExpr( currentPosition(), type, expr);
     }
 
 
     /*
 	 * <UnaryPrefix> ::= <PrefixOp> <UnaryPrefix> | <UnaryPostfix>
      * <PrefixOp> ::= - | ! | ++ | --
+     * <UnaryPostfix> ::= <Primary> <PostfixOp>
+     * <PostfixOp> ::= ++ | -- | EMPTY
      */
 	private Expr parseUnaryPrefix() {
-	    String operator = this.parseOperator();
-	    switch (operator) {
-            case "-":
-                updateCurrentToken();
-                return new UnaryNegExpr(this.currentToken.position, this.parseUnaryPrefix());
-            case "!":
-                updateCurrentToken();
-                return new UnaryNotExpr(this.currentToken.position, this.parseUnaryPrefix());
-            case "++":
-                updateCurrentToken();
-                return new UnaryIncrExpr(this.currentToken.position, this.parseUnaryPrefix(), false);
-            case "--":
-                updateCurrentToken();
-                return new UnaryDecrExpr(this.currentToken.position, this.parseUnaryPrefix(), false);
-            default:
-                return this.parseUnaryPostfix();
+	    if(isOperator("-")){
+	        advance();
+	        return new UnaryNegExpr(currentPosition(), this.parseUnaryPrefix());
+	    }
+	    else if(isOperator("!")){
+	        advance();
+	        return new UnaryNotExpr(currentPosition(), this.parseUnaryPrefix());
+	    }
+	    else if(isOperator("++")){
+	        advance();
+	        return new UnaryIncrExpr(currentPosition(), this.parseUnaryPrefix(), false);
+	    }
+	    else if(isOperator("--")){
+	        advance();
+	        return new UnaryDecrExpr(currentPosition(), this.parseUnaryPrefix(), false);
 	    }
-    }
-
 
-    /*
-	 * <UnaryPostfix> ::= <Primary> <PostfixOp>
-     * <PostfixOp> ::= ++ | -- | EMPTY
-     */
-	private Expr parseUnaryPostfix() {
+	    // <UnaryPostfix>
 	    Expr primary = this.parsePrimary();
-	    if(this.currentToken.spelling.equals("++")){
-	        updateCurrentToken();
-	        return new UnaryIncrExpr(this.currentToken.position,primary,true);
-        }else if(this.currentToken.spelling.equals("--")){
-	        updateCurrentToken();
-	        return new UnaryDecrExpr(this.currentToken.position,primary,true);
+	    if(isOperator("++")){
+	        advance();
+	        return new UnaryIncrExpr(currentPosition(),primary,true);
+        }else if(isOperator("--")){
+	        advance();
+	        return new UnaryDecrExpr(currentPosition(),primary,true);
         }
         return primary;
     }
@@ -665,11 +1088,11 @@ public class Parser
      * <Suffix>      ::=  <IdSuffix> | <DispSuffix> | <IndexSuffix>
      */
 	private Expr parsePrimary() {
-	    int position = this.currentToken.position;
+	    int position = currentPosition();
 	    Expr tempExpr =null;
-        switch (this.currentToken.kind) {
+        switch (currentKind()) {
             case LPAREN: // (<Expression>)
-                updateCurrentToken();
+                advance();
                 Expr expr = this.parseExpression();
                 this.checkToken(RPAREN, "When parsing (Expr), \")\" expected");
                 tempExpr = expr;
@@ -694,8 +1117,8 @@ public class Parser
         }
 
         //--------------------------------------------End of cases------------------------------------------------------
-        while(currentToken.kind == DOT){
-            updateCurrentToken();
+        while(currentKind() == DOT){
+            advance();
             String identifier = parseIdentifier();
             tempExpr = parseIdentifierSuffix(tempExpr, position, identifier);
         }
@@ -711,17 +1134,17 @@ public class Parser
      */
     private Expr parseIdentifierSuffix(Expr tempExpr, int position, String identifier) {
 
-        if (this.currentToken.kind == LBRACKET) {
-            updateCurrentToken();
+        if (currentKind() == LBRACKET) {
+            advance();
             Expr index = parseExpression();
             checkToken(RBRACKET, "When parsing Dispatch, \"]\" expected");
-            tempExpr = new ArrayExpr(this.currentToken.position, tempExpr, identifier, index);
+            tempExpr = new ArrayExpr(currentPosition(), tempExpr, identifier, index);
         }
-        else if(this.currentToken.kind == LPAREN){
-            updateCurrentToken();
+        else if(currentKind() == LPAREN){
+            advance();
             ExprList args = parseArguments();
-            updateCurrentToken();
-            tempExpr = new DispatchExpr(this.currentToken.position, tempExpr, identifier, args);
+            advance();
+            tempExpr = new DispatchExpr(currentPosition(), tempExpr, identifier, args);
         }
         else {
             tempExpr = new VarExpr(position, tempExpr, identifier);
@@ -734,18 +1157,19 @@ public class Parser
      * <MoreArgs>  ::= EMPTY | , <Expression> <MoreArgs>
      */
 	private ExprList parseArguments() {
-        int position = this.currentToken.position;
+        int position = currentPosition();
 	    ExprList exprList = new ExprList(position);
-	    while (this.currentToken.kind != RPAREN) {
+	    while (currentKind() != RPAREN) {
 	        exprList.addElement(this.parseExpression());
-	        if (this.currentToken.kind != COMMA ) {
-	            if(this.currentToken.kind != RPAREN) {
+	        if (currentKind() != COMMA ) {
+	            if(currentKind() != RPAREN) {
                     this.registerError("When parsing Arguments, \",\" expected",
                             "Unexpected Token");
                 }else{ break; }
             }
-            updateCurrentToken();
+            advance();
         }
+        exprList.trimToSize();
         return exprList;
     }
 
@@ -756,19 +1180,20 @@ public class Parser
      * <MoreFormals> ::= EMPTY | , <Formal> <MoreFormals
      */
 	private FormalList parseParameters() {
-	    int position = this.currentToken.position;
+	    int position = currentPosition();
 	    FormalList formalList = new FormalList(position);
-	    while (this.currentToken.kind != RPAREN) {
+	    while (currentKind() != RPAREN) {
 	        formalList.addElement(this.parseFormal());
-	        if (this.currentToken.kind != COMMA) {
-	            if(this.currentToken.kind != RPAREN){
+	        if (currentKind() != COMMA) {
+	            if(currentKind() != RPAREN){
                     this.registerError("When parsing Parameters, \\\",\\\" expected",
                             "Unexpected Token");
                 }
                 else{ break; }
             }
-            updateCurrentToken();
+            advance();
         }
+        formalList.trimToSize();
         return formalList;
     }
 
@@ -780,7 +1205,7 @@ public class Parser
 	    String type = this.parseType();
 	    String id = this.parseIdentifier();
 
-        return new Formal(this.currentToken.position, type, id);
+        return new Formal(currentPosition(), type, id);
     }
 
 
@@ -792,10 +1217,10 @@ public class Parser
 	private String parseType() {
 	    String id = this.parseIdentifier();
 
-	    if(this.currentToken.kind == LBRACKET){
-	        updateCurrentToken();
+	    if(currentKind() == LBRACKET){
+	        advance();
 	        this.checkToken(RBRACKET, "When parsing Type, \\\"]\\\" expected");
-	        id = id +"[]";
+	        id = Names.intern(id +"[]");
         }
 	    return id;
     }
@@ -804,47 +1229,134 @@ public class Parser
     //----------------------------------------
     //Terminals
 
-	private String parseOperator() {
-	    return this.currentToken.spelling;
-    }
-
-
     private String parseIdentifier() {
-        String identifier = this.currentToken.spelling;
+        String identifier = currentKind() == IDENTIFIER ? currentName() : currentSpelling();
 	    this.checkToken(IDENTIFIER,"When parsing Identifier, Identifier expected");
 	    return identifier;
     }
 
 
     private ConstStringExpr parseStringConst() {
-	    ConstStringExpr constStringExpr = new ConstStringExpr(this.currentToken.position,this.currentToken.spelling);
-	    updateCurrentToken();
+	    ConstStringExpr constStringExpr = new ConstStringExpr(currentPosition(),currentSpelling());
+	    advance();
 	    return constStringExpr;
     }
 
 
     private ConstIntExpr parseIntConst() {
-	    ConstIntExpr constIntExpr = new ConstIntExpr(this.currentToken.position,this.currentToken.spelling);
-	    updateCurrentToken();
+	    ConstIntExpr constIntExpr = new ConstIntExpr(currentPosition(),currentSpelling());
+	    advance();
         return constIntExpr;
     }
 
 
     private ConstBooleanExpr parseBoolean() {
-	    ConstBooleanExpr constBooleanExpr = new ConstBooleanExpr(this.currentToken.position,this.currentToken.spelling);
-	    updateCurrentToken();
+	    ConstBooleanExpr constBooleanExpr = new ConstBooleanExpr(currentPosition(),currentName());
+	    advance();
         return constBooleanExpr;
     }
 
     /**
-     * Updates the current Token
-     * Ignores comment tokens
+     * Moves on to the next token of the stream, staying on the final EOF token
+     * Comment tokens are never seen, since the scanner is set to skip them
+     */
+    private void advance(){
+        if(this.kind == EOF){
+            return;
+        }
+        this.previousEnd = this.offset + this.length;
+        if(this.ring != null){
+            int slot = this.ring.take();
+            this.kind = this.ring.getKind(slot);
+            this.offset = this.ring.getOffset(slot);
+            this.length = this.ring.getLength(slot);
+            this.line = this.ring.getLine(slot);
+        }
+        else{
+            this.current++;
+            this.kind = this.tokens.getKind(this.current);
+            this.offset = this.tokens.getOffset(this.current);
+            this.length = this.tokens.getLength(this.current);
+            this.line = this.tokens.getLine(this.current);
+        }
+    }
+
+    /**
+     * Makes the token at the given index of a TokenStream the next one
+     * advance() moves to
+     */
+    private void startAt(TokenStream tokens, int index, String filename){
+        this.filename = filename;
+        this.tokens = tokens;
+        this.current = index - 1;
+        this.ring = null;
+        this.source = tokens.getSource();
+        this.kind = null;
+    }
+
+    /**
+     * In pipelined mode, stops the scanner thread and copies its errors into
+     * the error handler.  Called before a syntax error is registered and when
+     * parsing ends, so lexical errors come first as with parse(filename).
+     */
+    private void finishScanning(){
+        if(this.ring == null){
+            return;
+        }
+        this.ring.close();
+        this.ring.join();
+        this.ring = null;
+        for(Error error: this.lexErrors.getErrorList()){
+            this.errorHandler.register(error.getKind(), error.getFilename(),
+                    error.getLineNum(), error.getMessage());
+        }
+        this.lexErrors = null;
+    }
+
+    /**
+     * @return the kind of the current token
      */
-    private void updateCurrentToken(){
-	    this.currentToken = scanner.scan();
-	    while(this.currentToken.kind == COMMENT){
-	        this.currentToken = scanner.scan();
+    private Token.Kind currentKind(){
+        return this.kind;
+    }
+
+    /**
+     * @return the line number of the current token
+     */
+    private int currentPosition(){
+        return this.line;
+    }
+
+    /**
+     * @return the spelling of the current token
+     */
+    private String currentSpelling(){
+        return new String(this.source, this.offset, this.length);
+    }
+
+    /**
+     * @return the spelling of the current token as a canonical name, which
+     *         is only created the first time the name is met
+     */
+    private String currentName(){
+        return Names.intern(this.source, this.offset, this.length);
+    }
+
+    /**
+     * compares the current token with an operator without building its spelling
+     * @param operator the spelling of the operator
+     * @return true if the current token is spelled as the operator
+     */
+    private boolean isOperator(String operator){
+        if(this.length != operator.length()){
+            return false;
         }
+        for(int i = 0; i < this.length; i++){
+            if(this.source[this.offset + i] != operator.charAt(i)){
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -853,9 +1365,23 @@ public class Parser
      * @param compilationMessage message passed to CompilationException
      */
     private void registerError(String errorMessage,String compilationMessage){
+        this.finishScanning();
         this.errorHandler.register(Error.Kind.PARSE_ERROR,this.filename,
-                this.currentToken.position,errorMessage);
-        throw new CompilationException(compilationMessage);
+                currentPosition(),errorMessage);
+        this.syntaxErrors++;
+        throw new SyntaxError(compilationMessage);
+    }
+
+    /**
+     * skips tokens until one of the given kinds, a CLASS or the EOF token
+     * @param first a kind of token to stop at
+     * @param second another kind of token to stop at
+     */
+    private void skipTo(Token.Kind first, Token.Kind second){
+        while(currentKind() != first && currentKind() != second
+                && currentKind() != CLASS && currentKind() != EOF){
+            advance();
+        }
     }
 
     /**
@@ -864,9 +1390,9 @@ public class Parser
      * @param errorMessage error message to be sent to the errorHandler
      */
     private void checkToken(Token.Kind kind,String errorMessage){
-        if(this.currentToken.kind != kind){
+        if(currentKind() != kind){
             this.registerError(errorMessage, "Unexpected Token");
         }
-        updateCurrentToken();
+        advance();
     }
 }
\ No newline at end of file
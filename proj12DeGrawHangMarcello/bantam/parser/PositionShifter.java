@@ -0,0 +1,356 @@
+/*
+ * File: PositionShifter.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.parser;
+
+import proj12DeGrawHangMarcello.bantam.ast.*;
+import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
+
+/**
+ * Moves every node of a subtree by a number of lines and chars.  Used by the
+ * IncrementalParser for the nodes that follow an edited part of the source,
+ * so they can be kept instead of being parsed again, and by an incremental
+ * SemanticAnalyzer for the classes it keeps from an earlier analysis.
+ * Each visit method shifts its node and then visits the node's children,
+ * skipping the null ones the parser can leave in an AST.
+ */
+public class PositionShifter extends Visitor
+{
+    private int lineDelta;   // the number of lines added by the edit
+    private int offsetDelta; // the number of chars added by the edit
+
+    /**
+     * @param lineDelta   the number of lines added by the edit (negative if removed)
+     * @param offsetDelta the number of chars added by the edit (negative if removed)
+     */
+    public PositionShifter(int lineDelta, int offsetDelta) {
+        this.lineDelta = lineDelta;
+        this.offsetDelta = offsetDelta;
+    }
+
+    /**
+     * shifts the given node and all the nodes below it
+     *
+     * @param node the root of the subtree to shift
+     */
+    public void shift(ASTNode node) {
+        if (lineDelta != 0 || offsetDelta != 0) {
+            visitNode(node);
+        }
+    }
+
+    /**
+     * visits a child node, which the parser may have left null
+     */
+    private void visitNode(ASTNode node) {
+        if (node != null) {
+            node.accept(this);
+        }
+    }
+
+    /**
+     * visits the elements of a list node
+     */
+    private Object visitList(ListNode node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        for (int i = 0; i < node.getSize(); i++) {
+            visitNode(node.get(i));
+        }
+        return null;
+    }
+
+    public Object visit(Program node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getClassList());
+        return null;
+    }
+
+    public Object visit(ClassList node) {
+        return visitList(node);
+    }
+
+    public Object visit(Class_ node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getMemberList());
+        return null;
+    }
+
+    public Object visit(MemberList node) {
+        return visitList(node);
+    }
+
+    public Object visit(Field node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getInit());
+        return null;
+    }
+
+    public Object visit(Method node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getFormalList());
+        visitNode(node.getStmtList());
+        return null;
+    }
+
+    public Object visit(FormalList node) {
+        return visitList(node);
+    }
+
+    public Object visit(Formal node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+
+    public Object visit(StmtList node) {
+        return visitList(node);
+    }
+
+    public Object visit(DeclStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getInit());
+        return null;
+    }
+
+    public Object visit(ExprStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(IfStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getPredExpr());
+        visitNode(node.getThenStmt());
+        visitNode(node.getElseStmt());
+        return null;
+    }
+
+    public Object visit(WhileStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getPredExpr());
+        visitNode(node.getBodyStmt());
+        return null;
+    }
+
+    public Object visit(ForStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getInitExpr());
+        visitNode(node.getPredExpr());
+        visitNode(node.getUpdateExpr());
+        visitNode(node.getBodyStmt());
+        return null;
+    }
+
+    public Object visit(BreakStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+
+    public Object visit(ErrorStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+
+    public Object visit(BlockStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getStmtList());
+        return null;
+    }
+
+    public Object visit(ReturnStmt node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(ExprList node) {
+        return visitList(node);
+    }
+
+    public Object visit(DispatchExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getRefExpr());
+        visitNode(node.getActualList());
+        return null;
+    }
+
+    public Object visit(NewExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+
+    public Object visit(NewArrayExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getSize());
+        return null;
+    }
+
+    public Object visit(InstanceofExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(CastExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(AssignExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(ArrayAssignExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getIndex());
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompEqExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompNeExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompLtExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompLeqExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompGtExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompGeqExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithPlusExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithMinusExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithTimesExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithDivideExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithModulusExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryLogicAndExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryLogicOrExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(UnaryNegExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(UnaryNotExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(UnaryIncrExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(UnaryDecrExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(VarExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getRef());
+        return null;
+    }
+
+    public Object visit(ArrayExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        visitNode(node.getRef());
+        visitNode(node.getIndex());
+        return null;
+    }
+
+    public Object visit(ConstIntExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+
+    public Object visit(ConstBooleanExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+
+    public Object visit(ConstStringExpr node) {
+        node.shiftPosition(lineDelta, offsetDelta);
+        return null;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * File: Project.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.semant;
+
+import proj12DeGrawHangMarcello.bantam.ast.ClassList;
+import proj12DeGrawHangMarcello.bantam.ast.Class_;
+import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.parser.Parser;
+import proj12DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj12DeGrawHangMarcello.bantam.util.CompilationException;
+import proj12DeGrawHangMarcello.bantam.util.DeepStack;
+import proj12DeGrawHangMarcello.bantam.util.Error;
+import proj12DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A Bantam Java program made of several source files.  Each file is parsed
+ * on its own, the files in parallel, and the classes of all the files are
+ * merged into one class index, which is analyzed as a single program by an
+ * incremental SemanticAnalyzer.  A file is only parsed again once its
+ * contents are changed, and only its classes and the classes depending on
+ * them are analyzed again.  The errors are kept by file: those found while
+ * parsing a file, and those the analysis found in its classes.
+ * The classes are taken in the order of the filenames, then in source order;
+ * a class defined again by a later file is reported in that file and left
+ * out of the index.
+ * Usage: java Project file1.btm file2.btm ...
+ */
+public class Project
+{
+    /**
+     * A source file of the project, with what was found in it
+     */
+    private static class ProjectFile
+    {
+        private final String filename;
+        private final String contents;
+        private Program program;          // the classes parsed without errors, null until parsed
+        private List<Error> parseErrors;  // the errors found while parsing it
+        private List<Error> errors = Collections.emptyList(); // of the last analysis
+
+        ProjectFile(String filename, String contents) {
+            this.filename = filename;
+            this.contents = contents;
+        }
+    }
+
+    private final SortedMap<String, ProjectFile> files = new TreeMap<>(); // by filename
+    private final Map<String, String> classIndex = new HashMap<>();       // the file of each class
+    private final SemanticAnalyzer analyzer = new SemanticAnalyzer(new ErrorHandler());
+    private List<Error> projectErrors = Collections.emptyList(); // the errors of no file
+    private long stackSize;
+
+    public Project() {
+        analyzer.setIncremental(true);
+    }
+
+    /**
+     * Makes the parses of the files too deep for a fork-join worker, and the
+     * analysis, run on a thread with the given stack size, such as
+     * DeepStack.DEFAULT_STACK_SIZE.  By default they run on the caller's thread.
+     *
+     * @param stackSize the stack size in bytes, or 0 to run on the caller's thread
+     */
+    public void setStackSize(long stackSize) {
+        this.stackSize = stackSize;
+        analyzer.setStackSize(stackSize);
+    }
+
+    /**
+     * Adds a file to the project, or replaces its contents.  The file is
+     * parsed again by the next analysis only if its contents changed.
+     *
+     * @param filename the name of the file, used in error messages
+     * @param contents the Bantam Java source of the file
+     */
+    public void setFile(String filename, CharSequence contents) {
+        ProjectFile file = files.get(filename);
+        if(file == null || !file.contents.contentEquals(contents)) {
+            files.put(filename, new ProjectFile(filename, contents.toString()));
+        }
+    }
+
+    /**
+     * Adds a file to the project, or replaces its contents, reading the file
+     *
+     * @param filename the name of the file to read
+     * @throws IOException if the file cannot be read
+     */
+    public void readFile(String filename) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(filename));
+        setFile(filename, new String(bytes, Charset.defaultCharset()));
+    }
+
+    /**
+     * Removes a file from the project
+     *
+     * @param filename the name of the file
+     */
+    public void removeFile(String filename) {
+        files.remove(filename);
+    }
+
+    /**
+     * @return the names of the files of the project, in the order their
+     *         classes are analyzed
+     */
+    public Set<String> getFilenames() {
+        return Collections.unmodifiableSet(files.keySet());
+    }
+
+    /**
+     * Parses the files added or changed since the last analysis, in parallel,
+     * then analyzes the classes of all the files.  The classes parsed without
+     * errors are analyzed even if their file has syntax errors.
+     *
+     * @return root of the class hierarchy tree
+     * @throws RuntimeException what stopped the analysis, once the errors
+     *         found are kept by file
+     */
+    public ClassTreeNode analyze() {
+        parseFiles();
+
+        // the class index: the classes of the files, by filename then in source order
+        classIndex.clear();
+        ErrorHandler errorHandler = new ErrorHandler();
+        ClassList classList = new ClassList(0);
+        List<ClassList> fileLists = new ArrayList<>(); // where each class comes from
+        List<Integer> fileIndexes = new ArrayList<>();
+        for(ProjectFile file : files.values()) {
+            ClassList fileList = file.program.getClassList();
+            for(int i = 0; i < fileList.getSize(); i++) {
+                Class_ node = (Class_) fileList.get(i);
+                String definedIn = classIndex.putIfAbsent(node.getName(), file.filename);
+                if(definedIn != null) {
+                    errorHandler.register(Error.Kind.SEMANT_ERROR, file.filename, node.getLineNum(),
+                            "Class " + node.getName() + " is already defined in " + definedIn + ".");
+                    continue;
+                }
+                classList.addElement(node);
+                fileLists.add(fileList);
+                fileIndexes.add(i);
+            }
+        }
+
+        analyzer.setErrorHandler(errorHandler);
+        try {
+            return analyzer.analyze(new Program(0, classList));
+        } finally {
+            // the analyzer may replace a class by the same one analyzed last
+            // time, which the file then keeps for its next analysis
+            for(int i = 0; i < classList.getSize(); i++) {
+                fileLists.get(i).set(fileIndexes.get(i), classList.get(i));
+            }
+            sortErrors(errorHandler);
+        }
+    }
+
+    /**
+     * @param className the name of a class
+     * @return the name of the file defining the class in the last analysis,
+     *         or null if no file does
+     */
+    public String getFilename(String className) {
+        return classIndex.get(className);
+    }
+
+    /**
+     * @param filename the name of a file of the project
+     * @return the errors found in the file by the last analysis, syntax
+     *         errors first
+     */
+    public List<Error> getErrors(String filename) {
+        ProjectFile file = files.get(filename);
+        return file == null ? Collections.emptyList() : Collections.unmodifiableList(file.errors);
+    }
+
+    /**
+     * @return the errors found by the last analysis in all the files, file
+     *         by file, followed by those of no file, such as a missing Main class
+     */
+    public List<Error> getErrors() {
+        List<Error> errors = new ArrayList<>();
+        for(ProjectFile file : files.values()) {
+            errors.addAll(file.errors);
+        }
+        errors.addAll(projectErrors);
+        return errors;
+    }
+
+    /**
+     * @return whether the last analysis found errors
+     */
+    public boolean errorsFound() {
+        if(!projectErrors.isEmpty()) {
+            return true;
+        }
+        for(ProjectFile file : files.values()) {
+            if(!file.errors.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * parses the files not parsed yet, each by its own fork-join task if
+     * there are several workers
+     */
+    private void parseFiles() {
+        List<ParseTask> tasks = new ArrayList<>();
+        for(ProjectFile file : files.values()) {
+            if(file.program == null) {
+                tasks.add(new ParseTask(file));
+            }
+        }
+        // with a single worker the tasks would only add overhead
+        if(ForkJoinPool.getCommonPoolParallelism() > 1 && tasks.size() > 1) {
+            ForkJoinTask.invokeAll(tasks);
+        }
+        for(ParseTask task : tasks) {
+            if(task.file.program == null) {
+                task.parse(stackSize); // not run yet, or too deep for a worker's stack
+            }
+        }
+    }
+
+    /**
+     * gives each file the errors found in it, the syntax errors first
+     */
+    private void sortErrors(ErrorHandler errorHandler) {
+        Map<String, List<Error>> found = new HashMap<>();
+        projectErrors = new ArrayList<>();
+        for(Error error : errorHandler.getErrorList()) {
+            if(error.getFilename() != null && files.containsKey(error.getFilename())) {
+                found.computeIfAbsent(error.getFilename(), name -> new ArrayList<>()).add(error);
+            }
+            else {
+                projectErrors.add(error);
+            }
+        }
+        for(ProjectFile file : files.values()) {
+            List<Error> errors = new ArrayList<>(file.parseErrors);
+            errors.addAll(found.getOrDefault(file.filename, Collections.emptyList()));
+            file.errors = errors;
+        }
+    }
+
+    /**
+     * A fork-join task parsing one file with its own Parser and ErrorHandler
+     */
+    private static class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ProjectFile file;
+
+        ParseTask(ProjectFile file) {
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                parse(0);
+            } catch(StackOverflowError e) {
+                // left unparsed, to be parsed on the analyzing thread
+            }
+        }
+
+        /**
+         * parses the file, recovering from syntax errors, and keeps the
+         * classes parsed without errors
+         */
+        void parse(long stackSize) {
+            ErrorHandler errors = new ErrorHandler();
+            Parser parser = new Parser(errors);
+            parser.setErrorRecovery(true);
+            parser.setStackSize(stackSize);
+            Program program;
+            try {
+                program = parser.parse(file.contents, file.filename);
+                if(errors.errorsFound()) {
+                    program = parser.getErrorFreeProgram();
+                }
+            } catch(CompilationException e) {
+                program = new Program(0, new ClassList(0));
+            }
+            file.parseErrors = new ArrayList<>(errors.getErrorList());
+            file.program = program;
+        }
+    }
+
+    public static void main(String[] args) {
+        if(args.length == 0) {
+            System.out.println("PROVIDE THE FILENAMES OF THE PROJECT AS INPUT");
+            return;
+        }
+
+        Project project = new Project();
+        project.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+        for(String arg : args) {
+            try {
+                project.readFile(arg);
+            } catch(IOException e) {
+                System.out.println("Cannot read " + arg + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        try {
+            project.analyze();
+            System.out.println("Checking Complete");
+        } catch(RuntimeException e) {
+            System.out.println("Checking Failed");
+        }
+        for(String filename : project.getFilenames()) {
+            System.out.println("\n" + filename + ": " + project.getErrors(filename).size() + " errors");
+            for(Error error : project.getErrors(filename)) {
+                System.out.println(error);
+            }
+        }
+        for(Error error : project.projectErrors) {
+            System.out.println("\n" + error);
+        }
+    }
+}
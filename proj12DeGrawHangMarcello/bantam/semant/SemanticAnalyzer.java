@@ -38,13 +38,19 @@
 package proj12DeGrawHangMarcello.bantam.semant;
 
 import proj12DeGrawHangMarcello.bantam.ast.*;
+import proj12DeGrawHangMarcello.bantam.parser.ASTCache;
 import proj12DeGrawHangMarcello.bantam.parser.Parser;
+import proj12DeGrawHangMarcello.bantam.parser.PositionShifter;
 import proj12DeGrawHangMarcello.bantam.util.*;
 import proj12DeGrawHangMarcello.bantam.util.Error;
 import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
 
 import javax.swing.text.html.StyleSheet;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The <tt>SemanticAnalyzer</tt> class performs semantic analysis.
@@ -85,6 +91,13 @@ public class SemanticAnalyzer
      */
     private ClassTreeNode root;
 
+    /**
+     * The built-in classes, extending Object and with their dispatch tables
+     * built, copied by each analysis; never changed once built, so they are
+     * shared by all analyses and threads
+     */
+    private static final Hashtable<String, ClassTreeNode> BUILTIN_CLASSES = buildBuiltins();
+
     /**
      * Maps class names to ClassTreeNode objects representing the class
      */
@@ -101,9 +114,12 @@ public class SemanticAnalyzer
     private static boolean verbose;
 
     /**
-     * current filename
+     * the name of the source analyzed, set by analyze(contents, filename),
+     * used for the errors of the whole program; null if the program is made
+     * of several files, as for a Project.  The errors of a class name the
+     * file of the class.
      */
-    private static String filename;
+    private String filename;
 
     /**
      * Maximum number of inherited and non-inherited fields that can be defined for any
@@ -111,6 +127,38 @@ public class SemanticAnalyzer
      */
     private final int MAX_NUM_FIELDS = 1500;
 
+    /**
+     * the stack size of the thread the analysis runs on, 0 for the caller's thread
+     */
+    private long stackSize;
+
+    /**
+     * the cache of the ASTs of the sources analyzed, or null
+     */
+    private ASTCache cache;
+
+    /**
+     * whether each analysis reuses the results of the last one for the
+     * classes that did not change
+     */
+    private boolean incremental;
+
+    /**
+     * the state of each class after the last incremental analysis, by name;
+     * null if there is none to reuse
+     */
+    private Map<String, ClassState> classStates;
+
+    /**
+     * of the current analysis: the state of each class, by name, the names
+     * of the classes added, removed or changed since the last analysis, and
+     * the names of the classes to check, the others being reused
+     */
+    private Map<String, ClassState> states = new HashMap<>();
+    private Set<String> changedClasses = new HashSet<>();
+    private Set<String> staleClasses = new HashSet<>();
+    private boolean unique; // whether the classes have distinct, non built-in names
+
     /**
      * SemanticAnalyzer constructor
      *
@@ -137,9 +185,28 @@ public class SemanticAnalyzer
      * See the lab manual for more details on each of these steps.
      */
     public ClassTreeNode analyze(Program program) {
+        return DeepStack.call(this.stackSize, () -> this.analyzeProgram(program));
+    }
+
+    /**
+     * Analyze the AST on the current thread
+     *
+     * @param program root of the AST to be checked
+     * @return root of the class hierarchy tree
+     */
+    private ClassTreeNode analyzeProgram(Program program) {
         this.program = program;
         this.classMap.clear();
 
+        // set again once this analysis has built every state
+        Map<String, ClassState> previous = this.classStates;
+        this.classStates = null;
+
+        // find the classes unchanged since the last analysis, if incremental,
+        // and the classes to check, the changed ones and those depending on them
+        findChangedClasses(previous);
+        findStaleClasses();
+
         // step 1:  add built-in classes to classMap
         addBuiltins();
 
@@ -152,6 +219,11 @@ public class SemanticAnalyzer
         buildInheritance();
         if(verbose) { System.out.println("Inheritance Relationships Completed"); }
 
+        // number the class hierarchy tree once, for constant time subtype checks,
+        // and build the dispatch table of each class, to resolve method calls
+        root.numberClasses();
+        root.buildDispatchTables();
+
         //step 3: build the environment for each class (add class members only) and check that members are declared properly
         if(verbose) { System.out.print("Beginning Build of Class Environment... "); }
         buildClassEnvironment();
@@ -164,19 +236,214 @@ public class SemanticAnalyzer
 
         //step 5: Type Checking
         if(verbose) { System.out.print("Beginning Type Checking... "); }
-        for(String key: classMap.keySet()) {
-            if(!key.equals("Object") && !key.equals("String") && !key.equals("TextIO") && !key.equals("Sys")) {
-                ErrorHandler checkerErrorHandler = new ErrorHandler();
-                TypeCheckerVisitor typeCheckerVisitor = new TypeCheckerVisitor(checkerErrorHandler);
-                typeCheckerVisitor.checkTypes(classMap.get(key));
-                printErrors(checkerErrorHandler);
-            }
-        }
+        checkTypes();
         if(verbose) { System.out.println("Type Checking Completed"); }
 
         return root;
     }
 
+    /**
+     * Compares the classes of the program with those of the last analysis,
+     * if incremental, and keeps the states of the unchanged classes.  The AST
+     * node analyzed last time replaces an unchanged one in the program, moved
+     * to its position, so it keeps the types set by the checker.  Any class
+     * is taken as changed if there is no last analysis to reuse or if the
+     * program has several classes of a name.  A class moved to another file
+     * is changed, the filename being part of the source of the class.
+     *
+     * @param previous the states of the classes of the last analysis, or null
+     */
+    private void findChangedClasses(Map<String, ClassState> previous) {
+        states = new HashMap<>();
+        changedClasses = new HashSet<>();
+        ClassList classList = program.getClassList();
+        Set<String> names = new HashSet<>();
+        unique = true;
+        for(ASTNode classNode : classList) {
+            String name = ((Class_) classNode).getName();
+            unique &= names.add(name) && !BUILTIN_CLASSES.containsKey(name);
+        }
+        if(!incremental || !unique || previous == null) {
+            return;
+        }
+
+        for(int i = 0; i < classList.getSize(); i++) {
+            Class_ node = (Class_) classList.get(i);
+            ClassState state = previous.get(node.getName());
+            if(state == null || !state.isSameClass(node)) {
+                changedClasses.add(node.getName());
+                continue;
+            }
+            if(state.astNode != node) {
+                new PositionShifter(node.getLineNum() - state.astNode.getLineNum(),
+                        node.getStartOffset() - state.astNode.getStartOffset()).shift(state.astNode);
+                classList.set(i, state.astNode);
+            }
+            states.put(node.getName(), state);
+        }
+        for(String name : previous.keySet()) {
+            if(!names.contains(name)) {
+                changedClasses.add(name); // removed
+            }
+        }
+    }
+
+    /**
+     * Finds the classes to check: all of them for a full analysis, and else
+     * the classes changed, those whose superclasses changed, those whose last
+     * check failed, and those depending on any of these.  The members of a
+     * class, inherited ones included, only change if the class or one of its
+     * superclasses changed, so a class only depends on the classes it looked
+     * up when last checked.  The state of a class to check is dropped, and
+     * the types set on its AST are cleared, so it is analyzed as if parsed.
+     */
+    private void findStaleClasses() {
+        staleClasses = new HashSet<>();
+        Map<String, Class_> classNodes = new HashMap<>();
+        for(ASTNode classNode : program.getClassList()) {
+            classNodes.put(((Class_) classNode).getName(), (Class_) classNode);
+        }
+
+        // the classes whose members may have changed, following the chains
+        // of parents by their names, each class once
+        Map<String, Boolean> inheritsChange = new HashMap<>();
+        List<String> chain = new ArrayList<>();
+        for(String start : classNodes.keySet()) {
+            String name = start;
+            Boolean changed = null;
+            while(changed == null) {
+                Class_ node = classNodes.get(name);
+                if(changedClasses.contains(name)) {
+                    changed = true;
+                }
+                else if(inheritsChange.containsKey(name)) {
+                    changed = inheritsChange.get(name);
+                }
+                else if(node == null || node.getParent().equals("")) {
+                    changed = false; // a built-in class, or an undefined one
+                }
+                else {
+                    inheritsChange.put(name, false); // ends a cycle
+                    chain.add(name);
+                    name = node.getParent();
+                }
+            }
+            inheritsChange.putIfAbsent(name, changed);
+            for(String member : chain) {
+                inheritsChange.put(member, changed);
+            }
+            chain.clear();
+        }
+
+        for(Map.Entry<String, Class_> entry : classNodes.entrySet()) {
+            ClassState state = states.get(entry.getKey());
+            boolean stale = state == null || state.dependencies == null || inheritsChange.get(entry.getKey());
+            if(!stale) {
+                for(String dependency : state.dependencies) {
+                    if(changedClasses.contains(dependency) || inheritsChange.getOrDefault(dependency, false)) {
+                        stale = true;
+                        break;
+                    }
+                }
+            }
+            if(stale) {
+                staleClasses.add(entry.getKey());
+                states.remove(entry.getKey());
+            }
+        }
+        if(incremental) {
+            for(ASTNode classNode : program.getClassList()) {
+                if(staleClasses.contains(((Class_) classNode).getName())) {
+                    new TypeEraser().erase(classNode);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses and analyzes the given text, such as the contents of an editor
+     * buffer, without reading any file.  Lexical and syntax errors are
+     * registered with this analyzer's ErrorHandler before the parser throws
+     * its CompilationException.
+     *
+     * @param contents the Bantam Java source to be checked
+     * @param filename the name of the source, used in error messages
+     * @return root of the class hierarchy tree (needed for code generation)
+     */
+    public ClassTreeNode analyze(CharSequence contents, String filename) {
+        this.filename = filename;
+        ASTCache.Key key = this.cache == null ? null : this.cache.keyOf(contents, filename);
+        Program program = key == null ? null : this.cache.load(key);
+        if (program != null) {
+            return this.analyze(program);
+        }
+        Parser parser = new Parser(this.errorHandler);
+        parser.setStackSize(this.stackSize);
+        program = parser.parse(contents, filename);
+        // stored as parsed, before the analysis sets types on it, so that
+        // an AST loaded from the cache is analyzed as a parsed one
+        if (key != null) {
+            this.cache.store(key, program);
+        }
+        return this.analyze(program);
+    }
+
+    /**
+     * Makes analyze(contents, filename) load the AST of an unchanged source
+     * from the cache instead of parsing it, and store the AST of a source
+     * it parses.  By default no cache is used.
+     *
+     * @param cache the cache of ASTs, or null for none
+     */
+    public void setCache(ASTCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Makes each analysis reuse what it can of the last one, for a program
+     * that is edited and analyzed again, as in an editor.  The classes are
+     * compared with those of the last analysis; the environments of the
+     * unchanged classes, and the errors found in them, are kept, and only
+     * the changed classes and those depending on them (subclasses, and the
+     * classes using them as types or calling their methods) are type checked
+     * again.  The AST node of an unchanged class is replaced in the program
+     * by the one analyzed last time, moved to the new position, so that it
+     * keeps the types set on its expressions.  An unchanged class is either
+     * the same Class_ node with the same members, as kept by the
+     * IncrementalParser, or a node with the same source up to its position.
+     * The types set on the classes checked again are cleared first, so the
+     * result is the same as the one of a full analysis of the program as
+     * the Parser built it.
+     * By default each analysis is a full one.
+     *
+     * @param incremental whether to analyze incrementally
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        this.classStates = null;
+    }
+
+    /**
+     * Sets the ErrorHandler the errors of the following analyses are
+     * registered with, such as a new one for each analysis of an editor
+     *
+     * @param errorHandler the ErrorHandler to use for reporting errors
+     */
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Makes the analysis, whose visitors recurse as deep as the AST, run on
+     * a thread with the given stack size, such as DeepStack.DEFAULT_STACK_SIZE.
+     * By default it runs on the caller's thread.
+     *
+     * @param stackSize the stack size in bytes, or 0 to analyze on the caller's thread
+     */
+    public void setStackSize(long stackSize) {
+        this.stackSize = stackSize;
+    }
+
     /**
      * @return the ErrorHandler for this Parser
      */
@@ -184,9 +451,26 @@ public class SemanticAnalyzer
 
     /**
      * Add built-in classes to the classMap.
-     * These are the classes Object, String, Sys, and TextIO
+     * These are the classes Object, String, Sys, and TextIO.  They are built
+     * once, by buildBuiltins, and copied for each analysis: the copies share
+     * the AST nodes and dispatch tables of the built-in classes, and only
+     * their links to the classes of the program are made for each analysis.
      */
     private void addBuiltins() {
+        for (ClassTreeNode builtin : BUILTIN_CLASSES.values()) {
+            classMap.put(builtin.getName(), new ClassTreeNode(builtin, classMap));
+        }
+        root = classMap.get("Object");
+    }
+
+    /**
+     * Builds the built-in classes, in a class map of their own
+     *
+     * @return the class map of Object, String, TextIO and Sys
+     */
+    private static Hashtable<String, ClassTreeNode> buildBuiltins() {
+        Hashtable<String, ClassTreeNode> classMap = new Hashtable<String, ClassTreeNode>();
+
         // create AST node for object
         Class_ astNode = new Class_(-1,
                 "<built-in class>",
@@ -202,9 +486,8 @@ public class SemanticAnalyzer
                         (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1,
                                 null, "null"))))));
 
-        // create a class tree node for object, save in variable root
-        root = new ClassTreeNode(astNode,true, true, this.classMap);
-        // add object class tree node to the mapping
+        // create a class tree node for object, add it to the mapping
+        ClassTreeNode root = new ClassTreeNode(astNode, true, true, classMap);
         classMap.put("Object", root);
 
         // note: String, TextIO, and Sys all have fields that are not shown below.
@@ -256,6 +539,15 @@ public class SemanticAnalyzer
         // create class tree node for Sys, add it to the mapping
         classMap.put("Sys", new ClassTreeNode(astNode, /*built-in?*/true, /*extendable
         ?*/false, classMap));
+
+        // link them to Object, and build their dispatch tables
+        for (ClassTreeNode builtin : classMap.values()) {
+            if (builtin != root) {
+                builtin.setParent(root);
+            }
+        }
+        root.buildDispatchTables();
+        return classMap;
     }
 
     /**
@@ -268,20 +560,75 @@ public class SemanticAnalyzer
     }
 
     /**
-     * creates the inheritance links for all classTreeNodes
+     * creates the inheritance links for all classTreeNodes, in one pass over
+     * the classes: the declared parent of each class is looked up, then the
+     * chain of parents of each class is followed until it reaches a class
+     * already done, so each class is visited once.  A class met twice on the
+     * same chain closes a cycle, whose classes are reported and made to
+     * extend Object.  The descendants are counted afterwards, by numberClasses.
      */
     private void buildInheritance() {
-        //adds inheritance to built-in classes
-        for(String key: classMap.keySet()) {
-            if (!key.equals("Object")) {
-                classMap.get(key).setParent(classMap.get("Object"));
+        ClassTreeNode object = classMap.get("Object");
+
+        // the declared parent of each class, built-in classes first, then the
+        // user classes in source order
+        Map<ClassTreeNode, ClassTreeNode> parents = new LinkedHashMap<>();
+        for(ClassTreeNode classTreeNode : classMap.values()) {
+            if(classTreeNode.isBuiltIn() && classTreeNode != object) {
+                parents.put(classTreeNode, object);
             }
         }
+        for(ASTNode classNode : program.getClassList()) {
+            Class_ node = (Class_) classNode;
+            ClassTreeNode classTreeNode = classMap.get(node.getName());
+            if(classTreeNode.getASTNode() != node || classTreeNode == object) {
+                continue; // a class of the same name replaced it in the class map
+            }
+            ClassTreeNode parent = object;
+            if(!node.getParent().equals("")) {
+                parent = classMap.get(node.getParent());
+                if(parent == null) {
+                    errorHandler.register(Error.Kind.SEMANT_ERROR, node.getFilename(),
+                            node.getLineNum(), "The parent class " + node.getParent()
+                                    + " of class " + node.getName() + " is not defined.");
+                    parent = object;
+                }
+            }
+            parents.put(classTreeNode, parent);
+        }
 
+        // the position of each class on the chain being followed, or -1 once done
+        Map<ClassTreeNode, Integer> positions = new HashMap<>();
+        List<ClassTreeNode> chain = new ArrayList<>();
+        for(ClassTreeNode start : parents.keySet()) {
+            ClassTreeNode ctn = start;
+            while(ctn != null && ctn != object && !positions.containsKey(ctn)) {
+                positions.put(ctn, chain.size());
+                chain.add(ctn);
+                ctn = parents.get(ctn);
+            }
+            Integer position = ctn == null ? null : positions.get(ctn);
+            if(position != null && position >= 0) {
+                List<ClassTreeNode> cycle = chain.subList(position, chain.size());
+                StringBuilder classes = new StringBuilder();
+                for(ClassTreeNode member : cycle) {
+                    classes.append(member.getName()).append(" extends ");
+                    parents.put(member, object);
+                }
+                Class_ node = ctn.getASTNode();
+                errorHandler.register(Error.Kind.SEMANT_ERROR, node.getFilename(),
+                        node.getLineNum(), "Inheritance cycle found: " + classes
+                                + ctn.getName() + ".");
+            }
+            for(ClassTreeNode member : chain) {
+                positions.put(member, -1);
+            }
+            chain.clear();
+        }
 
-        //adds inheritance to user classes
-        InheritanceBuilder inheritanceBuilder = new InheritanceBuilder();
-        inheritanceBuilder.build();
+        for(Map.Entry<ClassTreeNode, ClassTreeNode> link : parents.entrySet()) {
+            link.getKey().setParent(link.getValue());
+        }
     }
 
     /**
@@ -296,69 +643,212 @@ public class SemanticAnalyzer
     }
 
     /**
-     * Visitor for traversing the AST to build the ClassTreeNodes
+     * Type checks the user-defined classes, in parallel if there are several
+     * workers.  Each class is checked by its own fork-join task, with its own
+     * TypeCheckerVisitor and ErrorHandler; the symbol tables of the classes
+     * are only read, the scopes of the methods being entered in a clone of
+     * the table of the class, and the classes are looked up in a HashMap
+     * copy of the class map, so the checkers do not lock the Hashtable.
+     * The errors of each class are then registered with this analyzer's
+     * ErrorHandler, class by class in source order, up to the first class
+     * whose checking failed, whose exception is rethrown, so the result
+     * does not depend on the order in which the tasks ran.
      */
-    private class ClassTreeNodeBuilder extends Visitor {
-        ClassTreeNode classTreeNode;
+    private void checkTypes() {
+        Set<ClassTreeNode> classes = new LinkedHashSet<>();
+        for(int i = 0; i < program.getClassList().getSize(); i++) {
+            String name = ((Class_) program.getClassList().get(i)).getName();
+            if(!name.equals("Object") && !name.equals("String") && !name.equals("TextIO")
+                    && !name.equals("Sys") && classMap.get(name) != null) {
+                classes.add(classMap.get(name));
+            }
+        }
 
-        public void build() {
-            program.accept(this);
+        Map<String, ClassTreeNode> classTreeNodes = new HashMap<>(classMap);
+        List<TypeCheckTask> tasks = new ArrayList<>(classes.size());
+        for(ClassTreeNode classTreeNode : classes) {
+            if(!incremental || staleClasses.contains(classTreeNode.getName())) {
+                tasks.add(new TypeCheckTask(classTreeNode, classTreeNodes));
+            }
+        }
+        // with a single worker the tasks would only add overhead
+        if(ForkJoinPool.getCommonPoolParallelism() > 1 && tasks.size() > 1) {
+            ForkJoinTask.invokeAll(tasks);
+        }
+
+        // every class is checked, as by the workers, so the types set on the
+        // AST do not depend on the number of workers either
+        for(TypeCheckTask task : tasks) {
+            if(!task.checked) {
+                // not run yet, or too deep for a worker's stack, in which
+                // case the types it set so far are cleared first
+                if(task.overflowed) {
+                    new TypeEraser().erase(task.classTreeNode.getASTNode());
+                }
+                task.check();
+            }
+        }
+        for(TypeCheckTask task : tasks) {
+            ClassState state = states.get(task.classTreeNode.getName());
+            state.checkErrors = new ArrayList<>(task.errors.getErrorList());
+            state.checkLine = task.classTreeNode.getASTNode().getLineNum();
+            state.dependencies = task.failure == null ? task.dependencies : null;
+        }
+        // the states are complete, and kept only if they can be reused
+        classStates = incremental && unique ? states : null;
+
+        Iterator<TypeCheckTask> checked = tasks.iterator();
+        TypeCheckTask task = checked.hasNext() ? checked.next() : null;
+        for(ClassTreeNode classTreeNode : classes) {
+            ClassState state = states.get(classTreeNode.getName());
+            int line = classTreeNode.getASTNode().getLineNum();
+            ClassState.registerErrors(state.checkErrors, line - state.checkLine, errorHandler);
+            if(task != null && task.classTreeNode == classTreeNode) {
+                if(task.failure != null) {
+                    throw task.failure;
+                }
+                task = checked.hasNext() ? checked.next() : null;
+            }
+        }
+    }
+
+    /**
+     * A fork-join task type checking one class with its own TypeCheckerVisitor
+     * and ErrorHandler
+     */
+    private static class TypeCheckTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ClassTreeNode classTreeNode;
+        private final Map<String, ClassTreeNode> classMap; // only read
+        private ErrorHandler errors;
+        private Set<String> dependencies;   // the classes looked up by the checker
+        private RuntimeException failure;   // what stopped the checking, if anything
+        private boolean checked;            // false until checked without overflowing the stack
+        private boolean overflowed;         // whether a worker's stack overflowed checking it
+
+        TypeCheckTask(ClassTreeNode classTreeNode, Map<String, ClassTreeNode> classMap) {
+            this.classTreeNode = classTreeNode;
+            this.classMap = classMap;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                check();
+            } catch(StackOverflowError e) {
+                // left unchecked, to be checked on the analyzer's thread
+                overflowed = true;
+            }
+        }
+
+        void check() {
+            errors = new ErrorHandler();
+            failure = null;
+            try {
+                TypeCheckerVisitor checker = new TypeCheckerVisitor(errors, classMap);
+                dependencies = checker.getDependencies();
+                checker.checkTypes(classTreeNode);
+            } catch(RuntimeException e) {
+                failure = e;
+            }
+            checked = true;
+        }
+    }
+
+    /**
+     * What an analysis found of a class, kept to be reused by the next
+     * incremental analysis if the class is unchanged
+     */
+    private static class ClassState {
+        private final Class_ astNode;
+        private final ASTNode[] members;          // the members when analyzed
+        private FlatAST encoding;                 // the source of the class, encoded when first compared
+        private final ClassTreeNode classTreeNode;
+        private List<Error> environmentErrors;    // null until its environment is built
+        private int environmentLine;              // the line of the class then
+        private List<Error> checkErrors = Collections.emptyList();
+        private int checkLine;                    // the line of the class when type checked
+        private Set<String> dependencies;         // null if it must be type checked
+
+        ClassState(Class_ astNode, ClassTreeNode classTreeNode) {
+            this.astNode = astNode;
+            this.members = toArray(astNode.getMemberList());
+            this.classTreeNode = classTreeNode;
         }
 
         /**
-         * Visits each class Node and builds appropriate classTreeNodes for each
-         * @param node the class node
-         * @return null
+         * @param node a class of the new program
+         * @return true if it has the same source as this class, up to its
+         *         position; the class is only encoded if it is another node
          */
-        @Override
-        public Object visit(Class_ node) {
-            //creates a new classTreeNode for the class
-            classTreeNode = new ClassTreeNode(node, false, true, classMap);
-            classMap.put(node.getName(), classTreeNode);
+        boolean isSameClass(Class_ node) {
+            if(node == astNode) {
+                return Arrays.equals(members, toArray(node.getMemberList()));
+            }
+            if(!Arrays.equals(members, toArray(astNode.getMemberList()))) {
+                return false; // edited in place since
+            }
+            if(encoding == null) {
+                encoding = FlatAST.encode(astNode);
+            }
+            return encoding.sameSource(FlatAST.encode(node));
+        }
 
-            //doesn't visit children yet, since we're just building the CTN
-            return true;
+        /**
+         * registers the errors found in a class with an ErrorHandler,
+         * moved by the number of lines the class moved since
+         */
+        static void registerErrors(List<Error> errors, int lineDelta, ErrorHandler errorHandler) {
+            for(Error error : errors) {
+                errorHandler.register(error.getKind(), error.getFilename(),
+                        error.getLineNum() + lineDelta, error.getMessage());
+            }
+        }
+
+        private static ASTNode[] toArray(ListNode list) {
+            ASTNode[] nodes = new ASTNode[list.getSize()];
+            for(int i = 0; i < nodes.length; i++) {
+                nodes[i] = list.get(i);
+            }
+            return nodes;
         }
     }
 
     /**
-     * Visitor for traversing the AST to create inheritance links between ClassTreeNodes
+     * Visitor for traversing the AST to build the ClassTreeNodes
      */
-    private class InheritanceBuilder extends Visitor {
+    private class ClassTreeNodeBuilder extends Visitor {
         ClassTreeNode classTreeNode;
 
         public void build() {
             program.accept(this);
         }
 
+        /**
+         * Visits each class Node and builds appropriate classTreeNodes for each
+         * @param node the class node
+         * @return null
+         */
         @Override
         public Object visit(Class_ node) {
-            classTreeNode = classMap.get(node.getName());
-
-            int numObjectDescendants = classMap.get("Object").getNumDescendants();
-            //sets parent
-            if (!node.getParent().equals("")) {
-                classTreeNode.setParent(classMap.get(node.getParent()));
-                //see line 180 of ClassTreeNode
-                //current attempt - see if the Object has a new descendent. if not, there's a cycle
-                //if cycle, set the parent's parent to object as well as the current class's parent to object
-                if (numObjectDescendants == classMap.get("Object").getNumDescendants()) {
-                    classTreeNode.getParent().setParent(classMap.get("Object"));
-                    classTreeNode.getParent().removeChild(classTreeNode);
-                    classTreeNode.setParent(classMap.get("Object"));
-                    errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
-                            "Inheritance Cycle found between " + classTreeNode.getName() + "and "
-                                    + classTreeNode.getParent().getName() );
-                }
+            //creates a new classTreeNode for the class, unless it is kept
+            //from the last analysis, with its environment and dispatch table,
+            //neither it nor its superclasses having changed
+            ClassState state = states.get(node.getName());
+            if (state != null && state.astNode == node) {
+                classTreeNode = state.classTreeNode;
+                classTreeNode.detach();
+                classTreeNode.keepDispatchTable();
             }
             else {
-                classMap.get("Object").addChild(classTreeNode);
-                classTreeNode.setParent(classMap.get("Object"));
+                classTreeNode = new ClassTreeNode(node, false, true, classMap);
+                states.put(node.getName(), new ClassState(node, classTreeNode));
             }
+            classMap.put(node.getName(), classTreeNode);
 
-
-
-            return null;
+            //doesn't visit children yet, since we're just building the CTN
+            return true;
         }
     }
 
@@ -376,6 +866,7 @@ public class SemanticAnalyzer
     private class ClassEnvironmentBuilder extends Visitor {
 
         private ClassTreeNode currentClass;
+        private ErrorHandler classErrors; // the errors found in the current class
 
         public void build() {
             currentClass = null;
@@ -399,16 +890,33 @@ public class SemanticAnalyzer
             currentClass.getVarSymbolTable().setParent(
                     currentClass.getParent().getMethodSymbolTable());
 
-            //enter current node's Symbol Table's scope
-            currentClass.getVarSymbolTable().enterScope();
-            currentClass.getMethodSymbolTable().enterScope();
+            //the environment of a class kept from the last analysis only
+            //depends on its own members, so it is kept with its errors
+            ClassState state = states.get(node.getName());
+            if (state.astNode != node || state.environmentErrors == null) {
+                classErrors = new ErrorHandler();
 
-            //traverse
-            node.getMemberList().accept(this);
+                //enter current node's Symbol Table's scope
+                currentClass.getVarSymbolTable().enterScope();
+                currentClass.getMethodSymbolTable().enterScope();
 
-            //exit the current class's Symbol table's scopes.
-            currentClass.getVarSymbolTable().exitScope();
-            currentClass.getMethodSymbolTable().exitScope();
+                //traverse
+                node.getMemberList().accept(this);
+
+                //exit the current class's Symbol table's scopes.
+                currentClass.getVarSymbolTable().exitScope();
+                currentClass.getMethodSymbolTable().exitScope();
+
+                ClassState.registerErrors(classErrors.getErrorList(), 0, errorHandler);
+                if (state.astNode == node) { // not an earlier class of the same name
+                    state.environmentErrors = new ArrayList<>(classErrors.getErrorList());
+                    state.environmentLine = node.getLineNum();
+                }
+            }
+            else {
+                ClassState.registerErrors(state.environmentErrors,
+                        node.getLineNum() - state.environmentLine, errorHandler);
+            }
 
             return null;
         }
@@ -423,12 +931,14 @@ public class SemanticAnalyzer
         public Object visit(Field node) {
             //standard check for reserved identifiers ("null", "this", "super", "void", "int", "boolean")
             if (reservedIdentifiers.contains(node.getName())) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Name " + node.getName() + " is reserved and cannot be used.");
             }
             //check to see if a Field of this name has already been declared in current class symbol table (an error)
             if (currentClass.getVarSymbolTable().peek(node.getName()) != null) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Field of name " + node.getName() +
                                 " previously declared in class " + currentClass.getName() + ".");
             }
@@ -450,12 +960,14 @@ public class SemanticAnalyzer
 
             //standard check for reserved identifiers ("null", "this", "super", "void", "int", "boolean")
             if (reservedIdentifiers.contains(node.getName())) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Name " + node.getName() + " is reserved and cannot be used.");
             }
             //check to see if a Method of this name has already been declared in current class symbol table (an error)
             if (currentClass.getMethodSymbolTable().peek(node.getName()) != null) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Method of name " + node.getName() + " previously declared in class "
                                 + currentClass.getName() + ".");
             }
@@ -489,12 +1001,14 @@ public class SemanticAnalyzer
         public Object visit(Formal node) {
             //standard check for reserved identifiers ("null", "this", "super", "void", "int", "boolean")
             if (reservedIdentifiers.contains(node.getName())) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Name " + node.getName() + " is reserved and cannot be used.");
             }
             //check to see if a parameter of this name has already been declared in current class symbol table (an error)
             if (currentClass.getVarSymbolTable().peek(node.getName()) != null) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Parameter of name " + node.getName()
                                 + " previously declared in class " + currentClass.getName() + ".");
             }
@@ -515,18 +1029,21 @@ public class SemanticAnalyzer
         public Object visit(DeclStmt node) {
             //standard check for reserved identifiers ("null", "this", "super", "void", "int", "boolean")
             if (reservedIdentifiers.contains(node.getName())) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Name " + node.getName() + " is reserved and cannot be used.");
             }
             //check to see if a Var of this name has already been declared in current class symbol table (an error)
             if (currentClass.getVarSymbolTable().peek(node.getName()) != null) {
 
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Var of name " + node.getName() + " previously declared in class " + currentClass.getName());
             }
             //check if the initialization statement is null
             if (node.getInit() == null) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, filename, node.getLineNum(),
+                classErrors.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "Var of name " + node.getName() + " cannot be initialized to type null.");
             }
             //otherwise add it
@@ -625,27 +1142,45 @@ public class SemanticAnalyzer
         // denotes whether or not the program was successfully parsed
         Boolean parsingSuccessful;
 
+        // the ASTs of the files unchanged since the last run are not parsed again
+        ASTCache cache = new ASTCache(Paths.get(ASTCache.DEFAULT_DIRECTORY));
+        ASTCache.Key key;
+        boolean cached;
+
 
         // loop through the file names
         for (String arg : args) {
-            //sets current filename for use with error handler
-            filename = arg;
-
             // reset parser data
             parseErrorHandler = new ErrorHandler();
             parser = new Parser(parseErrorHandler);
+            parser.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
             ast = null;
 
             // reset analyzer data
             checkerErrorHandler = new ErrorHandler();
             semanticAnalyzer = new SemanticAnalyzer(checkerErrorHandler);
+            semanticAnalyzer.setStackSize(DeepStack.DEFAULT_STACK_SIZE);
+            //sets current filename for use with error handler
+            semanticAnalyzer.filename = arg;
 
             System.out.println("\n\nCOMPILING: " + arg);
 
-            // try to scan and parse the file
+            // load the AST of an unchanged file, or try to scan and parse the file
+            key = cache.keyOf(arg);
+            ast = key == null ? null : cache.load(key);
+            cached = ast != null;
             try {
-                ast = parser.parse(arg);
-                System.out.println("\nParsing Successful");
+                if (cached) {
+                    System.out.println("\nAST Loaded From Cache");
+                }
+                else {
+                    ast = key == null ? parser.parse(arg) : parser.parse(key.getContents(), arg);
+                    System.out.println("\nParsing Successful");
+                    // stored before the analysis sets types on it
+                    if (key != null) {
+                        cache.store(key, ast);
+                    }
+                }
                 parsingSuccessful = true;
             } catch (CompilationException e) {
                 System.out.println("Parse Failed");
@@ -17,7 +17,8 @@ import java.util.*;
 /**
  * This class extends the visitor class and visits
  * most nodes and performs type checks on their
- * operations
+ * operations.  Type names are canonical, see Names,
+ * so they are compared with ==
  *
  * Completed by:
  * @author Lucas DeGraw, Jackie Hang, Chris Marcello
@@ -28,12 +29,28 @@ public class TypeCheckerVisitor extends Visitor {
     private ClassTreeNode currentClass;
     private SymbolTable currentSymbolTable;
     private ErrorHandler errorHandler;
+    private Set<String> dependencies = new HashSet<>();
+    private Map<String, ClassTreeNode> classMap; // the classes, only read
 
     // sets the error handler upon initialization
     public TypeCheckerVisitor(ErrorHandler errHandler) {
         errorHandler = errHandler;
     }
 
+    /**
+     * Makes a checker looking classes up in the given map instead of the
+     * class map of the class tree nodes, a Hashtable whose lookups all lock
+     * it.  Checkers running in parallel are given an unsynchronized copy of
+     * the class map, which none of them changes.
+     *
+     * @param errHandler the error handler of the errors found
+     * @param classMap   the class tree nodes of the classes, by name
+     */
+    public TypeCheckerVisitor(ErrorHandler errHandler, Map<String, ClassTreeNode> classMap) {
+        errorHandler = errHandler;
+        this.classMap = classMap;
+    }
+
     /**
      * begins traversal of the AST to perform type checking
      *
@@ -43,9 +60,14 @@ public class TypeCheckerVisitor extends Visitor {
 
         // save the top level class
         currentClass = curClass;
+        if (classMap == null) {
+            classMap = curClass.getClassMap();
+        }
 
-        // save top level symbol table
-        currentSymbolTable = currentClass.getVarSymbolTable();
+        // save top level symbol table; the scopes of the methods are entered
+        // in a clone, so classes can be checked in parallel, sharing the
+        // tables of the superclasses, which are only read
+        currentSymbolTable = currentClass.getVarSymbolTable().shallowClone();
 
         // get class root
         Class_ root = currentClass.getASTNode();
@@ -55,6 +77,27 @@ public class TypeCheckerVisitor extends Visitor {
 
     }
 
+    /**
+     * @return the names of the classes looked up while checking the class,
+     *         whether they are defined or not, so that the class can be
+     *         checked again when one of them changes
+     */
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Helper method to look up a class, recording that the class being
+     * checked depends on it
+     *
+     * @param name the name of a class
+     * @return the class tree node of the class, or null if it is not defined
+     */
+    private ClassTreeNode lookupClass(String name) {
+        dependencies.add(name);
+        return classMap.get(name);
+    }
+
     /**
      * Helper method to find if the type is a defined type
      *
@@ -62,12 +105,16 @@ public class TypeCheckerVisitor extends Visitor {
      * @return boolean denoting whether or not the type
      */
     private boolean isDefinedType(String type) {
-        return currentClass.getClassMap().containsKey(type) || type.equals("boolean")
-                || type.equals("int") || type.equals("String");
+        return lookupClass(type) != null || type == "boolean"
+                || type == "int" || type == "String";
     }
 
     /**
-     * Helper method to check if nodeType is a subtype of targetType
+     * Helper method to check if nodeType is a subtype of targetType.
+     * A primitive type is a subtype of itself only, and an array type is a
+     * subtype of Object and of the array types of the supertypes of its
+     * element type.  Classes are compared by their positions in the
+     * numbered class hierarchy tree, in constant time.
      *
      * @param nodeType type of node
      * @param targetType type against which nodeType is being checked
@@ -76,25 +123,20 @@ public class TypeCheckerVisitor extends Visitor {
     private boolean isSubType(String nodeType, String targetType) {
 
         // if the node types are the exact same type, return true
-        if (nodeType.equals(targetType)) return true;
-
-        // initialize a temp node
-        ClassTreeNode curNode;
-
-        // loop until reaching the top of the tree
-        while (!nodeType.equals("Object")) {
-
-            if (nodeType.equals(targetType)) {  // if nodes are the same return true
-                return true;
-            }
-
-            // get the type's associated tree node
-            curNode = currentClass.getClassMap().get(nodeType);
-
-            // set the node type to its parent type
-            nodeType = curNode.getParent().getName();
+        if (nodeType == targetType) return true;
+        if (nodeType == null || targetType == null) return false;
+
+        // compare the element types of arrays
+        if (nodeType.endsWith("[]")) {
+            return targetType == "Object" || targetType.endsWith("[]")
+                    && isSubType(nodeType.substring(0, nodeType.length() - 2),
+                                 targetType.substring(0, targetType.length() - 2));
         }
-        return false;
+
+        // get the types' associated tree nodes, null for primitive types
+        ClassTreeNode node = lookupClass(nodeType);
+        ClassTreeNode target = lookupClass(targetType);
+        return node != null && target != null && node.isSubclassOf(target);
     }
 
     /**
@@ -110,7 +152,7 @@ public class TypeCheckerVisitor extends Visitor {
         node.getIndex().accept(this);
 
         // if the index to the array expresssion is not an integer, register an error
-        if (!node.getIndex().getExprType().equals("int")) {
+        if (node.getIndex().getExprType() != "int") {
 
             String errorMsg = "The index of the array assignment is a" +
                     node.getIndex().getExprType() + " and it should be an integer.";
@@ -125,7 +167,7 @@ public class TypeCheckerVisitor extends Visitor {
         String typeOfArray = (String) currentSymbolTable.lookup(node.getName());
 
         // removing '[]' from the end
-        typeOfArray = typeOfArray.substring(0, typeOfArray.length()-2); //type of Array
+        typeOfArray = Names.intern(typeOfArray.substring(0, typeOfArray.length()-2)); //type of Array
 
         // get the type of the right side of the assignment expression
         String assignType = node.getExpr().getExprType();
@@ -162,7 +204,7 @@ public class TypeCheckerVisitor extends Visitor {
         }
         node.getIndex().accept(this);
 
-        if (!node.getIndex().getExprType().equals("int")) {
+        if (node.getIndex().getExprType() != "int") {
 
             String errorMsg = "The index of the array assignment is a" +
                         node.getIndex().getExprType() + " and it should be an integer.";
@@ -171,7 +213,7 @@ public class TypeCheckerVisitor extends Visitor {
         }
 
         String typeOfArray = (String) currentSymbolTable.lookup(node.getName());
-        typeOfArray = typeOfArray.substring(0, typeOfArray.length()-2); //type of Array
+        typeOfArray = Names.intern(typeOfArray.substring(0, typeOfArray.length()-2)); //type of Array
         node.setExprType(typeOfArray);
         return null;
     }
@@ -223,7 +265,7 @@ public class TypeCheckerVisitor extends Visitor {
         String type2 = node.getRightExpr().getExprType();
 
         // if the types are not equal or the first is not an int
-        if (!type2.equals(type1) || !type1.equals("int")) {
+        if (type2 != type1 || type1 != "int") {
 
             String errorMsg = "The two values being used in the arithmetic "+ type +
                     " are of types " + type1 + " and " + type2
@@ -354,7 +396,7 @@ public class TypeCheckerVisitor extends Visitor {
         String type2 = node.getRightExpr().getExprType();
 
         //if they are not both ints
-        if (!type2.equals(type1) || !type1.equals("int")) {
+        if (type2 != type1 || type1 != "int") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The two values being compared for " + typeOfComparison+ " are of types " + type1
@@ -418,7 +460,7 @@ public class TypeCheckerVisitor extends Visitor {
         node.getRightExpr().accept(this);
         String type1 = node.getLeftExpr().getExprType();
         String type2 = node.getRightExpr().getExprType();
-        if (!type2.equals(type1) || !type1.equals("boolean")) {
+        if (type2 != type1 || type1 != "boolean") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The two values being compared are of types " + type1
@@ -439,7 +481,7 @@ public class TypeCheckerVisitor extends Visitor {
         node.getRightExpr().accept(this);
         String type1 = node.getLeftExpr().getExprType();
         String type2 = node.getRightExpr().getExprType();
-        if (!type2.equals(type1) || !type1.equals("boolean")) {
+        if (type2 != type1 || type1 != "boolean") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The two values being compared are of types " + type1
@@ -563,20 +605,43 @@ public class TypeCheckerVisitor extends Visitor {
      */
     public Object visit(DispatchExpr node) {
 
-
-        //visit the ref expr- check to see if the class method symbol table has that method
+        // the method is looked up in the static type of the ref expr, the
+        // current class if there is none
         Expr refExpr = node.getRefExpr();
-        refExpr.accept(this);
+        ClassTreeNode receiverClass = currentClass;
+        if (refExpr instanceof VarExpr && ((VarExpr) refExpr).getRef() == null
+                && (((VarExpr) refExpr).getName() == "this"
+                    || ((VarExpr) refExpr).getName() == "super")) {
+            // this and super have the types of the class and of its parent
+            if (((VarExpr) refExpr).getName() == "super") {
+                receiverClass = currentClass.getParent();
+            }
+            refExpr.setExprType(receiverClass.getName());
+        }
+        else if (refExpr != null) {
+            refExpr.accept(this);
+            String refType = refExpr.getExprType();
+            receiverClass = refType != null && refType.endsWith("[]")
+                    ? lookupClass("Object")
+                    : refType == null ? null : lookupClass(refType);
+            if (receiverClass == null) {
+                errorHandler.register(Error.Kind.SEMANT_ERROR,
+                        currentClass.getASTNode().getFilename(), node.getLineNum(),
+                        "The method " + node.getMethodName() + " cannot be called on " +
+                                "an expression of type " + refType + ".");
+                node.setExprType("Object");
+                return null;
+            }
+        }
 
-        Method methodNode =
-                (Method) currentClass.getMethodSymbolTable()
-                        .lookup(node.getMethodName());
+        // resolved through the dispatch table of the class
+        Method methodNode = receiverClass.lookupMethod(node.getMethodName());
 
         if (methodNode == null) {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
-                    "The method " + node.getMethodName() + "was not found in the method " +
-                            "symbol table.");
+                    "The method " + node.getMethodName() + " was not found in class " +
+                            receiverClass.getName() + ".");
 
             node.setExprType("Object");
             return null;
@@ -584,6 +649,7 @@ public class TypeCheckerVisitor extends Visitor {
 
         // get the parameters being passed in
         ExprList actualParams = node.getActualList();
+        actualParams.accept(this);
 
         // get the acceptable parameters
         FormalList allowedParams = methodNode.getFormalList();
@@ -592,8 +658,8 @@ public class TypeCheckerVisitor extends Visitor {
         compareParamTypes(node, actualParams, allowedParams);
 
 
-        //set type of dispatch expr to the return type of the ref
-        node.setExprType(refExpr.getExprType());
+        //set type of dispatch expr to the return type of the method
+        node.setExprType(methodNode.getReturnType());
 
         return null;
     }
@@ -603,56 +669,40 @@ public class TypeCheckerVisitor extends Visitor {
      * been exhausted, registers appropriate error messages
      *
      * @param node a DispatchExpr node
-     * @param actualParamTypes list of param types passed into DispatchExpr's method
-     * @param allowedParamTypes list of param types allowed for DispatchExpr's method
+     * @param actualParams list of the arguments passed into DispatchExpr's method,
+     *                     already visited
+     * @param allowedParams list of the formal parameters of DispatchExpr's method
      */
-    private void compareParamTypes(DispatchExpr node, ExprList actualParamTypes,
-                                   FormalList allowedParamTypes) {
+    private void compareParamTypes(DispatchExpr node, ExprList actualParams,
+                                   FormalList allowedParams) {
 
         // list of types that cannot be subclassed in Bantam Java
         Set<String> nonObjectTypes = Set.of("int", "boolean", "String");
 
         // get the length of each parameter list
-        int numActualParams = actualParamTypes.getSize();
-        int numAllowedParams = allowedParamTypes.getSize();
+        int numActualParams = actualParams.getSize();
+        int numAllowedParams = allowedParams.getSize();
 
-        // this var gets the greater of the two lengths, used as the loop variable
-        int greaterNumParams =
-                (numActualParams > numAllowedParams) ? numActualParams : numAllowedParams;
+        if (numActualParams != numAllowedParams) {
 
-        // initialize param nodes that will update on each iteration of param comparisons
-        Formal actualArg;
-        Formal allowedArg;
-
-        // loop through the arguments of both lists
-        for (int i = 0; i < greaterNumParams; i++) {
+            String errorMsg = "Actual arguments list takes " + numAllowedParams +
+                              " arguments but " + numActualParams + " were provided";
 
-            try {
-                // try to get the two argument objects
-                actualArg = (Formal) actualParamTypes.get(i);
-                allowedArg = (Formal) allowedParamTypes.get(i);
-
-            } catch (IndexOutOfBoundsException e) {
-
-                String errorMsg = "Actual arguments list takes " + numAllowedParams +
-                                  " arguments but " + numActualParams + " were provided";
-
-                // throw an error
-                errorHandler.register(Error.Kind.SEMANT_ERROR,
-                        currentClass.getASTNode().getFilename(),
-                        node.getLineNum(), errorMsg);
-
-                // stop comparing params because at least one list has been exhausted
-                return;
-            }
+            // throw an error
+            errorHandler.register(Error.Kind.SEMANT_ERROR,
+                    currentClass.getASTNode().getFilename(),
+                    node.getLineNum(), errorMsg);
+        }
 
+        // loop through the arguments of both lists
+        for (int i = 0; i < Math.min(numActualParams, numAllowedParams); i++) {
 
             // get the two argument types
-            String actualType = actualArg.getType();
-            String allowedType = allowedArg.getType();
+            String actualType = ((Expr) actualParams.get(i)).getExprType();
+            String allowedType = ((Formal) allowedParams.get(i)).getType();
 
             // if the types don't match
-            if (!actualType.equals(allowedType)) {
+            if (actualType != allowedType) {
 
                 // if one type is not an object
                 if (nonObjectTypes.contains(actualType)
@@ -749,7 +799,7 @@ public class TypeCheckerVisitor extends Visitor {
 
         if (node.getInitExpr() != null) {
             node.getInitExpr().accept(this);
-            if (!node.getInitExpr().getExprType().equals("int")) {
+            if (node.getInitExpr().getExprType() != "int") {
                 errorHandler.register(Error.Kind.SEMANT_ERROR,
                         currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "The type of the init is " + node.getInitExpr().getExprType()
@@ -761,7 +811,7 @@ public class TypeCheckerVisitor extends Visitor {
 
         node.getPredExpr().accept(this);
         //the predExpr's type is not "boolean"
-        if (!node.getPredExpr().getExprType().equals("boolean")) {
+        if (node.getPredExpr().getExprType() != "boolean") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The type of the predicate is " + node.getPredExpr().getExprType()
@@ -771,7 +821,7 @@ public class TypeCheckerVisitor extends Visitor {
 
         if (node.getUpdateExpr() != null) {
             node.getUpdateExpr().accept(this);
-            if (!node.getInitExpr().getExprType().equals("int")) {
+            if (node.getInitExpr().getExprType() != "int") {
                 errorHandler.register(Error.Kind.SEMANT_ERROR,
                         currentClass.getASTNode().getFilename(), node.getLineNum(),
                         "The type of the init is " + node.getInitExpr().getExprType()
@@ -798,7 +848,7 @@ public class TypeCheckerVisitor extends Visitor {
     public Object visit(IfStmt node) {
         node.getPredExpr().accept(this);
         //the predExpr's type is not "boolean"
-        if (!node.getPredExpr().getExprType().equals("boolean")) {
+        if (node.getPredExpr().getExprType() != "boolean") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The type of the predicate is " + node.getPredExpr().getExprType()
@@ -846,7 +896,7 @@ public class TypeCheckerVisitor extends Visitor {
      */
     public Object visit(Method node) {
         //if the node's return type is not a defined type and not "void"
-        if (!isDefinedType(node.getReturnType()) && !node.getReturnType().equals("void")) {
+        if (!isDefinedType(node.getReturnType()) && node.getReturnType() != "void") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The return type " + node.getReturnType() + " of the method "
@@ -871,7 +921,7 @@ public class TypeCheckerVisitor extends Visitor {
 
         node.getSize().accept(this);
 
-        if (!node.getSize().getExprType().equals("int")) {
+        if (node.getSize().getExprType() != "int") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The size of the array should be an int, but " +
@@ -899,9 +949,7 @@ public class TypeCheckerVisitor extends Visitor {
      */
     public Object visit(NewExpr node) {
         //the node's type is not a defined class type
-        Map curClassMap = currentClass.getClassMap();//.containsKey(type);
-
-        if (!curClassMap.containsKey(node.getType())) {
+        if (lookupClass(node.getType()) == null) {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The type " + node.getType() + " does not exist.");
@@ -932,7 +980,7 @@ public class TypeCheckerVisitor extends Visitor {
     public Object visit(UnaryDecrExpr node) {
         node.getExpr().accept(this);
         String type = node.getExpr().getExprType();
-        if (!type.equals("int")) {
+        if (type != "int") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The -- operator should only be used with int" +
@@ -952,7 +1000,7 @@ public class TypeCheckerVisitor extends Visitor {
     public Object visit(UnaryIncrExpr node) {
         node.getExpr().accept(this);
         String type = node.getExpr().getExprType();
-        if (!type.equals("int")) {
+        if (type != "int") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The ++ operator should only be used with int" +
@@ -974,7 +1022,7 @@ public class TypeCheckerVisitor extends Visitor {
         node.getExpr().accept(this);
         String type = node.getExpr().getExprType();
 
-        if (!type.equals("int")) {
+        if (type != "int") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The - operator should only be used with int" +
@@ -996,7 +1044,7 @@ public class TypeCheckerVisitor extends Visitor {
         // visit child expression node
         node.getExpr().accept(this);
         String type = node.getExpr().getExprType();
-        if (!type.equals("boolean")) {
+        if (type != "boolean") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The not (!) operator applies only to boolean expressions," +
@@ -1036,7 +1084,7 @@ public class TypeCheckerVisitor extends Visitor {
 
         node.getPredExpr().accept(this);
         //the predExpr's type is not "boolean"
-        if (!node.getPredExpr().getExprType().equals("boolean")) {
+        if (node.getPredExpr().getExprType() != "boolean") {
             errorHandler.register(Error.Kind.SEMANT_ERROR,
                     currentClass.getASTNode().getFilename(), node.getLineNum(),
                     "The type of the predicate is " + node.getPredExpr().getExprType()
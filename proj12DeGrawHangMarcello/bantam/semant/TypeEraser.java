@@ -0,0 +1,330 @@
+/*
+ * File: TypeEraser.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.semant;
+
+import proj12DeGrawHangMarcello.bantam.ast.*;
+import proj12DeGrawHangMarcello.bantam.visitor.Visitor;
+
+/**
+ * Clears what the semantic analysis set on the expressions of a subtree,
+ * their types and the cast and instanceof checks, so the subtree is as the
+ * Parser built it.  Used by an incremental SemanticAnalyzer before checking
+ * again a class it kept from an earlier analysis, since the checker reads
+ * the types of some expressions before setting them.
+ * Each visit method clears its node and then visits the node's children,
+ * skipping the null ones the parser can leave in an AST.
+ */
+class TypeEraser extends Visitor
+{
+    /**
+     * clears the given node and all the nodes below it
+     *
+     * @param node the root of the subtree to clear
+     */
+    void erase(ASTNode node) {
+        visitNode(node);
+    }
+
+    /**
+     * visits a child node, which the parser may have left null
+     */
+    private void visitNode(ASTNode node) {
+        if (node != null) {
+            node.accept(this);
+        }
+    }
+
+    /**
+     * visits the elements of a list node
+     */
+    private Object visitList(ListNode node) {
+        for (int i = 0; i < node.getSize(); i++) {
+            visitNode(node.get(i));
+        }
+        return null;
+    }
+
+    public Object visit(Program node) {
+        visitNode(node.getClassList());
+        return null;
+    }
+
+    public Object visit(ClassList node) {
+        return visitList(node);
+    }
+
+    public Object visit(Class_ node) {
+        visitNode(node.getMemberList());
+        return null;
+    }
+
+    public Object visit(MemberList node) {
+        return visitList(node);
+    }
+
+    public Object visit(Field node) {
+        visitNode(node.getInit());
+        return null;
+    }
+
+    public Object visit(Method node) {
+        visitNode(node.getFormalList());
+        visitNode(node.getStmtList());
+        return null;
+    }
+
+    public Object visit(FormalList node) {
+        return visitList(node);
+    }
+
+    public Object visit(Formal node) {
+        return null;
+    }
+
+    public Object visit(StmtList node) {
+        return visitList(node);
+    }
+
+    public Object visit(DeclStmt node) {
+        visitNode(node.getInit());
+        return null;
+    }
+
+    public Object visit(ExprStmt node) {
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(IfStmt node) {
+        visitNode(node.getPredExpr());
+        visitNode(node.getThenStmt());
+        visitNode(node.getElseStmt());
+        return null;
+    }
+
+    public Object visit(WhileStmt node) {
+        visitNode(node.getPredExpr());
+        visitNode(node.getBodyStmt());
+        return null;
+    }
+
+    public Object visit(ForStmt node) {
+        visitNode(node.getInitExpr());
+        visitNode(node.getPredExpr());
+        visitNode(node.getUpdateExpr());
+        visitNode(node.getBodyStmt());
+        return null;
+    }
+
+    public Object visit(BreakStmt node) {
+        return null;
+    }
+
+    public Object visit(ErrorStmt node) {
+        return null;
+    }
+
+    public Object visit(BlockStmt node) {
+        visitNode(node.getStmtList());
+        return null;
+    }
+
+    public Object visit(ReturnStmt node) {
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(ExprList node) {
+        return visitList(node);
+    }
+
+    public Object visit(DispatchExpr node) {
+        node.setExprType(null);
+        visitNode(node.getRefExpr());
+        visitNode(node.getActualList());
+        return null;
+    }
+
+    public Object visit(NewExpr node) {
+        node.setExprType(null);
+        return null;
+    }
+
+    public Object visit(NewArrayExpr node) {
+        node.setExprType(null);
+        visitNode(node.getSize());
+        return null;
+    }
+
+    public Object visit(InstanceofExpr node) {
+        node.setExprType(null);
+        node.setUpCheck(false);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(CastExpr node) {
+        node.setExprType(null);
+        node.setUpCast(false);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(AssignExpr node) {
+        node.setExprType(null);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(ArrayAssignExpr node) {
+        node.setExprType(null);
+        visitNode(node.getIndex());
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompEqExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompNeExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompLtExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompLeqExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompGtExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryCompGeqExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithPlusExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithMinusExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithTimesExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithDivideExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryArithModulusExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryLogicAndExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(BinaryLogicOrExpr node) {
+        node.setExprType(null);
+        visitNode(node.getLeftExpr());
+        visitNode(node.getRightExpr());
+        return null;
+    }
+
+    public Object visit(UnaryNegExpr node) {
+        node.setExprType(null);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(UnaryNotExpr node) {
+        node.setExprType(null);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(UnaryIncrExpr node) {
+        node.setExprType(null);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(UnaryDecrExpr node) {
+        node.setExprType(null);
+        visitNode(node.getExpr());
+        return null;
+    }
+
+    public Object visit(VarExpr node) {
+        node.setExprType(null);
+        visitNode(node.getRef());
+        return null;
+    }
+
+    public Object visit(ArrayExpr node) {
+        node.setExprType(null);
+        visitNode(node.getRef());
+        visitNode(node.getIndex());
+        return null;
+    }
+
+    public Object visit(ConstIntExpr node) {
+        node.setExprType(null);
+        return null;
+    }
+
+    public Object visit(ConstBooleanExpr node) {
+        node.setExprType(null);
+        return null;
+    }
+
+    public Object visit(ConstStringExpr node) {
+        node.setExprType(null);
+        return null;
+    }
+}
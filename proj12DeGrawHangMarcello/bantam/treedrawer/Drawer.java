@@ -18,11 +18,23 @@
 package proj12DeGrawHangMarcello.bantam.treedrawer;
 
 import proj12DeGrawHangMarcello.bantam.ast.Program;
+import proj12DeGrawHangMarcello.bantam.util.DeepStack;
 
 import java.awt.*;
 
 public class Drawer
 {
+    private long stackSize; // the stack size of the layout thread, 0 for the caller's thread
+
+    /**
+     * Makes the layout of the AST, which recurses as deep as the AST, run on
+     * a thread with the given stack size, such as DeepStack.DEFAULT_STACK_SIZE
+     * @param stackSize the stack size in bytes, or 0 to lay out on the caller's thread
+     */
+    public void setStackSize(long stackSize)
+    {
+        this.stackSize = stackSize;
+    }
 
     /**
      * Displays a Swing window with a drawing of the AST
@@ -40,8 +52,12 @@ public class Drawer
         FontMetrics fontMetrics = frame.getFontMetrics(font);
 
         proj12DeGrawHangMarcello.bantam.treedrawer.LayoutVisitor layout = new LayoutVisitor(fontMetrics);
-        proj12DeGrawHangMarcello.bantam.treedrawer.DrawingTree theDrawing = (DrawingTree) AST.accept(layout);
-        theDrawing.position(new Point(2048, 10));
+        proj12DeGrawHangMarcello.bantam.treedrawer.DrawingTree theDrawing =
+                DeepStack.call(stackSize, () -> {
+                    DrawingTree tree = (DrawingTree) AST.accept(layout);
+                    tree.position(new Point(2048, 10));
+                    return tree;
+                });
         panel.setDrawing(theDrawing);
 
         frame.setVisible(true);
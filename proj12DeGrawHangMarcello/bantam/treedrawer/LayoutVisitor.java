@@ -134,6 +134,10 @@ public class LayoutVisitor extends Visitor
         return layoutNullary("Break");
     }
 
+    public Object visit(ErrorStmt node) {
+        return layoutNullary("Error");
+    }
+
     // Expressions
 
     public Object visit(ExprList node) {
@@ -357,10 +361,8 @@ public class LayoutVisitor extends Visitor
             return layoutNullary("Empty" + name);
         DrawingTree dt = layoutCaption(name);
         DrawingTree[] childTrees = new DrawingTree[childNodes.getSize()];
-        int i = 0;
-        for(ASTNode childNode : childNodes) {
-            childTrees[i] = (DrawingTree) childNode.accept(this);
-            i++;
+        for(int i = 0; i < childTrees.length; i++) {
+            childTrees[i] = (DrawingTree) childNodes.get(i).accept(this);
         }
         dt.setChildren(childTrees);
         attachParent(dt, join(dt));
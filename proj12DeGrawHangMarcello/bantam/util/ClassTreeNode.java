@@ -34,11 +34,16 @@
 
 package proj12DeGrawHangMarcello.bantam.util;
 
+import proj12DeGrawHangMarcello.bantam.ast.ASTNode;
 import proj12DeGrawHangMarcello.bantam.ast.Class_;
+import proj12DeGrawHangMarcello.bantam.ast.Method;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * The <tt>ClassTreeNode</tt> class represents a node in the class
@@ -76,15 +81,59 @@ public class ClassTreeNode {
     private ClassTreeNode parent;
 
     /**
-     * A list of ClassTreeNodes of the subclasses of this class
+     * The set of ClassTreeNodes of the subclasses of this class, in the
+     * order they were added
      */
-    private Vector<ClassTreeNode> children = new Vector<ClassTreeNode>();
+    private Set<ClassTreeNode> children = new LinkedHashSet<ClassTreeNode>();
 
     /**
-     * Total number of descendants (strict subclasses)
+     * Total number of descendants (strict subclasses), counted by numberClasses
      */
     private int numDescendants;
 
+    /**
+     * The positions of this class in a preorder and a postorder walk of the
+     * class hierarchy tree, set by numberClasses (-1 if not numbered)
+     */
+    private int preorder = -1;
+    private int postorder = -1;
+
+    /**
+     * The dispatch table (vtable) of this class, set by buildDispatchTables:
+     * the method run for each slot, inherited or declared by this class.  A
+     * method has the slot of the method it overrides, so a slot means the
+     * same method name in this class and in all of its subclasses.
+     * The table maps both the name and the slot of each method to its Slot.
+     * It is a HashTrie sharing all but the paths to the methods declared by
+     * this class with the table of its parent, so its size does not depend
+     * on the number of methods inherited.
+     */
+    private HashTrie.Node dispatchTable = HashTrie.EMPTY;
+
+    /**
+     * The number of slots of the dispatch table
+     */
+    private int numMethods = 0;
+
+    /**
+     * A method of a dispatch table and its slot
+     */
+    private static class Slot {
+        final int index;
+        final Method method;
+
+        Slot(int index, Method method) {
+            this.index = index;
+            this.method = method;
+        }
+    }
+
+    /**
+     * Whether the dispatch table was copied from a prototype, or kept from
+     * an earlier analysis, so it is not built again
+     */
+    private boolean prebuilt = false;
+
     /**
      * The (scoped) variable symbol table for this class used for type checking this class
      */
@@ -112,6 +161,22 @@ public class ClassTreeNode {
         numDescendants = 0;
     }
 
+    /**
+     * ClassTreeNode constructor copying a prototype, such as a built-in class
+     * shared by several class hierarchy trees.  The copy shares the AST node
+     * and the dispatch table of the prototype, which buildDispatchTables
+     * keeps, but has its own symbol tables and no parent or children.
+     *
+     * @param prototype the class tree node copied, whose dispatch table is built
+     * @param classMap  class map for accessing class tree nodes
+     */
+    public ClassTreeNode(ClassTreeNode prototype, Hashtable<String, ClassTreeNode> classMap) {
+        this(prototype.astNode, prototype.builtin, prototype.extendable, classMap);
+        this.dispatchTable = prototype.dispatchTable;
+        this.numMethods = prototype.numMethods;
+        this.prebuilt = true;
+    }
+
     /**
      * Get the name of the class
      *
@@ -159,8 +224,12 @@ public class ClassTreeNode {
 
     /**
      * Set the parent class tree node of this class
-     * Also adds this class to list of parent's children (if not already there)
+     * Also moves this class from the list of children of its former parent
+     * to the one of the new parent (if not already there)
      * In addition, sets variable and method symbol tables to the parent's symbol tables
+     * Takes constant time: the descendants are counted by numberClasses,
+     * once the tree is built, and cycles are not checked (the semantic
+     * analyzer only builds trees without cycles)
      *
      * @param parent the class tree node of the parent class
      */
@@ -170,6 +239,11 @@ public class ClassTreeNode {
         }
 
         if (this.parent != parent) {
+            // this is no longer a subclass of the former parent
+            if (this.parent != null) {
+                this.parent.children.remove(this);
+            }
+
             // set parent of this class
             this.parent = parent;
 
@@ -179,23 +253,6 @@ public class ClassTreeNode {
 
             // also add this as a child of parent (if not already done)
             parent.addChild(this);
-
-            // must update numDescendants the parent and for all ancestors of this parent
-            // WARNING: must be careful -- class hierarchy tree may not be well formed
-            // must avoid cycles
-            Vector<ClassTreeNode> v = new Vector<ClassTreeNode>();
-            for (ClassTreeNode ctn = parent; ctn != null; ctn = ctn.getParent()) {
-                // check for a cycle -- break if we find one (program is wrong and
-                // error should be detected by semantic analyzer)
-                if (v.contains(ctn)) {
-                    break;
-                }
-                // if not cycle then update num descendants by num descendants of
-                // this new child node + 1 (new child)
-                ctn.numDescendants += numDescendants + 1;
-                // add to vector to potentially detect a cycle
-                v.add(ctn);
-            }
         }
     }
 
@@ -210,10 +267,8 @@ public class ClassTreeNode {
             throw new RuntimeException("Internal error: null child in ClassTreeNode.addChild");
         }
 
-        if (!children.contains(child)) {
-            // add child to list of children
-            children.add(child);
-
+        // add child to list of children, if not already there
+        if (children.add(child)) {
             // if this class is not the parent of the child then set it to be
             if (child.getParent() != this) {
                 child.setParent(this);
@@ -228,13 +283,35 @@ public class ClassTreeNode {
      */
     public void removeChild(ClassTreeNode child) {
         if(!children.contains(child)) {
-            throw new RuntimeException("Internal error: child not found in children Vector in ClassTreeNode.removeChild");
+            throw new RuntimeException("Internal error: child not found in children set in ClassTreeNode.removeChild");
         }
-        children.remove(child);
         child.setParent(lookupClass("Object"));
     }
 
 
+    /**
+     * Removes this class from its class hierarchy tree: afterwards it is no
+     * longer a child of its parent and has no parent and no children.  Used
+     * to link a class tree node kept from an earlier analysis into a new tree;
+     * its symbol tables are kept until it is given a new parent.
+     */
+    public void detach() {
+        if (parent != null) {
+            parent.children.remove(this);
+            parent = null;
+        }
+        children.clear();
+    }
+
+    /**
+     * Keeps the dispatch table of this class, built by an earlier analysis,
+     * from being built again by buildDispatchTables.  Only valid if neither
+     * this class nor any of its superclasses changed since.
+     */
+    public void keepDispatchTable() {
+        prebuilt = true;
+    }
+
     /**
      * Get an iterator of class tree nodes representing the immediate subclasses of this class
      *
@@ -254,7 +331,8 @@ public class ClassTreeNode {
     }
 
     /**
-     * Get the number of descendants (strict subclasses) of this class
+     * Get the number of descendants (strict subclasses) of this class,
+     * as counted by the last call of numberClasses on the root
      *
      * @return number of descendants (strict subclasses)
      */
@@ -262,6 +340,170 @@ public class ClassTreeNode {
         return numDescendants;
     }
 
+    /**
+     * Numbers the classes of the tree rooted at this class in preorder and in
+     * postorder, so that isSubclassOf takes constant time, and counts the
+     * descendants of each class, bottom-up as it leaves them.  The walk follows
+     * the children whose parent is the class, with an explicit stack, so it
+     * visits each class once even if the tree is not well formed.
+     * Must be called again if the tree changes.
+     */
+    public void numberClasses() {
+        int pre = 0;
+        int post = 0;
+        Deque<ClassTreeNode> classes = new ArrayDeque<ClassTreeNode>();
+        Deque<Iterator<ClassTreeNode>> childLists = new ArrayDeque<Iterator<ClassTreeNode>>();
+        preorder = pre++;
+        numDescendants = 0;
+        classes.push(this);
+        childLists.push(children.iterator());
+        while (!classes.isEmpty()) {
+            Iterator<ClassTreeNode> childList = childLists.peek();
+            if (childList.hasNext()) {
+                ClassTreeNode child = childList.next();
+                if (child.parent == classes.peek() && child != this) {
+                    child.preorder = pre++;
+                    child.numDescendants = 0;
+                    classes.push(child);
+                    childLists.push(child.children.iterator());
+                }
+            }
+            else {
+                ClassTreeNode ctn = classes.pop();
+                ctn.postorder = post++;
+                childLists.pop();
+                if (!classes.isEmpty()) {
+                    classes.peek().numDescendants += ctn.numDescendants + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Is this class the given class or one of its subclasses?
+     * Takes constant time once the tree is numbered by numberClasses.
+     *
+     * @param ancestor the class tree node of the possible superclass
+     * @return boolean indicating whether this class is a subclass of ancestor
+     */
+    public boolean isSubclassOf(ClassTreeNode ancestor) {
+        if (preorder >= 0) {
+            return ancestor.preorder >= 0 && ancestor.preorder <= preorder
+                    && postorder <= ancestor.postorder;
+        }
+        // not in the numbered tree: follow the parents, stopping on a cycle
+        int steps = classMap.size();
+        for (ClassTreeNode ctn = this; ctn != null && steps >= 0; ctn = ctn.parent, steps--) {
+            if (ctn == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the dispatch tables of the classes of the tree rooted at this
+     * class, walking it from the parents to the children as numberClasses
+     * does.  Each class starts with the table of its parent; a method
+     * overriding an inherited one takes its slot, and a new method is added
+     * at the end, so the slots of a class are those of its superclasses.
+     * Of several methods of a class with the same name, the first is used.
+     * The classes copied from a prototype keep its table.
+     * Must be called again if the tree or the methods of the classes change.
+     */
+    public void buildDispatchTables() {
+        Deque<ClassTreeNode> classes = new ArrayDeque<ClassTreeNode>();
+        if (!prebuilt) {
+            buildDispatchTable(HashTrie.EMPTY, 0);
+        }
+        classes.push(this);
+        while (!classes.isEmpty()) {
+            ClassTreeNode ctn = classes.pop();
+            for (ClassTreeNode child : ctn.children) {
+                if (child.parent == ctn && child != this) {
+                    if (!child.prebuilt) {
+                        child.buildDispatchTable(ctn.dispatchTable, ctn.numMethods);
+                    }
+                    classes.push(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * sets the dispatch table of this class from the one of its parent,
+     * adding the methods declared by this class
+     */
+    private void buildDispatchTable(HashTrie.Node inheritedTable, int inheritedMethods) {
+        HashTrie.Node table = inheritedTable;
+        int size = inheritedMethods;
+        for (ASTNode member : astNode.getMemberList()) {
+            if (!(member instanceof Method)) {
+                continue;
+            }
+            Method method = (Method) member;
+            Slot found = (Slot) HashTrie.get(table, method.getName());
+            int index;
+            if (found == null) {
+                index = size++;
+            }
+            else if (found != HashTrie.get(inheritedTable, method.getName())) {
+                continue; // declared twice in this class
+            }
+            else {
+                index = found.index;
+            }
+            Slot slot = new Slot(index, method);
+            table = HashTrie.put(HashTrie.put(table, method.getName(), slot), index, slot);
+        }
+        dispatchTable = table;
+        numMethods = size;
+    }
+
+    /**
+     * Get the slot of a method in the dispatch table of this class
+     *
+     * @param methodName the name of the method
+     * @return the slot of the method, or -1 if the class has no such method
+     */
+    public int getMethodSlot(String methodName) {
+        Slot slot = (Slot) HashTrie.get(dispatchTable, methodName);
+        return slot == null ? -1 : slot.index;
+    }
+
+    /**
+     * Get the method of a slot of the dispatch table of this class
+     *
+     * @param slot the slot of the method, from getMethodSlot
+     * @return the method run for the slot by objects of this class
+     */
+    public Method getMethod(int slot) {
+        if (slot < 0 || slot >= numMethods) {
+            throw new IndexOutOfBoundsException("No slot " + slot + " in the dispatch table of " + getName());
+        }
+        return ((Slot) HashTrie.get(dispatchTable, slot)).method;
+    }
+
+    /**
+     * Lookup a method of this class, declared or inherited
+     *
+     * @param methodName the name of the method
+     * @return the method run by objects of this class (null if not found)
+     */
+    public Method lookupMethod(String methodName) {
+        Slot slot = (Slot) HashTrie.get(dispatchTable, methodName);
+        return slot == null ? null : slot.method;
+    }
+
+    /**
+     * Get the number of slots of the dispatch table of this class
+     *
+     * @return number of methods, declared or inherited
+     */
+    public int getNumMethods() {
+        return numMethods;
+    }
+
     /**
      * Get the variable symbol table of the class
      *
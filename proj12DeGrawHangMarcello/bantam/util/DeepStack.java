@@ -0,0 +1,69 @@
+/*
+ * File: DeepStack.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs a compilation phase on a thread with a large stack.
+ * The Parser and the visitors walking the AST are recursive, so their stack
+ * depth grows with the nesting of the source: deeply nested blocks, long
+ * if-else chains or expressions such as a + b + c + ... with thousands of
+ * operands overflow the stack of an ordinary thread.  With a stack of
+ * DEFAULT_STACK_SIZE bytes a nesting depth of several hundred thousand can
+ * be compiled.  The stack is reserved, not committed, so only the part
+ * actually used takes memory.
+ */
+public class DeepStack
+{
+    /** the stack size used by the compiler tools, in bytes */
+    public static final long DEFAULT_STACK_SIZE = 1L << 30;
+
+    /**
+     * Runs the task on a new thread with the given stack size and waits for
+     * its result.  Whatever the task throws is rethrown by this method.
+     * @param stackSize the stack size of the thread in bytes, or 0 to run
+     *                  the task on the current thread
+     * @param task the task to be run
+     * @return the result of the task
+     */
+    public static <T> T call(long stackSize, Supplier<T> task) {
+        if (stackSize <= 0) {
+            return task.get();
+        }
+        Object[] result = new Object[1];
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                result[0] = task.get();
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "Bantam deep stack", stackSize);
+        thread.start();
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        }
+        else if (failure[0] instanceof java.lang.Error) {
+            throw (java.lang.Error) failure[0];
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+}
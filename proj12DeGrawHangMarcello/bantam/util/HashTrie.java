@@ -0,0 +1,159 @@
+/*
+ * File: HashTrie.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.util;
+
+import java.util.List;
+
+/**
+ * Persistent hash array mapped tries from keys to values, used by the
+ * SymbolTable for its bindings and by the ClassTreeNode for its dispatch
+ * table.  A trie is never changed: putting a key makes a new trie that
+ * copies only the path to the key and shares the rest with the old one.
+ * A node has a bit for each 5-bit fragment of the hash of the keys under
+ * it and, for each bit, either a key and its value or null and the node of
+ * the next fragment.  Keys with the same hash are in a Collision node.
+ */
+class HashTrie
+{
+    static final Node EMPTY = new Node(0, new Object[0]);
+
+    static class Node
+    {
+        final int bitmap;
+        final Object[] array;
+
+        Node(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+    }
+
+    static class Collision extends Node
+    {
+        final int hash;
+
+        Collision(int hash, Object[] array) {
+            super(0, array);
+            this.hash = hash;
+        }
+    }
+
+    private HashTrie() {
+    }
+
+    /**
+     * @return the value of the key in the trie, or null
+     */
+    static Object get(Node node, Object k) {
+        int hash = k.hashCode();
+        for (int shift = 0; !(node instanceof Collision); shift += 5) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+            Object key = node.array[i];
+            if (key != null) {
+                return key == k || key.equals(k) ? node.array[i + 1] : null;
+            }
+            node = (Node) node.array[i + 1];
+        }
+        for (int i = 0; i < node.array.length; i += 2) {
+            if (node.array[i] == k || node.array[i].equals(k)) {
+                return node.array[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a copy of the trie, with the key mapped to the value
+     */
+    static Node put(Node node, Object k, Object value) {
+        return put(node, k.hashCode(), 0, k, value);
+    }
+
+    private static Node put(Node node, int hash, int shift, Object k, Object value) {
+        if (node instanceof Collision) {
+            Collision collision = (Collision) node;
+            if (collision.hash == hash) {
+                for (int i = 0; i < node.array.length; i += 2) {
+                    if (node.array[i].equals(k)) {
+                        return new Collision(hash, replaced(node.array, i + 1, value));
+                    }
+                }
+                return new Collision(hash, inserted(node.array, node.array.length, k, value));
+            }
+            // a key with another hash: the collision goes one level down
+            int bit = 1 << ((collision.hash >>> shift) & 31);
+            node = new Node(bit, new Object[]{null, collision});
+        }
+        int bit = 1 << ((hash >>> shift) & 31);
+        int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            return new Node(node.bitmap | bit, inserted(node.array, i, k, value));
+        }
+        Object key = node.array[i];
+        if (key == null) {
+            Node child = put((Node) node.array[i + 1], hash, shift + 5, k, value);
+            return new Node(node.bitmap, replaced(node.array, i + 1, child));
+        }
+        if (key == k || key.equals(k)) {
+            return new Node(node.bitmap, replaced(node.array, i + 1, value));
+        }
+        Node child = pair(key, node.array[i + 1], k, hash, value, shift + 5);
+        Object[] array = replaced(node.array, i + 1, child);
+        array[i] = null;
+        return new Node(node.bitmap, array);
+    }
+
+    /**
+     * @return a node holding two keys whose hashes have the same fragments
+     *         before the given shift
+     */
+    private static Node pair(Object k1, Object v1, Object k2, int hash2, Object v2, int shift) {
+        int hash1 = k1.hashCode();
+        if (hash1 == hash2) {
+            return new Collision(hash1, new Object[]{k1, v1, k2, v2});
+        }
+        int bit1 = 1 << ((hash1 >>> shift) & 31);
+        int bit2 = 1 << ((hash2 >>> shift) & 31);
+        if (bit1 == bit2) {
+            return new Node(bit1, new Object[]{null, pair(k1, v1, k2, hash2, v2, shift + 5)});
+        }
+        // in the order of the bits, as unsigned ints since bit 31 is the sign
+        return new Node(bit1 | bit2, Integer.compareUnsigned(bit1, bit2) < 0
+                ? new Object[]{k1, v1, k2, v2} : new Object[]{k2, v2, k1, v1});
+    }
+
+    private static Object[] replaced(Object[] array, int i, Object value) {
+        Object[] copy = array.clone();
+        copy[i] = value;
+        return copy;
+    }
+
+    private static Object[] inserted(Object[] array, int i, Object key, Object value) {
+        Object[] copy = new Object[array.length + 2];
+        System.arraycopy(array, 0, copy, 0, i);
+        copy[i] = key;
+        copy[i + 1] = value;
+        System.arraycopy(array, i, copy, i + 2, array.length - i);
+        return copy;
+    }
+
+    /**
+     * adds the values of all the keys of the trie to the list
+     */
+    static void collect(Node node, List<Object> values) {
+        for (int i = 0; i < node.array.length; i += 2) {
+            if (node.array[i] != null) {
+                values.add(node.array[i + 1]);
+            }
+            else {
+                collect((Node) node.array[i + 1], values);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * File: Names.java
+ * Project 12
+ */
+package proj12DeGrawHangMarcello.bantam.util;
+
+import java.util.Arrays;
+
+/**
+ * The table of the names of a compilation: identifiers, type names and
+ * the types annotated on expressions.  Each distinct name has a single
+ * canonical String, the one of String.intern(), so names can be compared
+ * with == with each other and with string literals such as "int".
+ * The Scanner, the Parser and the SemanticAnalyzer all produce canonical
+ * names, so a name repeated throughout a program is stored once, and the
+ * AST nodes keep the canonical names of the names and types they are given,
+ * so an AST built by other code has canonical names as well.
+ * The table is a cache in front of String.intern(), which finds the name
+ * of a token without making a String for it.  It is shared by all threads
+ * and by the compilations of a JVM, such as those of an editor, so its
+ * size is bounded: once it holds MAX_NAMES names it is emptied.  The names
+ * given out before stay canonical, since String.intern() gives the same
+ * String again for as long as one of them is used.
+ * A name already in the table is found without locking, and adding a name
+ * is synchronized.
+ */
+public class Names
+{
+    /**
+     * The arrays of the table, replaced as a whole when they are grown
+     */
+    private static class Table
+    {
+        final int[] slots;     // open addressing by hash: the index of a name plus 1, 0 if free
+        final String[] names;  // the names, in the order they were added
+
+        Table(int[] slots, String[] names) {
+            this.slots = slots;
+            this.names = names;
+        }
+    }
+
+    /**
+     * The number of names the table holds before it is emptied
+     */
+    public static final int MAX_NAMES = 1 << 16;
+
+    private static volatile Table table = new Table(new int[1024], new String[512]);
+    private static int count = 0; // the number of names, guarded by the class lock
+
+    private Names() {
+    }
+
+    /**
+     * @param chars  an array holding the name, such as the source buffer
+     * @param offset the index of the first char of the name
+     * @param length the number of chars of the name
+     * @return the canonical String of the name; no String is created if the
+     *         name is already in the table
+     */
+    public static String intern(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[offset + i]; // the hash of String.hashCode()
+        }
+        Table current = table;
+        int mask = current.slots.length - 1;
+        for (int i = hash & mask; current.slots[i] != 0; i = (i + 1) & mask) {
+            String name = current.names[current.slots[i] - 1];
+            if (name != null && name.hashCode() == hash && spells(name, chars, offset, length)) {
+                return name;
+            }
+        }
+        return add(new String(chars, offset, length));
+    }
+
+    /**
+     * @param name a name, or null
+     * @return the canonical String of the name, or null
+     */
+    public static String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String found = find(name);
+        return found != null ? found : add(name);
+    }
+
+    /**
+     * @return the name of the table equal to the given one, or null
+     */
+    private static String find(String name) {
+        Table current = table;
+        int index = indexOf(current, name);
+        return index < 0 ? null : current.names[current.slots[index] - 1];
+    }
+
+    /**
+     * @return the index in the slots of the table of the given name, or -1;
+     *         the name of the slot is null if it is still being added
+     */
+    private static int indexOf(Table current, String name) {
+        int hash = name.hashCode();
+        int mask = current.slots.length - 1;
+        for (int i = hash & mask; current.slots[i] != 0; i = (i + 1) & mask) {
+            String found = current.names[current.slots[i] - 1];
+            if (found == null || found == name || found.hashCode() == hash && found.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * adds a name, unless another thread added it first
+     * @return the canonical String of the name
+     */
+    private static synchronized String add(String name) {
+        Table current = table;
+        int hash = name.hashCode();
+        int mask = current.slots.length - 1;
+        int i = hash & mask;
+        for (; current.slots[i] != 0; i = (i + 1) & mask) {
+            String found = current.names[current.slots[i] - 1];
+            if (found.hashCode() == hash && found.equals(name)) {
+                return found;
+            }
+        }
+        String canonical = name.intern();
+        if (count == MAX_NAMES) {
+            // emptied: readers still using the old table find their names in it
+            current = new Table(new int[1024], new String[512]);
+            count = 0;
+            i = hash & (current.slots.length - 1);
+            table = current;
+        }
+        if (count == current.names.length || 2 * (count + 1) > current.slots.length) {
+            table = grow(current, canonical);
+        }
+        else {
+            // the name is set before its slot, so a reader finding the
+            // slot without its name looks again under the lock
+            current.names[count] = canonical;
+            current.slots[i] = count + 1;
+        }
+        count++;
+        return canonical;
+    }
+
+    /**
+     * @return a copy of the table, twice as large, holding the new name as
+     *         well; it is complete before it replaces the table
+     */
+    private static Table grow(Table current, String added) {
+        String[] names = Arrays.copyOf(current.names, current.names.length * 2);
+        names[count] = added;
+        int[] slots = new int[current.slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id <= count; id++) {
+            int i = names[id].hashCode() & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+        return new Table(slots, names);
+    }
+
+    private static boolean spells(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
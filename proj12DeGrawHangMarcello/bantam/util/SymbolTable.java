@@ -34,60 +34,166 @@
 
 package proj12DeGrawHangMarcello.bantam.util;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Class for representing a class symbol table
+ * Class for representing a class symbol table.
+ * The symbols of all the scopes of a table are in a single HashTrie, a
+ * persistent hash array mapped trie, mapping each symbol to the chain of its
+ * bindings, innermost scope first.  The trie and the bindings are never changed:
+ * adding or setting a symbol makes a new trie that copies only the path
+ * to the symbol and shares the rest with the old one.  Entering a scope
+ * saves the current trie and exiting it restores the saved one, so both
+ * take constant time, and a clone shares the tries and scopes of the
+ * table, so cloning copies no bindings.
+ * A symbol not bound in the table is looked up in the ancestors of the
+ * table, and the binding found, if any, is kept in a cache of the table,
+ * so a symbol is looked up through the ancestors once; the caches of the
+ * tables of a class hierarchy are emptied when a parent table of the
+ * hierarchy changes, those of other hierarchies are kept.  A cache is
+ * replaced, never changed, so tables that are not being changed can be read
+ * by several threads at once.
  */
 public class SymbolTable {
+
+    /**
+     * Number of changes to the bindings of the parent tables of a class
+     * hierarchy, shared by the tables of the hierarchy, so the caches of the
+     * symbols found in ancestors are emptied when it changes.  Giving a table
+     * a parent merges the counters of their hierarchies: the counter of the
+     * table is then merged into the one of the parent, which it forwards to.
+     */
+    private static class Changes {
+        final AtomicInteger count = new AtomicInteger();
+        volatile Changes merged; // the counter this one was merged into, or null
+
+        /**
+         * @return the counter of the hierarchy, which this one was merged into
+         *         or this one; the counters on the way forward to it directly
+         */
+        Changes find() {
+            Changes found = this;
+            while (found.merged != null) {
+                found = found.merged;
+            }
+            for (Changes changes = this; changes != found; ) {
+                Changes next = changes.merged;
+                changes.merged = found;
+                changes = next;
+            }
+            return found;
+        }
+    }
+
+    /**
+     * A binding of a symbol in a scope.  The value corresponds to the type of
+     * the variable or method.  For variables it will be a String and for
+     * methods it will be an AST node.
+     */
+    private static class Binding {
+        final String symbol;
+        final Object value;
+        final int level;      // the scope of the binding in its table, 0 for the first
+        final Binding outer;  // the binding of the symbol in an enclosing scope, or null
+
+        Binding(String symbol, Object value, int level, Binding outer) {
+            this.symbol = symbol;
+            this.value = value;
+            this.level = level;
+            this.outer = outer;
+        }
+
+        /**
+         * @return a copy of the chain from this binding, with the binding of
+         *         the given scope set to the value
+         */
+        Binding with(int level, Object value) {
+            if (this.level == level) {
+                return new Binding(symbol, value, level, outer);
+            }
+            return new Binding(symbol, this.value, this.level, outer.with(level, value));
+        }
+    }
+
+    /**
+     * Value of a cached symbol not bound in any ancestor
+     */
+    private static final Binding MISSING = new Binding(null, null, -1, null);
+
+    /**
+     * The bindings found in the ancestors of a table, or MISSING, and the
+     * number of changes to parent tables when they were found
+     */
+    private static class Cache {
+        final Changes counter;
+        final int changes;
+        final HashTrie.Node bindings;
+
+        Cache(Changes counter, int changes, HashTrie.Node bindings) {
+            this.counter = counter;
+            this.changes = changes;
+            this.bindings = bindings;
+        }
+    }
+
+    /**
+     * A scope: the trie and the number of bindings of the table when it was
+     * entered, and the enclosing scope
+     */
+    private static class Scope {
+        final HashTrie.Node bindings;
+        final int size;
+        final Scope outer;
+
+        Scope(HashTrie.Node bindings, int size, Scope outer) {
+            this.bindings = bindings;
+            this.size = size;
+            this.outer = outer;
+        }
+    }
+
     /**
-     * Hash table that maps strings to Objects.  The object value corresponds to
-     * the type of the variable or method.  For variables it will be a String and
-     * for methods it will be an AST node.
+     * The innermost binding of each symbol of the table
      */
-    private Hashtable<String, Object> hash;
+    private HashTrie.Node bindings = HashTrie.EMPTY;
     /**
-     * List that holds each scope
+     * The number of bindings of the table, in all scopes
      */
-    private Vector<Hashtable<String, Object>> scopes;
+    private int size = 0;
+    /**
+     * The current scope, null if none was entered
+     */
+    private Scope scope = null;
+    private int scopeCount = 0;
     /**
      * Parent class symbol table (may be null)
      * If lookup fails in this symbol table should lookup in parent
      */
     private SymbolTable parent;
+    /**
+     * Whether the table is the parent of another one
+     */
+    private boolean hasChildren = false;
+    /**
+     * The cache of the bindings found in the ancestors, or null
+     */
+    private Cache inherited;
+    /**
+     * The counter of the changes of the class hierarchy of the table
+     */
+    private Changes changes = new Changes();
 
     /**
      * SymbolTable constructor
      * create an empty symbol table
      */
     public SymbolTable() {
-        hash = null;
-        scopes = new Vector<Hashtable<String, Object>>();
         parent = null;
     }
 
-    /**
-     * SymbolTable constructor
-     * create a symbol table from an existing one
-     * (used internally for cloning symbol tables)
-     *
-     * @param scopes the scopes of symbols
-     * @param parent parent symbol table
-     */
-    private SymbolTable(Vector<Hashtable<String, Object>> scopes,
-                        SymbolTable parent) {
-        this.scopes = scopes;
-        if (scopes.size() > 0) {
-            this.hash = scopes.elementAt(scopes.size() - 1);
-        }
-        else {
-            this.hash = null;
-        }
-        this.parent = parent;
-    }
-
     /**
      * Set the parent symbol table
      *
@@ -95,31 +201,37 @@ public class SymbolTable {
      */
     public void setParent(SymbolTable parent) {
         this.parent = parent;
+        Changes counter = changes.find();
+        counter.count.incrementAndGet();
+        if (parent != null) {
+            parent.hasChildren = true;
+            Changes parentCounter = parent.changes.find();
+            if (parentCounter != counter) {
+                counter.merged = parentCounter;
+            }
+        }
     }
 
     /**
      * Enter a new scope
      */
     public void enterScope() {
-        hash = new Hashtable<String, Object>();
-        scopes.add(hash);
-
+        scope = new Scope(bindings, size, scope);
+        scopeCount++;
     }
 
     /**
      * Exit a scope
      */
     public void exitScope() {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("No scope to exit");
         }
-        scopes.removeElementAt(scopes.size() - 1);
-        if (scopes.size() > 0) {
-            hash = scopes.elementAt(scopes.size() - 1);
-        }
-        else {
-            hash = null;
-        }
+        bindings = scope.bindings;
+        size = scope.size;
+        scope = scope.outer;
+        scopeCount--;
+        changed();
     }
 
     /**
@@ -130,10 +242,20 @@ public class SymbolTable {
      * @param value value of symbol (i.e., type)
      */
     public void add(String s, Object value) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before adding to table");
         }
-        hash.put(s, value);
+        Objects.requireNonNull(value);
+        Binding binding = find(s);
+        if (binding != null && binding.level == scopeCount - 1) {
+            binding = binding.with(scopeCount - 1, value);
+        }
+        else {
+            binding = new Binding(s, value, scopeCount - 1, binding);
+            size++;
+        }
+        bindings = HashTrie.put(bindings, s, binding);
+        changed();
     }
 
     /**
@@ -143,23 +265,18 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found
      */
     public Object lookup(String s) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Hashtable<String, Object> h = scopes.elementAt(i);
-
-            Object value = h.get(s);
-
-            if (value != null) {
-                return value;
-            }
+        Binding binding = find(s);
+        if (binding != null) {
+            return binding.value;
         }
-
-        if (parent != null) {
-            return parent.lookup(s);
+        if (parent == null) {
+            return null;
         }
-        return null;
+        Binding found = inherited(s);
+        return found == MISSING ? null : found.value;
     }
 
     /**
@@ -176,7 +293,7 @@ public class SymbolTable {
         int lastLevel = getCurrScopeLevel();
 
         // some error checking
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
         else if (level < 0 || level >= lastLevel) {
@@ -186,40 +303,16 @@ public class SymbolTable {
                     lastLevel + ") minus one");
         }
 
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                // lookup in this scope and earlier scopes until we find
-                // symbol or run out of scopes
-                for (int l = level; l >= 0; l--) {
-                    Hashtable<String, Object> h = st.scopes.elementAt(l);
-                    if (h.get(s) != null) {
-                        return h.get(s);
-                    }
-                }
-                // if we make it here then we try looking up in parent table
-                // (if one exists)
-                if (st.parent != null) {
-                    return st.parent.lookup(s);
-                }
-                // otherwise we return null (not found)
-                return null;
-            }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
+        // find the table of the scope, then the binding in this scope and
+        // outer scopes of the table, or else in the parent table
+        SymbolTable st = tableAt(level, lastLevel);
+        Binding binding = st.find(s, level - st.firstLevel());
+        if (binding != null) {
+            return binding.value;
+        }
+        if (st.parent != null) {
+            return st.parent.lookup(s);
         }
-
-        // we should never get here
         return null;
     }
 
@@ -230,10 +323,11 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found
      */
     public Object peek(String s) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before peeking in table");
         }
-        return hash.get(s);
+        Binding binding = find(s);
+        return binding != null && binding.level == scopeCount - 1 ? binding.value : null;
     }
 
     /**
@@ -249,7 +343,7 @@ public class SymbolTable {
         int lastLevel = getCurrScopeLevel();
 
         // some error checking
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before peeking in table");
         }
         else if (level < 0 || level >= lastLevel) {
@@ -259,28 +353,10 @@ public class SymbolTable {
                     lastLevel + ") minus one");
         }
 
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                Hashtable<String, Object> h = st.scopes.elementAt(level);
-                return h.get(s);
-            }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
-        }
-
-        // we should never get here
-        return null;
+        SymbolTable st = tableAt(level, lastLevel);
+        int localLevel = level - st.firstLevel();
+        Binding binding = st.find(s, localLevel);
+        return binding != null && binding.level == localLevel ? binding.value : null;
     }
 
     /**
@@ -290,18 +366,15 @@ public class SymbolTable {
      * @param val value to set the symbol to
      */
     public void set(String s, Object val) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before setting in table");
         }
 
         for (SymbolTable st = this; st != null; st = st.parent) {
-            for (int i = st.scopes.size() - 1; i >= 0; i--) {
-                Hashtable<String, Object> h = st.scopes.elementAt(i);
-                if (h.get(s) != null) {
-                    h.remove(s);
-                    h.put(s, val);
-                    return;
-                }
+            Binding binding = st.find(s);
+            if (binding != null) {
+                st.replace(s, binding.level, Objects.requireNonNull(val));
+                return;
             }
         }
 
@@ -320,7 +393,7 @@ public class SymbolTable {
     public void set(String s, Object val, int level) {
         int lastLevel = getCurrScopeLevel();
 
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before setting in table");
         }
         else if (level < 0 || level >= lastLevel) {
@@ -330,38 +403,13 @@ public class SymbolTable {
                     lastLevel + ") minus one");
         }
 
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                // look in this scope and earlier scopes until we find
-                // symbol or run out of scopes
-                for (int l = level; l >= 0; l--) {
-                    Hashtable<String, Object> h = st.scopes.elementAt(l);
-                    if (h.get(s) != null) {
-                        h.remove(s);
-                        h.put(s, val);
-                        return;
-                    }
-                }
-                // if we make it here then we try setting in parent table
-                // (if one exists)
-                if (st.parent != null) {
-                    st.parent.set(s, val);
-                }
-                return;
-            }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
+        SymbolTable st = tableAt(level, lastLevel);
+        Binding binding = st.find(s, level - st.firstLevel());
+        if (binding != null) {
+            st.replace(s, binding.level, Objects.requireNonNull(val));
+        }
+        else if (st.parent != null) {
+            st.parent.set(s, val);
         }
     }
 
@@ -373,19 +421,17 @@ public class SymbolTable {
      * @return scope level
      */
     public int getScopeLevel(String s) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
 
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Hashtable<String, Object> h = scopes.elementAt(i);
-            if (h.get(s) != null) {
-                if (parent == null) {
-                    return (i + 1);
-                }
-                else {
-                    return (i + 1) + parent.getCurrScopeLevel();
-                }
+        Binding binding = find(s);
+        if (binding != null) {
+            if (parent == null) {
+                return binding.level + 1;
+            }
+            else {
+                return binding.level + 1 + parent.getCurrScopeLevel();
             }
         }
 
@@ -403,11 +449,6 @@ public class SymbolTable {
      * @return size of current scope
      */
     public int getSize() {
-        int size = 0;
-
-        for (int i = 0; i < scopes.size(); i++)
-            size += scopes.elementAt(i).size();
-
         if (parent != null) {
             return parent.getSize() + size;
         }
@@ -420,8 +461,8 @@ public class SymbolTable {
      * @return size of current scope
      */
     public int getCurrScopeSize() {
-        if (hash != null) {
-            return hash.size();
+        if (scope != null) {
+            return size - scope.size;
         }
         else {
             return 0;
@@ -436,38 +477,57 @@ public class SymbolTable {
      */
     public int getCurrScopeLevel() {
         if (parent != null) {
-            return scopes.size() + parent.getCurrScopeLevel();
+            return scopeCount + parent.getCurrScopeLevel();
         }
-        return scopes.size();
+        return scopeCount;
     }
 
     /**
      * clone this symbol table as well as all parent symbol tables
-     * Note: does a shallow clone, does not copy keys or values
-     * Note also: this is an expensive operation
+     * Note: the clone shares the bindings of this table, so cloning takes
+     * constant time for this table and for each ancestor
      *
      * @return cloned symbol table
      */
     public SymbolTable clone() {
+        SymbolTable st = new SymbolTable();
+
         // clone parent symbol table (as well as all other ancestors)
-        SymbolTable newParent = null;
         if (parent != null) {
-            newParent = parent.clone();
+            st.parent = parent.clone();
+            st.parent.hasChildren = true;
+            st.changes = st.parent.changes;
         }
 
-        // create new set of clone scopes
-        Vector<Hashtable<String, Object>> newScopes
-                = new Vector<Hashtable<String, Object>>();
-        for (int i = 0; i < scopes.size(); i++)
-            newScopes.add((Hashtable<String, Object>) scopes.elementAt(i).clone());
-
-        // use these to create a new symbol table
-        SymbolTable st = new SymbolTable(newScopes, newParent);
+        st.bindings = bindings;
+        st.size = size;
+        st.scope = scope;
+        st.scopeCount = scopeCount;
 
         // return cloned symbol table
         return st;
     }
 
+    /**
+     * Clones the symbol table but not its parent tables, which the clone
+     * shares, so it takes constant time however deep the table is.  The
+     * clone is only independent of this table: it sees later changes to the
+     * parent tables, as this table does.
+     *
+     * @return clone of the symbol table sharing its parent
+     */
+    public SymbolTable shallowClone() {
+        SymbolTable st = new SymbolTable();
+        st.parent = parent;
+        st.bindings = bindings;
+        st.size = size;
+        st.scope = scope;
+        st.scopeCount = scopeCount;
+        st.inherited = inherited; // found in the same parents
+        st.changes = changes;
+        return st;
+    }
+
     /**
      * For debugging -- dumps out entire symbol table
      * Starts from highest scope level (Object class) and works
@@ -478,9 +538,124 @@ public class SymbolTable {
             parent.dump();
         }
 
-        Enumeration e = scopes.elements();
-        while (e.hasMoreElements()) {
-            System.out.println(e.nextElement());
+        List<Object> chains = new ArrayList<>();
+        HashTrie.collect(bindings, chains);
+        for (int level = 0; level < scopeCount; level++) {
+            StringBuilder line = new StringBuilder("{");
+            for (Object chain : chains) {
+                for (Binding binding = (Binding) chain; binding != null; binding = binding.outer) {
+                    if (binding.level == level) {
+                        line.append(line.length() > 1 ? ", " : "")
+                                .append(binding.symbol).append('=').append(binding.value);
+                    }
+                }
+            }
+            System.out.println(line.append('}'));
+        }
+    }
+
+    /**
+     * @return the innermost binding of the symbol in the table, or null
+     */
+    private Binding find(String s) {
+        return (Binding) HashTrie.get(bindings, s);
+    }
+
+    /**
+     * @return the innermost binding of the symbol in the given scope of the
+     *         table or an outer one, or null
+     */
+    private Binding find(String s, int level) {
+        Binding binding = find(s);
+        while (binding != null && binding.level > level) {
+            binding = binding.outer;
+        }
+        return binding;
+    }
+
+    /**
+     * sets the value of the binding of the symbol in the given scope.  The
+     * tries saved by the scopes entered since hold the binding too, so they
+     * are copied with the new value as well.
+     */
+    private void replace(String s, int level, Object value) {
+        bindings = HashTrie.put(bindings, s, find(s).with(level, value));
+        scope = replace(scope, scopeCount - 1, s, level, value);
+        changed();
+    }
+
+    /**
+     * @return the given scope, of the given level, and its outer scopes,
+     *         copied up to the scope entered after the binding of the symbol
+     */
+    private static Scope replace(Scope scope, int scopeLevel, String s, int level, Object value) {
+        if (scopeLevel <= level) {
+            return scope;
+        }
+        Binding binding = (Binding) HashTrie.get(scope.bindings, s);
+        HashTrie.Node saved = HashTrie.put(scope.bindings, s, binding.with(level, value));
+        return new Scope(saved, scope.size, replace(scope.outer, scopeLevel - 1, s, level, value));
+    }
+
+    /**
+     * empties the caches of the descendants when the bindings of a parent
+     * table change
+     */
+    private void changed() {
+        if (hasChildren) {
+            changes.find().count.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the innermost binding of the symbol in the ancestors of the
+     *         table, or MISSING; the ancestors are searched once per symbol
+     *         until a parent table changes
+     */
+    private Binding inherited(String s) {
+        Changes counter = this.changes.find();
+        int changes = counter.count.get();
+        Cache cache = inherited;
+        if (cache == null || cache.counter != counter || cache.changes != changes) {
+            cache = new Cache(counter, changes, HashTrie.EMPTY);
+        }
+        Binding found = (Binding) HashTrie.get(cache.bindings, s);
+        if (found == null) {
+            found = MISSING;
+            for (SymbolTable st = parent; st != null; st = st.parent) {
+                if (st.scopeCount == 0) {
+                    throw new RuntimeException("Must enter a scope before looking up in table");
+                }
+                Binding binding = st.find(s);
+                if (binding != null) {
+                    found = binding;
+                    break;
+                }
+            }
+            inherited = new Cache(counter, changes, HashTrie.put(cache.bindings, s, found));
+        }
+        return found;
+    }
+
+    /**
+     * @param level     a scope level of this table or its ancestors
+     * @param lastLevel the current scope level of this table
+     * @return the table, this one or an ancestor, holding the scope level
+     */
+    private SymbolTable tableAt(int level, int lastLevel) {
+        SymbolTable st = this;
+        int first = lastLevel - scopeCount;
+        while (level < first) {
+            st = st.parent;
+            first -= st.scopeCount;
         }
+        return st;
+    }
+
+    /**
+     * @return the scope level of the first scope of the table
+     */
+    private int firstLevel() {
+        return parent == null ? 0 : parent.getCurrScopeLevel();
     }
 }
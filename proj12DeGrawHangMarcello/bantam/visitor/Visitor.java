@@ -28,8 +28,6 @@ package proj12DeGrawHangMarcello.bantam.visitor;
 
 import proj12DeGrawHangMarcello.bantam.ast.*;
 
-import java.util.Iterator;
-
 /**
  * Abstract visitor class for traversing the AST
  */
@@ -72,8 +70,8 @@ public abstract class Visitor {
      * @return result of the visit
      */
     public Object visit(ClassList node) {
-        for (ASTNode aNode : node)
-            aNode.accept(this);
+        for (int i = 0; i < node.getSize(); i++)
+            node.get(i).accept(this);
         return null;
     }
 
@@ -95,8 +93,8 @@ public abstract class Visitor {
      * @return result of the visit
      */
     public Object visit(MemberList node) {
-        for (ASTNode child : node)
-            child.accept(this);
+        for (int i = 0; i < node.getSize(); i++)
+            node.get(i).accept(this);
         return null;
     }
 
@@ -142,8 +140,8 @@ public abstract class Visitor {
      * @return result of the visit
      */
     public Object visit(FormalList node) {
-        for (Iterator it = node.iterator(); it.hasNext(); )
-            ((Formal) it.next()).accept(this);
+        for (int i = 0; i < node.getSize(); i++)
+            node.get(i).accept(this);
         return null;
     }
 
@@ -164,8 +162,8 @@ public abstract class Visitor {
      * @return result of the visit
      */
     public Object visit(StmtList node) {
-        for (Iterator it = node.iterator(); it.hasNext(); )
-            ((Stmt) it.next()).accept(this);
+        for (int i = 0; i < node.getSize(); i++)
+            node.get(i).accept(this);
         return null;
     }
 
@@ -258,6 +256,16 @@ public abstract class Visitor {
         return null;
     }
 
+    /**
+     * Visit an error statement node
+     *
+     * @param node the error statement node
+     * @return result of the visit
+     */
+    public Object visit(ErrorStmt node) {
+        return null;
+    }
+
     /**
      * Visit a block statement node
      *
@@ -289,8 +297,8 @@ public abstract class Visitor {
      * @return result of the visit
      */
     public Object visit(ExprList node) {
-        for (Iterator it = node.iterator(); it.hasNext(); )
-            ((Expr) it.next()).accept(this);
+        for (int i = 0; i < node.getSize(); i++)
+            node.get(i).accept(this);
         return null;
     }
 